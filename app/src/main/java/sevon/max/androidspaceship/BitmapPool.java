@@ -0,0 +1,94 @@
+package sevon.max.androidspaceship;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+
+/**
+ * A pool of same-sized bitmaps that new bitmaps are decoded or drawn into, decoding using
+ * BitmapFactory.Options.inBitmap. This way streaming in a new world cell doesn't allocate a new
+ * bitmap (and cause a GC pause) once the pool has warmed up.
+ * Reusing bitmaps requires Honeycomb, on older devices every decode is counted as a miss.
+ */
+public class BitmapPool extends RecyclingPool<Bitmap> {
+
+    private static final boolean REUSE_SUPPORTED = Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB;
+
+    private final int width;
+    private final int height;
+    private final Bitmap.Config config;
+
+    /**
+     * @param capacity The maximum number of free bitmaps kept in the pool.
+     * @param width The width of the pooled bitmaps.
+     * @param height The height of the pooled bitmaps.
+     * @param config The pixel format of the pooled bitmaps.
+     */
+    public BitmapPool(int capacity, int width, int height, Bitmap.Config config) {
+        super(capacity);
+        this.width = width;
+        this.height = height;
+        this.config = config;
+    }
+
+    /**
+     * Decodes a bitmap resource, reusing a bitmap from the pool if there is one. The resource must
+     * have the same size as the pooled bitmaps. The returned bitmap should be given back with
+     * release() when it's no longer used.
+     * @param resources The resources to decode from.
+     * @param id The id of the bitmap resource.
+     * @return The decoded bitmap.
+     */
+    public Bitmap decodeResource(Resources resources, int id) {
+        BitmapFactory.Options factoryOptions = new BitmapFactory.Options();
+        factoryOptions.inPreferredConfig = config;
+        Bitmap reusable = null;
+
+        if(REUSE_SUPPORTED) {
+            factoryOptions.inMutable = true;    // Only mutable bitmaps can be reused.
+            factoryOptions.inSampleSize = 1;
+            reusable = acquire();
+            factoryOptions.inBitmap = reusable;
+        }
+
+        try {
+            return BitmapFactory.decodeResource(resources, id, factoryOptions);
+        } catch (IllegalArgumentException e) {
+            // The decoder couldn't reuse the bitmap, throw it away and decode into a new one.
+            if(reusable == null)
+                throw e;
+            reusable.recycle();
+            factoryOptions.inBitmap = null;
+            return BitmapFactory.decodeResource(resources, id, factoryOptions);
+        }
+    }
+
+    /**
+     * Gets a mutable bitmap to draw into, from the pool if there is one. Its contents are
+     * undefined. The bitmap should be given back with release() when it's no longer used.
+     * @param width The width of the bitmap.
+     * @param height The height of the bitmap.
+     * @return The bitmap.
+     */
+    public Bitmap obtain(int width, int height) {
+        Bitmap bitmap = acquire();
+        if(bitmap != null && bitmap.getWidth() == width && bitmap.getHeight() == height)
+            return bitmap;
+        if(bitmap != null)
+            bitmap.recycle();
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    @Override
+    protected boolean canReuse(Bitmap bitmap) {
+        return REUSE_SUPPORTED && !bitmap.isRecycled() && bitmap.isMutable()
+                && bitmap.getWidth() == width && bitmap.getHeight() == height
+                && bitmap.getConfig() == config;
+    }
+
+    @Override
+    protected void onEvict(Bitmap bitmap) {
+        bitmap.recycle();
+    }
+}
@@ -0,0 +1,349 @@
+package sevon.max.androidspaceship;
+
+import android.content.res.AssetFileDescriptor;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffColorFilter;
+import android.graphics.Rect;
+import android.util.SparseArray;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * LRU cache of decoded world cell drawables, keyed by bitmap resource id, and the images cells are
+ * drawn from. The world only has a handful of cell drawables, so once they have been decoded new
+ * cells can share them instead of decoding the resource again. Decoded drawables are reference
+ * counted by the images made from them; one is only evicted when no image uses it and the cache
+ * is over its memory budget, least recently used first.
+ * Every cell gets its own image: the decoded drawable is tinted in the cell's color and flattened
+ * onto the background color into an opaque RGB_565 bitmap, on the decode thread when the cell is
+ * loaded. Drawing a cell is then a plain copy, without a color filter or blending, and an image
+ * takes half the memory of the drawable. Cells can have any color, since only the cheap tinting is
+ * done per cell. Images live as long as their cell is loaded, and their bitmaps are pooled so a
+ * new cell draws into the bitmap of an unloaded one. Generated cells are drawn into images from
+ * the same pool, so every cell is drawn the same way whether its layout was made by hand or not.
+ * The cache also remembers the bounds of every bitmap resource so these don't have to be read
+ * from the resource each time a cell is created.
+ * Collision masks generated at build time (see CollisionAssetTool) are memory mapped from the
+ * assets and shared by every image of the same bitmap, so the walls of a cell are known without
+ * decoding its bitmap. Masks are only built from the bitmap if there is no asset for it.
+ */
+public class CellImageCache {
+
+    /**
+     * The image of a cell and its collision mask.
+     */
+    public static class CellImage {
+        private final Bitmap bitmap;
+        private final CollisionMask collisionMask;
+        private final Drawable drawable;        // The drawable the image was made from.
+
+        private CellImage(Bitmap bitmap, CollisionMask collisionMask, Drawable drawable) {
+            this.bitmap = bitmap;
+            this.collisionMask = collisionMask;
+            this.drawable = drawable;
+        }
+
+        public Bitmap getBitmap() { return bitmap; }
+        public CollisionMask getCollisionMask() { return collisionMask; }
+    }
+
+    /**
+     * A decoded bitmap resource and its collision mask.
+     */
+    private static class Drawable {
+        private final Bitmap bitmap;
+        private final CollisionMask collisionMask;
+        private final boolean sharedMask;       // Loaded from an asset, not owned by this drawable.
+        private final int byteCount;
+        private int refCount;
+
+        private Drawable(Bitmap bitmap, CollisionMask collisionMask, boolean sharedMask) {
+            this.bitmap = bitmap;
+            this.collisionMask = collisionMask;
+            this.sharedMask = sharedMask;
+            byteCount = bitmap.getRowBytes() * bitmap.getHeight();
+        }
+    }
+
+    private final Resources resources;
+    private final int width;
+    private final int height;
+    private final long maxBytes;
+    private long bytes;
+    private int hits;
+    private int misses;
+
+    private final LinkedHashMap<Integer, Drawable> drawables = new LinkedHashMap<>(16, 0.75f, true);    // Access ordered.
+    private final SparseArray<Rect> bounds = new SparseArray<>();
+    private final SparseArray<CollisionMask> assetMasks = new SparseArray<>();    // Null value: no asset.
+    private final BitmapPool bitmapPool;            // Tinted, opaque images.
+    private final BitmapPool sourcePool;            // Decoded drawables.
+    private final int backgroundColor;
+    private final RecyclingPool<CollisionMask> collisionMaskPool;
+    private final Object decodeLock = new Object();       // Guards the decode buffers below.
+    private final Paint tintPaint = new Paint();
+    private final Paint wallPaint = new Paint();
+    private int[] maskRow;
+
+    /**
+     * Creates a cell image cache with a memory budget of a fraction of the available heap.
+     * @param resources The resources to decode images from.
+     * @param width The width of the cell images.
+     * @param height The height of the cell images.
+     * @param poolCapacity The number of unused images and drawables kept for reuse.
+     * @param backgroundColor The color the images are drawn on, transparent pixels get this color.
+     */
+    public CellImageCache(Resources resources, final int width, final int height, int poolCapacity, int backgroundColor) {
+        this.resources = resources;
+        this.width = width;
+        this.height = height;
+        this.backgroundColor = backgroundColor;
+        maxBytes = Runtime.getRuntime().maxMemory() / 8;
+        maskRow = new int[width];
+
+        bitmapPool = new BitmapPool(poolCapacity, width, height, Bitmap.Config.RGB_565);
+        sourcePool = new BitmapPool(1, width, height, Bitmap.Config.ARGB_8888);
+        collisionMaskPool = new RecyclingPool<CollisionMask>(poolCapacity) {
+            @Override
+            protected boolean canReuse(CollisionMask mask) {
+                return mask.getWidth() == width && mask.getHeight() == height;
+            }
+        };
+    }
+
+    /**
+     * Returns the bounds of a bitmap resource. The first time a resource is asked for its bounds
+     * are read from the resource, after that they come from the cache.
+     * @param bitmapId The id of the bitmap resource.
+     * @return The bounds of the bitmap. Shared, must not be modified.
+     */
+    public Rect getBounds(int bitmapId) {
+        synchronized (bounds) {
+            Rect rect = bounds.get(bitmapId);
+            if(rect == null) {
+                BitmapFactory.Options factoryOptions = new BitmapFactory.Options();
+                factoryOptions.inJustDecodeBounds = true;
+                BitmapFactory.decodeResource(resources, bitmapId, factoryOptions);
+                rect = new Rect(0, 0, factoryOptions.outWidth, factoryOptions.outHeight);
+                bounds.put(bitmapId, rect);
+            }
+            return rect;
+        }
+    }
+
+    /**
+     * Gets the collision mask generated at build time for a bitmap resource. The first time a
+     * resource is asked for the mask is read from the assets, after that it comes from the cache.
+     * @param bitmapId The id of the bitmap resource.
+     * @return The mask, shared and must not be modified, or null if there is no asset for it.
+     */
+    public CollisionMask getCollisionMask(int bitmapId) {
+        synchronized (assetMasks) {
+            int index = assetMasks.indexOfKey(bitmapId);
+            if(index >= 0)
+                return assetMasks.valueAt(index);
+
+            CollisionMask mask = null;
+            String name = "cmask/" + resources.getResourceEntryName(bitmapId) + CollisionMaskFile.EXTENSION;
+            try {
+                AssetFileDescriptor file = resources.getAssets().openFd(name);
+                FileInputStream in = file.createInputStream();
+                try {
+                    ByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, file.getStartOffset(), file.getLength());
+                    mask = CollisionMaskFile.decode(buffer, null);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                // No asset, the mask is built from the bitmap when it's decoded.
+            }
+            assetMasks.put(bitmapId, mask);
+            return mask;
+        }
+    }
+
+    /**
+     * Makes the image of a cell: the bitmap resource tinted in the cell's color, decoding the
+     * resource if it isn't in the cache. The image must be handed back with release() when it's
+     * no longer used. Should be called from a background thread.
+     * @param bitmapId The id of the bitmap resource.
+     * @param color Color to tint the image with, or 0 for no tint.
+     * @return The cell image.
+     */
+    public CellImage acquire(int bitmapId, int color) {
+        Drawable drawable = acquireDrawable(bitmapId);
+        synchronized (decodeLock) {
+            Bitmap bitmap = bitmapPool.obtain(drawable.bitmap.getWidth(), drawable.bitmap.getHeight());
+            tintPaint.setColorFilter(color != 0 ? new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_ATOP) : null);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(backgroundColor, PorterDuff.Mode.SRC);
+            canvas.drawBitmap(drawable.bitmap, 0, 0, tintPaint);
+            return new CellImage(bitmap, drawable.collisionMask, drawable);
+        }
+    }
+
+    /**
+     * Makes the image of a generated cell: its walls in the cell's color on the background color.
+     * The image must be handed back with release() when it's no longer used, and uses the
+     * layout's collision mask, so the layout must be kept until then. Should be called from a
+     * background thread.
+     * @param layout The generated layout.
+     * @param color The color of the walls.
+     * @return The cell image.
+     */
+    public CellImage acquire(GeneratedLayout layout, int color) {
+        synchronized (decodeLock) {
+            Bitmap bitmap = bitmapPool.obtain(width, height);
+            wallPaint.setColor(color);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(backgroundColor, PorterDuff.Mode.SRC);
+            for(int i = 0; i < layout.getWallCount(); i++)
+                canvas.drawRect(layout.getWallLeft(i), layout.getWallTop(i), layout.getWallRight(i), layout.getWallBottom(i), wallPaint);
+            return new CellImage(bitmap, layout.getCollisionMask(), null);
+        }
+    }
+
+    /**
+     * Hands back an image that was returned by acquire(). Its bitmap is reused for another image.
+     * @param image The image that is no longer used.
+     */
+    public void release(CellImage image) {
+        bitmapPool.release(image.bitmap);
+        if(image.drawable != null) {
+            synchronized (this) {
+                image.drawable.refCount--;
+                if(image.drawable.refCount == 0)
+                    trimToBudget();
+            }
+        }
+    }
+
+    /**
+     * Evicts all unused drawables and empties the pools.
+     */
+    public synchronized void clear() {
+        Iterator<Drawable> iterator = drawables.values().iterator();
+        while(iterator.hasNext()) {
+            Drawable drawable = iterator.next();
+            if(drawable.refCount == 0) {
+                iterator.remove();
+                bytes -= drawable.byteCount;
+                drawable.bitmap.recycle();
+            }
+        }
+        bitmapPool.clear();
+        sourcePool.clear();
+        collisionMaskPool.clear();
+    }
+
+    /**
+     * @return The number of images made from a drawable that was already decoded.
+     */
+    public synchronized int getHits() { return hits; }
+
+    /**
+     * @return The number of images that needed their drawable decoded.
+     */
+    public synchronized int getMisses() { return misses; }
+
+    /**
+     * @return The memory taken by the decoded drawables in the cache.
+     */
+    public synchronized long getByteCount() { return bytes; }
+
+    /**
+     * Gets a decoded drawable, decoding it if it isn't in the cache, and counts a reference to it.
+     */
+    private Drawable acquireDrawable(int bitmapId) {
+        synchronized (this) {
+            Drawable drawable = drawables.get(bitmapId);
+            if(drawable != null) {
+                hits++;
+                drawable.refCount++;
+                return drawable;
+            }
+            misses++;
+        }
+
+        Drawable decoded = decode(bitmapId);
+
+        synchronized (this) {
+            // Another thread might have decoded the same drawable in the meantime.
+            Drawable drawable = drawables.get(bitmapId);
+            if(drawable == null) {
+                drawable = decoded;
+                drawables.put(bitmapId, drawable);
+                bytes += drawable.byteCount;
+            } else {
+                recycle(decoded);
+            }
+            drawable.refCount++;
+            trimToBudget();
+            return drawable;
+        }
+    }
+
+    /**
+     * Evicts the least recently used drawables that no image uses until the cache fits its budget.
+     */
+    private void trimToBudget() {
+        Iterator<Drawable> iterator = drawables.values().iterator();
+        while(bytes > maxBytes && iterator.hasNext()) {
+            Drawable drawable = iterator.next();
+            if(drawable.refCount == 0) {
+                iterator.remove();
+                bytes -= drawable.byteCount;
+                recycle(drawable);
+            }
+        }
+    }
+
+    private void recycle(Drawable drawable) {
+        sourcePool.release(drawable.bitmap);
+        if(!drawable.sharedMask)
+            collisionMaskPool.release(drawable.collisionMask);
+    }
+
+    /**
+     * Decodes a bitmap resource into a pooled bitmap. Its collision mask comes from the assets,
+     * or is built from the decoded bitmap's alpha channel if there is no asset.
+     */
+    private Drawable decode(int bitmapId) {
+        CollisionMask assetMask = getCollisionMask(bitmapId);
+        synchronized (decodeLock) {
+            Bitmap source = sourcePool.decodeResource(resources, bitmapId);
+            CollisionMask mask = assetMask != null ? assetMask : buildCollisionMask(source);
+            return new Drawable(source, mask, assetMask != null);
+        }
+    }
+
+    /**
+     * Builds a collision mask from the alpha channel of a bitmap.
+     */
+    private CollisionMask buildCollisionMask(Bitmap bitmap) {
+        int bitmapWidth = bitmap.getWidth();
+        int bitmapHeight = bitmap.getHeight();
+        CollisionMask mask = collisionMaskPool.acquire();
+        if(mask == null || mask.getWidth() != bitmapWidth || mask.getHeight() != bitmapHeight)
+            mask = new CollisionMask(bitmapWidth, bitmapHeight);
+
+        // Read one row at a time to avoid allocating an int for every pixel.
+        if(maskRow.length < bitmapWidth)
+            maskRow = new int[bitmapWidth];
+        for(int y = 0; y < bitmapHeight; y++) {
+            bitmap.getPixels(maskRow, 0, bitmapWidth, 0, y, bitmapWidth, 1);
+            mask.setRow(y, maskRow);
+        }
+        return mask;
+    }
+}
@@ -1,9 +0,0 @@
-package sevon.max.androidspaceship;
-
-/**
- * Created by Max on 2016-01-21.
- */
-public interface GameEventListener {
-    void notify(World.Event event);
-
-}
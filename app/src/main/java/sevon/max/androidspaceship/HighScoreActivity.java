@@ -1,29 +1,54 @@
 package sevon.max.androidspaceship;
 
-import android.content.Intent;
 import android.os.Bundle;
 import android.app.Activity;
-import android.view.Menu;
-import android.widget.TextView;
+import android.widget.ListView;
+import android.widget.Toast;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HighScoreActivity extends Activity {
 
+    // The number of scores kept. The list is shown a page at a time, so it can be long.
+    public static final int SCORE_CAPACITY = 1000;
+
+    private ExecutorService loader;     // Loads the scores off the UI thread.
+    private HighScoreAdapter adapter;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_high_score);
 
-        ScoreList highScores = ScoreList.load(this);
+        loader = Executors.newSingleThreadExecutor();
+        final ScoreRepository repository = ScoreRepository.open(getFilesDir(), SCORE_CAPACITY);
+        adapter = new HighScoreAdapter(getLayoutInflater(), repository, loader);
+        ((ListView) findViewById(R.id.highScoreList)).setAdapter(adapter);
 
-        // Create string of high scores for display.
-        int highScoreNumber = 1;
-        String highScoreString = "";
-        for(int score : highScores) {
-            highScoreString += highScoreNumber + ". " + score + "\n";
-            highScoreNumber++;
+        // Runs after the adapter has loaded the scores, so a load error is known by then.
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                if(repository.getLastError() != null)
+                    runOnUiThread(showScoreError);
+            }
+        });
+    }
+
+    private final Runnable showScoreError = new Runnable() {
+        @Override
+        public void run() {
+            if(!isFinishing())
+                Toast.makeText(HighScoreActivity.this, R.string.high_score_error, Toast.LENGTH_LONG).show();
         }
+    };
 
-        ((TextView) findViewById(R.id.highScoreText)).setText(highScoreString);
+    @Override
+    protected void onDestroy() {
+        adapter.close();
+        loader.shutdownNow();
+        super.onDestroy();
     }
 
     @Override
@@ -0,0 +1,148 @@
+package sevon.max.androidspaceship;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Shows the high score list a page at a time. Pages are loaded from the repository on a
+ * background executor when a row on them is first shown; until then the row only shows its
+ * place. Only a few pages are kept (see ScorePages), so the list can be scrolled through no matter
+ * how long it is.
+ * Rows are recycled by the list view and formatted into a char buffer, so scrolling doesn't
+ * allocate strings. Should only be used from the UI thread.
+ */
+public class HighScoreAdapter extends BaseAdapter {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int MAX_LOADED_PAGES = 6;
+    private static final String PENDING = "...";
+
+    private static class RowHolder {
+        final TextView text;
+        final char[] chars = new char[32];     // Enough for two ints, the separator and PENDING.
+
+        RowHolder(TextView text) {
+            this.text = text;
+        }
+    }
+
+    private final ScoreRepository repository;
+    private final Executor loader;
+    private final LayoutInflater inflater;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ScorePages pages = new ScorePages(PAGE_SIZE, MAX_LOADED_PAGES);
+    private int count;
+    private boolean closed;
+
+    /**
+     * Creates the adapter and starts loading the number of scores. The list is empty until that
+     * is known.
+     * @param inflater Inflates the rows.
+     * @param repository The repository to load the scores from.
+     * @param loader Runs the loading, must not be the UI thread.
+     */
+    public HighScoreAdapter(LayoutInflater inflater, final ScoreRepository repository, Executor loader) {
+        this.inflater = inflater;
+        this.repository = repository;
+        this.loader = loader;
+
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                final int scoreCount = repository.getScoreCount();
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(closed)
+                            return;
+                        count = scoreCount;
+                        notifyDataSetChanged();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stops handing loaded pages to the list. Call it when the activity is destroyed.
+     */
+    public void close() {
+        closed = true;
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return The score at a position, or null if its page hasn't been loaded yet.
+     */
+    @Override
+    public Integer getItem(int position) {
+        return pages.isLoaded(position) ? pages.getScore(position) : null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        RowHolder holder;
+        if(convertView == null) {
+            convertView = inflater.inflate(R.layout.high_score_row, parent, false);
+            holder = new RowHolder((TextView) convertView);
+            convertView.setTag(holder);
+        } else {
+            holder = (RowHolder) convertView.getTag();
+        }
+
+        char[] chars = holder.chars;
+        int length = CharFormat.appendInt(chars, 0, position + 1);
+        length = CharFormat.append(chars, length, ". ");
+        if(pages.isLoaded(position)) {
+            length = CharFormat.appendInt(chars, length, pages.getScore(position));
+        } else {
+            length = CharFormat.append(chars, length, PENDING);
+            requestPage(pages.getPageNumber(position));
+        }
+        holder.text.setText(chars, 0, length);
+        return convertView;
+    }
+
+    /**
+     * Loads a page in the background, unless it is already loaded or being loaded. A loaded page
+     * that is too short for a row isn't loaded again, the list has been cut short since the count
+     * was loaded.
+     */
+    private void requestPage(final int pageNumber) {
+        if(pages.getPage(pageNumber) != null || !pages.startLoading(pageNumber))
+            return;
+
+        loader.execute(new Runnable() {
+            @Override
+            public void run() {
+                final ScoreList page = repository.getScores(pageNumber * PAGE_SIZE, PAGE_SIZE);
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if(closed)
+                            return;
+                        pages.put(pageNumber, page);
+                        notifyDataSetChanged();
+                    }
+                });
+            }
+        });
+    }
+}
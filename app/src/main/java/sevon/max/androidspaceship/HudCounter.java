@@ -0,0 +1,96 @@
+package sevon.max.androidspaceship;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+/**
+ * A counter drawn on top of the game, for example the score or the speed. The text is only
+ * formatted when the value changes. Counters that change rarely can also cache the rendered text
+ * in a bitmap layer, so most frames only have to draw a bitmap instead of laying out text.
+ * Should only be used from the drawing thread.
+ */
+public class HudCounter {
+
+    private final CounterText text;
+    private final boolean cacheLayer;
+    private float x;
+    private float y;
+
+    private Bitmap layer;
+    private Canvas layerCanvas;
+    private boolean layerDirty = true;
+
+    /**
+     * @param label Text drawn before the value.
+     * @param decimals The number of decimals to show.
+     * @param cacheLayer True if the text should be rendered to a cached bitmap.
+     */
+    public HudCounter(String label, int decimals, boolean cacheLayer) {
+        text = new CounterText(label, decimals);
+        this.cacheLayer = cacheLayer;
+    }
+
+    /**
+     * Sets the position of the text.
+     * @param x The x-coordinate of the left side of the text, in screen coordinates.
+     * @param y The y-coordinate of the text's baseline, in screen coordinates.
+     */
+    public void setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public void setValue(long value) {
+        if(text.setValue(value))
+            layerDirty = true;
+    }
+
+    public void setValue(float value) {
+        if(text.setValue(value))
+            layerDirty = true;
+    }
+
+    /**
+     * Forces the layer to be rendered again, for example if the paint has changed.
+     */
+    public void invalidate() {
+        layerDirty = true;
+    }
+
+    /**
+     * Draws the counter.
+     * @param canvas The canvas to draw on.
+     * @param paint The paint to draw the text with.
+     */
+    public void draw(Canvas canvas, Paint paint) {
+        if(!cacheLayer) {
+            canvas.drawText(text.getChars(), 0, text.length(), x, y, paint);
+            return;
+        }
+
+        if(layerDirty)
+            renderLayer(paint);
+        canvas.drawBitmap(layer, x, y + paint.ascent(), null);
+    }
+
+    /**
+     * Renders the text into the layer, making the layer larger if the text doesn't fit.
+     */
+    private void renderLayer(Paint paint) {
+        int width = (int) Math.ceil(paint.measureText(text.getChars(), 0, text.length()));
+        int height = (int) Math.ceil(paint.descent() - paint.ascent());
+        if(layer == null || layer.getWidth() < width || layer.getHeight() < height) {
+            if(layer != null)
+                layer.recycle();
+            // Leave room for the text to grow a bit before the layer has to be replaced again.
+            layer = Bitmap.createBitmap(Math.max(width * 2, 1), Math.max(height, 1), Bitmap.Config.ARGB_8888);
+            layerCanvas = new Canvas(layer);
+        }
+
+        layer.eraseColor(Color.TRANSPARENT);
+        layerCanvas.drawText(text.getChars(), 0, text.length(), 0, -paint.ascent(), paint);
+        layerDirty = false;
+    }
+}
@@ -7,29 +7,54 @@ import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.os.Bundle;
+import android.view.View;
+import android.widget.Toast;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
 
 public class MainActivity extends Activity {
 
-    public static final int FRAMETIME = 1000 / 60;  // 60 fps.
+    // SURFACE draws on a dedicated render thread, VIEW draws in World.onDraw on the UI thread.
+    private static final World.RenderMode RENDER_MODE = World.RenderMode.SURFACE;
+    private static final float INPUT_SMOOTHING = 0.5f;      // Weight of a new accelerometer sample.
+    private static final float INPUT_DEAD_ZONE = 0.2f;      // In m/s^2.
+    private static final long CRASH_COOLDOWN_NANOS = 2000000000L;   // Time to show the crash.
+    private static final long SCORE_FLUSH_TIMEOUT_MILLIS = 100;    // The UI thread waits this long at most.
+    // Records frame times, shows them on screen and saves a trace to trace.json when paused.
+    private static final boolean PROFILING = false;
+    private static final int PROFILER_TRACK_CAPACITY = 1 << 16;     // About a minute of spans at 60 fps.
+
     private World world;
+    private SoundManager soundManager;
     private SensorManager sensorManager;
     private Sensor accelerometer;
     private SensorEventListener sensorListener;
-    private float accelerationX = 0;
-    private float accelerationY = 0;
-    private Thread gameThread;                      // Thread running the game loop.
-
-    private final Object pauseObject = new Object();      // Used when pausing the game.
-    private boolean pause = false;                  // Indicates the game is paused.
+    private final InputChannel input = new InputChannel(INPUT_SMOOTHING, INPUT_DEAD_ZONE);
+    private GameScheduler scheduler;                // Runs the game loop on its own thread.
+    private final Profiler profiler = new Profiler(PROFILING, PROFILER_TRACK_CAPACITY);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
         world = (World) findViewById(R.id.world);
+        world.setRenderMode(RENDER_MODE);
+        if(RENDER_MODE == World.RenderMode.SURFACE) {
+            WorldSurfaceView worldSurface = (WorldSurfaceView) findViewById(R.id.worldSurface);
+            worldSurface.setWorld(world);
+            worldSurface.setVisibility(View.VISIBLE);
+            world.setVisibility(View.GONE);
+        }
 
         // create and register the sound manager that handles the playing of all sounds.
-        world.registerListener(new SoundManager(this));
+        soundManager = new SoundManager(this);
+        EventBus.Subscription soundEvents = world.registerListener(soundManager, soundManager.getExecutor());
+        world.getProfilerOverlay().addSubscription("sound events", soundEvents);
+        world.getProfilerOverlay().addLatency("crash sound", soundManager.getLatency(GameEvent.SPACESHIP_CRASH));
 
         // Set up sensor listener.
         sensorManager = (SensorManager) getSystemService(SENSOR_SERVICE);
@@ -40,8 +65,7 @@ public class MainActivity extends Activity {
                 public void onSensorChanged(SensorEvent event) {
                     // This is from Simple Bouncing Ball.
                     if(event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-                        accelerationX = event.values[0];
-                        accelerationY = -event.values[1];
+                        input.publish(event.values[0], -event.values[1], event.timestamp);
                     }
                 }
 
@@ -59,10 +83,8 @@ public class MainActivity extends Activity {
         if(sensorListener != null) {
             sensorManager.registerListener(sensorListener, accelerometer, SensorManager.SENSOR_DELAY_GAME);
         }
-        pause = false;
-        synchronized (pauseObject) {
-            pauseObject.notify();   // resume game thread.
-        }
+        scheduler.resume();
+        soundManager.resume();
         super.onResume();
     }
 
@@ -76,75 +98,81 @@ public class MainActivity extends Activity {
      * thread to not prevent the UI from redrawing itself.
      */
     private void runGame() {
-        gameThread = new Thread(new Runnable() {
+        final GameLoop gameLoop = new GameLoop(new GameLoop.Game() {
             @Override
-            public void run() {
-                //boolean quit = false;
-                //while(!quit) {
-                    world.restart();
-                    while(true) {
-                        // get current time
-                        long ts = System.currentTimeMillis();
-
-                        // Update game. If update returns false it means player has died.
-                        if(world.update(accelerationX, accelerationY) == false) {
-
-                            // Go back to main menu. This needs to be done on UI thread.
-                            /*runOnUiThread(new Runnable() {
-                                @Override
-                                public void run() {
-                                    finish();
-                                }
-                            });*/
-                            break;
-
-                        }
+            public boolean update() {
+                // Update game. If update returns false it means player has died.
+                long sample = input.getLatest();
+                return world.update(InputChannel.getX(sample), InputChannel.getY(sample));
+            }
 
-                        // Redraw
-                        world.postInvalidate();
-
-                        // Wait remaining frame time.
-                        long timePassed = System.currentTimeMillis() - ts;
-                        if(timePassed < FRAMETIME) {
-                            try {
-                                Thread.sleep(FRAMETIME - timePassed);
-                            } catch (InterruptedException e) {
-                                e.printStackTrace();
-                            }
-                        }
+            @Override
+            public void render(float interpolation) {
+                world.publishFrame(interpolation);
+            }
+        }, GameLoop.SYSTEM_CLOCK);
+        Profiler.Track gameTrack = profiler.newTrack("GameLoop");
+        gameLoop.setProfilerTrack(gameTrack);
+        world.setProfiler(profiler, gameTrack);
 
-                        // Check if we should pause the thread
-                        // (for example if app has been minimized).
-                        while(pause) {
-                            synchronized (pauseObject) {
-                                try {
-                                    pauseObject.wait();
-                                } catch (InterruptedException e) {
-                                    e.printStackTrace();
-                                }
-                            }
-                        }
-                    } // while
-                //} // while
+        scheduler = new GameScheduler(gameLoop, GameLoop.SYSTEM_CLOCK, CRASH_COOLDOWN_NANOS,
+                new GameScheduler.Listener() {
+            @Override
+            public void onCooldownFinished() {
                 finish();
             }
         });
-        gameThread.setDaemon(true); // gameThread stops when creator stops.
-        gameThread.start();
+        world.restart();
+        scheduler.start();
     }
 
     @Override
     public void onPause() {
         if(sensorListener != null)
             sensorManager.unregisterListener(sensorListener);
-        pause = true;   // pause game thread.
+        scheduler.pause();
+        soundManager.pause();
+        // The process may be killed after onPause. The scores are saved right after a game ends,
+        // so this hardly ever waits; if the disk is slow the save goes on in the background.
+        ScoreRepository.open(getFilesDir(), HighScoreActivity.SCORE_CAPACITY).flush(SCORE_FLUSH_TIMEOUT_MILLIS);
+        if(profiler.isEnabled())
+            saveTrace();
         super.onPause();
     }
 
+    /**
+     * Saves the profiler's trace in the background. It can be pulled with
+     * adb shell run-as sevon.max.androidspaceship cat files/trace.json
+     */
+    private void saveTrace() {
+        final File file = new File(getFilesDir(), "trace.json");
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Writer out = new BufferedWriter(new FileWriter(file));
+                    try {
+                        profiler.writeTrace(out);
+                    } finally {
+                        out.close();
+                    }
+                } catch (IOException e) {
+                    runOnUiThread(new Runnable() {
+                        @Override
+                        public void run() {
+                            Toast.makeText(getApplicationContext(), R.string.trace_error, Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                }
+            }
+        }, "TraceWriter").start();
+    }
+
     @Override
     protected void onDestroy() {
-        gameThread.interrupt();
-        gameThread = null;
+        scheduler.stop();      // Waits for the game thread, so the world is no longer used.
+        world.shutdown();
+        soundManager.release();
         super.onDestroy();
     }
 }
@@ -0,0 +1,130 @@
+package sevon.max.androidspaceship;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+
+import java.util.ArrayList;
+
+/**
+ * Draws frame time percentiles and jank counts on top of the game, followed by any other
+ * measurements added with addLatency() and addSubscription(). The numbers are only recomputed every few frames, and the
+ * text is cached like the other counters, so the overlay hardly changes the frame times it shows.
+ * Should only be used from the drawing thread, measurements should be added before drawing starts.
+ */
+public class ProfilerOverlay {
+
+    private static final int UPDATE_INTERVAL = 30;      // Frames between updates of the numbers.
+    private static final float NANOS_PER_MILLI = 1000000f;
+
+    private final FrameTimes frameTimes;
+    private final HudCounter p50 = new HudCounter("p50 ms: ", 1, true);
+    private final HudCounter p95 = new HudCounter("p95 ms: ", 1, true);
+    private final HudCounter p99 = new HudCounter("p99 ms: ", 1, true);
+    private final HudCounter jank = new HudCounter("jank: ", 0, true);
+    private final ArrayList<Line> lines = new ArrayList<>();     // Below the frame times.
+    private final Paint paint = new Paint();
+    private float x;
+    private float y;
+    private int framesUntilUpdate;
+
+    /**
+     * A line showing another measurement.
+     */
+    private abstract static class Line {
+        final HudCounter counter;
+
+        Line(String label, int decimals) {
+            counter = new HudCounter(label, decimals, true);
+        }
+
+        abstract void update();
+    }
+
+    /**
+     * @param frameTimes The frame times to show.
+     */
+    public ProfilerOverlay(FrameTimes frameTimes) {
+        this.frameTimes = frameTimes;
+        paint.setColor(Color.YELLOW);
+        paint.setTextSize(24);
+    }
+
+    /**
+     * Sets the position of the overlay.
+     * @param x The x-coordinate of the left side of the text, in screen coordinates.
+     * @param y The y-coordinate of the first line's baseline, in screen coordinates.
+     */
+    public void setPosition(float x, float y) {
+        this.x = x;
+        this.y = y;
+        float lineHeight = paint.getTextSize() * 1.2f;
+        p50.setPosition(x, y);
+        p95.setPosition(x, y + lineHeight);
+        p99.setPosition(x, y + 2 * lineHeight);
+        jank.setPosition(x, y + 3 * lineHeight);
+        for(int i = 0; i < lines.size(); i++)
+            lines.get(i).counter.setPosition(x, y + (4 + i) * lineHeight);
+    }
+
+    /**
+     * Adds a line showing the 99th percentile of a latency.
+     * @param label What the latency is of.
+     * @param latency The latency.
+     */
+    public void addLatency(String label, final LatencyStats latency) {
+        addLine(new Line(label + " p99 ms: ", 1) {
+            @Override
+            void update() {
+                counter.setValue(latency.getPercentileNanos(0.99) / NANOS_PER_MILLI);
+            }
+        });
+    }
+
+    /**
+     * Adds lines showing how an event listener keeps up: the 99th percentile of the time from an
+     * event being published to the listener having handled it, the events it missed because it
+     * fell behind, and the events it threw an exception for.
+     * @param label The name of the listener.
+     * @param subscription The listener's subscription.
+     */
+    public void addSubscription(String label, final EventBus.Subscription subscription) {
+        addLatency(label, subscription.getLatency());
+        addLine(new Line(label + " dropped: ", 0) {
+            @Override
+            void update() {
+                counter.setValue(subscription.getDropped());
+            }
+        });
+        addLine(new Line(label + " failed: ", 0) {
+            @Override
+            void update() {
+                counter.setValue(subscription.getFailed());
+            }
+        });
+    }
+
+    private void addLine(Line line) {
+        lines.add(line);
+        setPosition(x, y);
+    }
+
+    public void draw(Canvas canvas) {
+        if(--framesUntilUpdate <= 0) {
+            framesUntilUpdate = UPDATE_INTERVAL;
+            p50.setValue(frameTimes.getPercentileNanos(0.50) / NANOS_PER_MILLI);
+            p95.setValue(frameTimes.getPercentileNanos(0.95) / NANOS_PER_MILLI);
+            p99.setValue(frameTimes.getPercentileNanos(0.99) / NANOS_PER_MILLI);
+            jank.setValue(frameTimes.getJankCount());
+            for(int i = 0; i < lines.size(); i++)
+                lines.get(i).update();
+        }
+
+        p50.draw(canvas, paint);
+        p95.draw(canvas, paint);
+        p99.draw(canvas, paint);
+        jank.draw(canvas, paint);
+        for(int i = 0; i < lines.size(); i++)
+            lines.get(i).counter.draw(canvas, paint);
+    }
+}
@@ -1,31 +1,141 @@
 package sevon.max.androidspaceship;
 
+import android.annotation.TargetApi;
 import android.content.Context;
-import android.media.MediaPlayer;
+import android.media.AudioAttributes;
+import android.media.AudioManager;
+import android.media.SoundPool;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Message;
+import android.os.Process;
+
+import java.util.concurrent.Executor;
 
 /**
- * Created by Max on 2016-01-21.
+ * Plays the game's sounds. Short effects are decoded into a SoundPool up front, so they start
+ * without delay and can overlap.
+ * Events should be delivered on the sound thread, see getExecutor(), so the game thread never
+ * waits for audio. The time from an event being published to its sound being started is recorded
+ * per event, see getLatency().
  */
-public class SoundManager implements GameEventListener {
+public class SoundManager implements GameEventListener, Handler.Callback {
+
+    private static final int MAX_STREAMS = 4;
+    private static final GameEvent[] EVENTS = GameEvent.values();
+    private static final int MSG_PAUSE = 0;
+    private static final int MSG_RESUME = 1;
 
-    private MediaPlayer mediaPlayer;
+    private final HandlerThread thread;
+    private final Handler handler;
+    private final SoundPool soundPool;
+    private final int crashSound;
+    private final LatencyStats[] latencies = new LatencyStats[EVENTS.length];
+    private final Executor executor = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            handler.post(task);
+        }
+    };
 
+    /**
+     * Creates the sound manager and starts loading its sounds.
+     * @param context The context to load the sounds with.
+     */
     public SoundManager(Context context) {
-        mediaPlayer = MediaPlayer.create(context, R.raw.nbs_dark_explosion);
+        for(int i = 0; i < latencies.length; i++)
+            latencies[i] = new LatencyStats();
+
+        soundPool = createSoundPool();
+        crashSound = soundPool.load(context.getApplicationContext(), R.raw.nbs_dark_explosion, 1);
+
+        thread = new HandlerThread("Sound", Process.THREAD_PRIORITY_AUDIO);
+        thread.start();
+        handler = new Handler(thread.getLooper(), this);
+    }
+
+    /**
+     * @return Runs tasks on the sound thread. Subscribe the sound manager to the game's events with
+     * it.
+     */
+    public Executor getExecutor() {
+        return executor;
     }
 
+    /**
+     * Plays the sound of an event. Called on the sound thread.
+     */
     @Override
-    public void notify(World.Event event) {
+    public void notify(GameEvent event, GameEventData data) {
         switch(event) {
-            case GAME_STARTED:
-                // start music here.
-                break;
             case SPACESHIP_CRASH:
-                // stop music here.
-                // play crash sound.
-                mediaPlayer.seekTo(0);
-                mediaPlayer.start();
+                soundPool.play(crashSound, 1, 1, 1, 0, 1);
                 break;
+            default:
+                return;
         }
+
+        latencies[event.ordinal()].record(System.nanoTime() - data.getNanoTime());
+    }
+
+    /**
+     * Pauses the sounds that are playing, for when the activity is paused.
+     */
+    public void pause() {
+        handler.sendEmptyMessage(MSG_PAUSE);
+    }
+
+    public void resume() {
+        handler.sendEmptyMessage(MSG_RESUME);
+    }
+
+    /**
+     * Stops the sound thread and releases all sounds. The sound manager can't be used after this.
+     */
+    public void release() {
+        handler.removeCallbacksAndMessages(null);
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                soundPool.release();
+                thread.quit();
+            }
+        });
+    }
+
+    /**
+     * @return The time from events being published to their sounds being started.
+     */
+    public LatencyStats getLatency(GameEvent event) {
+        return latencies[event.ordinal()];
+    }
+
+    /**
+     * Handles a pause or resume message on the sound thread.
+     */
+    @Override
+    public boolean handleMessage(Message message) {
+        if(message.what == MSG_PAUSE)
+            soundPool.autoPause();
+        else
+            soundPool.autoResume();
+        return true;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static SoundPool createSoundPool() {
+        if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+            return createGameSoundPool();
+        return new SoundPool(MAX_STREAMS, AudioManager.STREAM_MUSIC, 0);
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static SoundPool createGameSoundPool() {
+        AudioAttributes attributes = new AudioAttributes.Builder()
+                .setUsage(AudioAttributes.USAGE_GAME)
+                .setContentType(AudioAttributes.CONTENT_TYPE_SONIFICATION)
+                .build();
+        return new SoundPool.Builder().setMaxStreams(MAX_STREAMS).setAudioAttributes(attributes).build();
     }
 }
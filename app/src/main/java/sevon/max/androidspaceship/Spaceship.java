@@ -8,25 +8,22 @@ import android.graphics.drawable.Drawable;
 
 /**
  * Created by Max on 2016-01-18.
- * Class handling the spaceship.
+ * Draws the spaceship. Its position, movement and collisions are handled by Ship in the
+ * simulation; this class only puts the bitmap on screen.
  */
 public class Spaceship extends Drawable {
 
-    private Vector2 worldPosition;
-    private Vector2 direction = new Vector2(0, -1);
-    private float speed = 1;
+    private final Ship ship;
     private Bitmap bitmap;
-    private int score;
+    private final Matrix drawMatrix = new Matrix();
 
-    public Spaceship(Bitmap bitmap, Vector2 position) {
-        this.worldPosition = position;
+    /**
+     * @param bitmap The spaceship's bitmap.
+     * @param ship The simulated spaceship to draw.
+     */
+    public Spaceship(Bitmap bitmap, Ship ship) {
         this.bitmap = bitmap;
-    }
-
-    public void move(Vector2 moveDirection) {
-        direction = moveDirection;
-        Vector2 moveDistance = Vector2.multiply(direction, speed);
-        worldPosition = Vector2.add(worldPosition, moveDistance);
+        this.ship = ship;
     }
 
     /**
@@ -35,79 +32,28 @@ public class Spaceship extends Drawable {
      */
     @Override
     public void draw(Canvas canvas) {
-        Matrix m = new Matrix();
-        m.setScale(World.SCALE_FACTOR_X, World.SCALE_FACTOR_Y);
-        m.postRotate(getRotation(), bitmap.getWidth() * World.SCALE_FACTOR_X / 2, bitmap.getHeight()  * World.SCALE_FACTOR_Y / 2);
-        m.postTranslate(World.SCREEN_WIDTH / 2 - bitmap.getWidth() * World.SCALE_FACTOR_X / 2, World.SCREEN_HEIGHT / 2 - bitmap.getHeight() * World.SCALE_FACTOR_Y / 2);
-        canvas.drawBitmap(bitmap, m, null);
-    }
-
-    public Vector2 getWorldPosition() { return worldPosition; }
-
-    /**
-     * @return Returns the rotation of the spaceship. Use with matrices.
-     */
-    private float getRotation() {
-        // this is the spaceship's standard direction.
-        Vector2 zeroRotationVector = new Vector2(0, -1);
-
-        // calculate the angle between the zero rotation vector and the current bearing.
-        float rotation = (float) Math.toDegrees(Vector2.getAngle(direction, zeroRotationVector));
-
-        // if the bearing is towards the left, rotation should be negative (counter clockwise).
-        if(direction.getX() < 0)
-            rotation = -rotation;
-
-        return rotation;
+        draw(canvas, ship.getRotation());
     }
 
     /**
-     * Checks if the spaceship is currently colliding with something in the game world.
-     * @param world The game world to check for collisions in.
-     * @return True if a collision was found.
+     * Draws the spaceship to a canvas with the specified rotation. Used by the render thread, which
+     * draws the rotation the spaceship had when the frame was captured.
+     * @param canvas The canvas to draw on.
+     * @param rotation The rotation of the spaceship, in degrees.
      */
-    public boolean checkCollision(World world) {
-
-        // Array of the spaceship's 4 collision points; (10,2) (11,2) (3,22) (18,22)
-        float[] collisionPoints = { 10, 2, 11, 2, 3, 22, 18, 22};
-
-        // Matrix to translate and rotate the points into world coordinates.
-        Matrix m = new Matrix();
-        m.setTranslate(-bitmap.getWidth() / 2, -bitmap.getHeight() / 2);   // the spaceship's world coordinate is in the middle of the ship.
-        m.postRotate(getRotation());
-        m.postTranslate(worldPosition.getX(), worldPosition.getY());
-
-        // Apply matrix to collision points.
-        m.mapPoints(collisionPoints);
-
-        // Check for collision at all points. If one is found, return true.
-        for(int i = 0; i < collisionPoints.length; i += 2) {
-            if(world.checkCollision(new Vector2(collisionPoints[i], collisionPoints[i+1])))
-                return true;
-        }
-
-        return false;
+    public void draw(Canvas canvas, float rotation) {
+        Matrix m = drawMatrix;     // Only used by the drawing thread.
+        m.setScale(World.SCALE_FACTOR_X, World.SCALE_FACTOR_Y);
+        m.postRotate(rotation, bitmap.getWidth() * World.SCALE_FACTOR_X / 2, bitmap.getHeight()  * World.SCALE_FACTOR_Y / 2);
+        m.postTranslate(World.SCREEN_WIDTH / 2 - bitmap.getWidth() * World.SCALE_FACTOR_X / 2, World.SCREEN_HEIGHT / 2 - bitmap.getHeight() * World.SCALE_FACTOR_Y / 2);
+        canvas.drawBitmap(bitmap, m, null);
     }
 
-    public float getSpeed() { return speed; }
-    public void setSpeed(float speed) { this.speed = speed; }
-
-    /**
-     * Updates the players score.
-     * The score is based on the y-distance the player has travelled from the starting position.
-     * @param startingPosition
-     */
-    public void updateScore(Vector2 startingPosition) {
-        score = (int) -(worldPosition.getY() - startingPosition.getY());
-    }
+    public Ship getShip() { return ship; }
 
 
     // The following must be overridden by Drawable, but are not used for anything.
     @Override public void setAlpha(int alpha) { }
     @Override public void setColorFilter(ColorFilter colorFilter) { }
     @Override public int getOpacity() { return 0; }
-
-    public int getScore() {
-        return score;
-    }
 }
@@ -7,26 +7,19 @@ import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
-import android.graphics.PorterDuffColorFilter;
 import android.graphics.Rect;
-import android.os.AsyncTask;
+import android.graphics.RectF;
 import android.util.AttributeSet;
 import android.view.View;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Random;
+import java.util.concurrent.Executor;
 
 /**
  * Created by Max on 2016-01-18.
  * Class handling the game world.
- * Loading in new cells of the world is done as the player moves, this is to conserve RAM while
- * also allowing the world to be infinitely large.
+ * The game itself is run by a Simulation; this view loads the cells' images, hands frames over to
+ * the drawing thread and draws them.
  */
 public class World extends View {
 
@@ -37,27 +30,60 @@ public class World extends View {
     public static float SCALE_FACTOR_X;
     public static float SCALE_FACTOR_Y;
 
-    private ArrayList<GameEventListener> eventListeners = new ArrayList<>(1);
-
     Bitmap spaceShipBitmap;
+    private Simulation simulation;
+    private final ReplayRecorder replayRecorder = new ReplayRecorder();    // Records the current game.
+    private ScoreRepository scoreRepository;
     private Spaceship spaceship;
-    private static final Vector2 STARTING_POSITION = new Vector2(WorldCell.WIDTH / 2, WorldCell.HEIGHT / 2);
+    private static final int BACKGROUND_COLOR = Color.BLACK;    // Cell images are flattened onto it.
     private Paint clearPaint = new Paint();       // Paint used when clearing the screen.
     private Paint textPaint = new Paint();       // Paint used to draw text.
 
     private static TypedArray BACKGROUND_DRAWABLES;
-    private LinkedList<WorldCell> loadedCells = new LinkedList<>();
-    private int currentCellNumber;  // used to determine whether a new cell should be loaded.
-    private long timeAtStart;       // used for rng seed
-    private Random rng = new Random();
-
-    private int scoreTextPositionX = 10;
-    private int scoreTextPositionY = 10;
-    private int speedTextPositionX = 10;
-    private int speedTextPositionY = 10;
-
-    public void registerListener(GameEventListener listener) {
-        eventListeners.add(listener);
+    // The world is a grid of cells, so the spaceship can leave its column. Cells are loaded one
+    // around it and two ahead, and a few that were left behind are kept in case it turns back.
+    private static final int CHUNK_LOAD_RADIUS = 1;
+    private static final int MAX_LOADED_CELLS = 9;
+    private static final int CELL_BYTES = Cell.WIDTH * Cell.HEIGHT * 2;     // An RGB_565 cell image.
+    private static final int CELL_LOADER_THREADS = 2;  // Generated cells load in parallel.
+    private CellStreamer cellStreamer = new CellStreamer(Cell.HEIGHT, 2 * MAX_LOADED_CELLS, CELL_LOADER_THREADS);
+    private CellGenerator cellGenerator = new CellGenerator(MAX_LOADED_CELLS);
+    private CellImageCache cellImageCache;  // Decoded cell images, shared between cells.
+
+    /**
+     * How the world is drawn. VIEW draws in onDraw on the UI thread, SURFACE lets a
+     * WorldSurfaceView draw on its own render thread.
+     */
+    public enum RenderMode {
+        VIEW, SURFACE
+    }
+
+    private RenderMode renderMode = RenderMode.VIEW;
+    private FrameExchange<FrameSnapshot> frames;
+    private ArrayList<WorldCell> pendingReleases = new ArrayList<>();  // Cells that might still be drawn.
+
+    // Scratch objects, so drawing a frame doesn't allocate anything.
+    private final Viewport viewport = new Viewport();          // Used by the drawing thread.
+    private final Rect cellSourceRect = new Rect();            // Used by the drawing thread.
+    private final RectF cellDrawRect = new RectF();            // Used by the drawing thread.
+
+    // The score changes every frame, so it isn't worth caching. The speed rarely changes.
+    private final HudCounter scoreCounter = new HudCounter("Score: ", 0, false);
+    private final HudCounter speedCounter = new HudCounter("Speed: ", 1, true);
+
+    private Profiler profiler;
+    private Profiler.Track drawTrack = Profiler.NO_TRACK;     // Used by the drawing thread.
+    private final FrameTimes frameTimes = new FrameTimes(GameLoop.STEP_NANOS, 600);
+    private final ProfilerOverlay profilerOverlay = new ProfilerOverlay(frameTimes);
+
+    /**
+     * Registers a listener for the game's events.
+     * @param listener The listener.
+     * @param executor The executor to notify the listener on, so it never runs on the game thread.
+     * @return The subscription, for statistics on how the listener keeps up.
+     */
+    public EventBus.Subscription registerListener(GameEventListener listener, Executor executor) {
+        return simulation.registerListener(listener, executor);
     }
 
     public World(Context context) {
@@ -82,228 +108,255 @@ public class World extends View {
         // Load array of background images.
         BACKGROUND_DRAWABLES = getResources().obtainTypedArray(R.array.background_drawables);
 
+        // Read the bounds and collision masks of all background images now, so creating or
+        // loading a cell never has to.
+        cellImageCache = new CellImageCache(getResources(), Cell.WIDTH, Cell.HEIGHT, MAX_LOADED_CELLS, BACKGROUND_COLOR);
+        for(int i = 0; i < BACKGROUND_DRAWABLES.length(); i++) {
+            cellImageCache.getBounds(BACKGROUND_DRAWABLES.getResourceId(i, 0));
+            cellImageCache.getCollisionMask(BACKGROUND_DRAWABLES.getResourceId(i, 0));
+        }
+
         // Load spaceship bitmap.
         BitmapFactory.Options options = new BitmapFactory.Options();
         options.inPreferredConfig = Bitmap.Config.RGB_565;
         spaceShipBitmap = BitmapFactory.decodeResource(getResources(), R.drawable.ship, options);
 
-        clearPaint.setColor(Color.BLACK);
+        clearPaint.setColor(BACKGROUND_COLOR);
         textPaint.setColor(Color.LTGRAY);
         textPaint.setTextSize(40);
-        timeAtStart = System.currentTimeMillis();
+        scoreCounter.setPosition(10, 10);
+        speedCounter.setPosition(10, 10);
+
+        // Cells after the start cell get one of the background drawables or a generated layout,
+        // which never repeats and gets harder as the spaceship speeds up. Cells removed from the
+        // grid might still be drawn, so their release is delayed.
+        ChunkGrid cellGrid = new ChunkGrid(new ChunkGrid.Factory() {
+            @Override
+            public Cell createCell(int column, int cellNumber, int layout, int color, int difficulty) {
+                return new WorldCell(column, cellNumber, layout, color, difficulty);
+            }
+        }, cellStreamer, BACKGROUND_DRAWABLES.length(), System.currentTimeMillis(),
+                CHUNK_LOAD_RADIUS, CELL_BYTES, MAX_LOADED_CELLS * (long) CELL_BYTES) {
+            @Override
+            protected void onCellRemoved(Cell cell) {
+                releaseWhenNotDrawn((WorldCell) cell);
+            }
+        };
+        int maxDrawnCells = cellGrid.getMaxSize();
+        frames = new FrameExchange<>(new FrameSnapshot(maxDrawnCells), new FrameSnapshot(maxDrawnCells), new FrameSnapshot(maxDrawnCells));
+        profilerOverlay.addLatency("cell load", cellGrid.getLoadTime());
+        simulation = new Simulation(cellGrid, spaceShipBitmap.getWidth(), spaceShipBitmap.getHeight());
+        simulation.setRecorder(replayRecorder);
+        scoreRepository = ScoreRepository.open(getContext().getFilesDir(), HighScoreActivity.SCORE_CAPACITY);
+    }
+
+    /**
+     * Starts measuring the game and drawing. While the profiler is enabled frame times are shown
+     * on top of the game.
+     * @param profiler The profiler.
+     * @param gameTrack The track of the game thread.
+     */
+    public void setProfiler(Profiler profiler, Profiler.Track gameTrack) {
+        this.profiler = profiler;
+        simulation.setProfilerTrack(gameTrack);
+        drawTrack = profiler.newTrack("Draw");
     }
 
     public void restart() {
-        // Place spaceship at the center of the first cell.
-        spaceship = new Spaceship(spaceShipBitmap, STARTING_POSITION);
+        simulation.restart();
+        spaceship = new Spaceship(spaceShipBitmap, simulation.getShip());
+    }
 
-        loadedCells = new LinkedList<>();
-        loadedCells.addLast(createWorldCell(new Vector2(0, 0), 0));
-        loadedCells.addLast(createWorldCell(new Vector2(0, -1024), 1));
+    /**
+     * Stops loading of world cells. Should be called when the world is no longer used.
+     */
+    public void shutdown() {
+        cellStreamer.shutdown();
+        cellImageCache.clear();
+    }
 
-        // Load first 2 cells
-        loadedCells.get(0).load();
-        loadedCells.get(1).load();
-        currentCellNumber = 0;
+    /**
+     * @return The overlay drawn while the profiler is enabled, for adding other measurements.
+     */
+    public ProfilerOverlay getProfilerOverlay() {
+        return profilerOverlay;
+    }
 
+    /**
+     * @return The generator of the world's cells, for how long generating them takes.
+     */
+    public CellGenerator getCellGenerator() {
+        return cellGenerator;
     }
 
     /**
      * Updates the game world and moves the spaceship according to the provided values.
      * @param accelerationX The x-component of the spaceship's move direction.
      * @param accelerationY The y-component of the spaceship's move direction.
-     * @return Returns true if the game should continue. False if the game should restart (this
-     * happens when the spaceship has crashed).
+     * @return Returns true if the game should continue. False if the game is over (this happens
+     * when the spaceship has crashed).
      */
     public boolean update(float accelerationX, float accelerationY) {
-        Vector2 moveDirection = Vector2.normalize(new Vector2(accelerationX, accelerationY));
-        spaceship.move(moveDirection);
-        spaceship.updateScore(STARTING_POSITION);
-
-        // Check if spaceship has moved on to another cell.
-        if(currentCellNumber != getCurrentCell().getCellNumber()) {
-            // It has. We should unload one cell and load a new one.
-            // In order to determine which we need to check if the new current cell is ahead or
-            // after the previous one.
-            int newCellNumber = getCurrentCell().getCellNumber();
-            if(currentCellNumber < newCellNumber) {
-                // We have moved one cell forward. Unload cell two steps back if there is one.
-                if(newCellNumber >= 2) {
-                    loadedCells.get(0).unload();
-                    loadedCells.remove(0);
-                }
-                // Start loading new cell.
-                WorldCell nextCell = createWorldCell(new Vector2(0, loadedCells.getLast().getWorldPosition().getY() - WorldCell.HEIGHT), newCellNumber + 1);
-                loadedCells.addLast(nextCell);
-                nextCell.loadAsync();
-            } else {
-                // Start loading new cell.
-                WorldCell nextCell = createWorldCell(new Vector2(0, loadedCells.getFirst().getWorldPosition().getY() + WorldCell.HEIGHT), newCellNumber - 1);
-                loadedCells.addFirst(nextCell);
-                nextCell.loadAsync();
-            }
-            // Update index of current cell.
-            currentCellNumber = newCellNumber;
+        if(simulation.update(accelerationX, accelerationY))
+            return true;
 
-            // If the cell is a multiple of 3 we increase the spaceships speed by a little bit.
-            if(currentCellNumber % 3 == 0)
-                spaceship.setSpeed(spaceship.getSpeed() + 0.5f);
+        // Saved in the background, the game thread never waits for the disk.
+        ScoreEntry entry = new ScoreEntry(simulation.getShip().getScore(), simulation.getCellGrid().getSeed(),
+                System.currentTimeMillis(), simulation.getMaxSpeed(), simulation.getFurthestCellNumber());
+        scoreRepository.submit(entry, replayRecorder.toByteArray());
+        return false;
+    }
 
-            // Finally, if the cell's bitmap hasn't been loaded yet we should wait until it has.
-            while(!getCurrentCell().isBitmapLoaded()) { }
-        }
+    /**
+     * Releases a cell that has been removed from the world once no frame that is being drawn can
+     * contain it any longer. Frames published before the cell was removed might still contain it.
+     * @param cell The removed cell.
+     */
+    private void releaseWhenNotDrawn(WorldCell cell) {
+        cell.releaseSequence = frames.getPublishedSequence();
+        pendingReleases.add(cell);
+    }
 
-        // Check if spaceship has crashed.
-        if(spaceship.checkCollision(this)) {
-            // It has... Game over!
-            spaceship.setSpeed(0);
-            notifyListeners(Event.SPACESHIP_CRASH);
-            // wait a bit for listeners to do their thing.
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+    /**
+     * Releases the removed cells that are no longer part of the frame being drawn.
+     */
+    private void releaseUndrawnCells() {
+        long acquiredSequence = frames.getAcquiredSequence();
+        for(int i = pendingReleases.size() - 1; i >= 0; i--) {
+            WorldCell cell = pendingReleases.get(i);
+            if(cell.releaseSequence < acquiredSequence) {
+                cellStreamer.release(cell);
+                pendingReleases.remove(i);
             }
+        }
+    }
 
-            updateHighScores();
-            return false;
+    /**
+     * Captures the current state of the world into a frame and hands it over to be drawn. Called
+     * by the game thread after updating.
+     * @param interpolation How far between the previous and the current update the frame should
+     * be drawn. The game is updated in fixed steps, drawing in between them makes movement smooth.
+     */
+    public void publishFrame(float interpolation) {
+        FrameSnapshot frame = frames.getBack();
+        frame.spaceship = spaceship;
+        if(spaceship != null) {
+            Ship ship = spaceship.getShip();
+            frame.previousShipX = ship.getPreviousWorldPosition().getX();
+            frame.previousShipY = ship.getPreviousWorldPosition().getY();
+            frame.shipX = ship.getWorldPosition().getX();
+            frame.shipY = ship.getWorldPosition().getY();
+            frame.shipRotation = ship.getRotation();
+            frame.score = ship.getScore();
+            frame.speed = ship.getSpeed();
         }
+        frame.interpolation = interpolation;
+        CellGrid cellGrid = simulation.getCellGrid();
+        frame.cellCount = Math.min(cellGrid.size(), frame.cells.length);
+        for(int i = 0; i < frame.cellCount; i++)
+            frame.cells[i] = (WorldCell) cellGrid.get(i);
+        for(int i = frame.cellCount; i < frame.cells.length; i++)
+            frame.cells[i] = null;   // Don't hold on to old cells.
+
+        frames.publish();
+        releaseUndrawnCells();
+
+        if(renderMode == RenderMode.VIEW)
+            postInvalidate();
+    }
 
-        return true;
+    /**
+     * Waits until a frame has been published that hasn't been drawn yet.
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if there is a new frame to draw.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public boolean awaitFrame(long timeoutMillis) throws InterruptedException {
+        return frames.awaitFrame(timeoutMillis);
     }
 
-    private void updateHighScores() {
-        ScoreList highScores = ScoreList.load(getContext());
-        highScores.add(spaceship.getScore());
-        try {
-            highScores.save(getContext());
-        } catch (IOException e) {
-            System.out.println("Unable to save high scores...");
-            e.printStackTrace();
-        }
+    public void setRenderMode(RenderMode renderMode) {
+        this.renderMode = renderMode;
     }
 
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
+        drawFrame(canvas);
+    }
+
+    /**
+     * Draws the latest published frame. Called on the UI thread in VIEW mode, and on the render
+     * thread in SURFACE mode.
+     * @param canvas The canvas to draw on.
+     */
+    public void drawFrame(Canvas canvas) {
+        long drawStart = drawTrack.begin();
+        FrameSnapshot frame = frames.acquire();
 
         // Clear screen.
         canvas.drawRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT, clearPaint);
 
-        if(spaceship != null) {
+        if(frame.spaceship != null) {
             // Get camera view.
-            Rect viewRect = buildViewRect();
+            Viewport viewport = updateViewport(frame);
 
             // Draw world as seen from camera.
-            for(WorldCell c : loadedCells)
-                c.draw(canvas, viewRect);
+            for(int i = 0; i < frame.cellCount; i++)
+                frame.cells[i].draw(canvas, viewport);
 
             // Draw spaceship.
-            if(spaceship != null)
-                spaceship.draw(canvas);
+            frame.spaceship.draw(canvas, frame.shipRotation);
 
             // Draw score text.
-            canvas.drawText("Score: " + spaceship.getScore(), scoreTextPositionX, scoreTextPositionY, textPaint);
+            scoreCounter.setValue(frame.score);
+            scoreCounter.draw(canvas, textPaint);
 
             // Draw speed text.
-            canvas.drawText("Speed: " + spaceship.getSpeed(), speedTextPositionX, speedTextPositionY, textPaint);
+            speedCounter.setValue(frame.speed);
+            speedCounter.draw(canvas, textPaint);
         }
-    }
 
-    /**
-     * @return Returns a view rectangle, centered over the spaceship. The coordinates of this
-     * rectangle represents the part of the world that should be drawn to screen.
-     */
-    private Rect buildViewRect() {
-
-        int left = (int) spaceship.getWorldPosition().getX() - GAME_WIDTH / 2;
-        int right = (int) spaceship.getWorldPosition().getX() + GAME_WIDTH / 2;
-        int top = (int) spaceship.getWorldPosition().getY() - GAME_HEIGHT / 2;
-        int bottom = (int) spaceship.getWorldPosition().getY() + GAME_HEIGHT / 2;
-
-        return new Rect(left, top, right, bottom);
-    }
-
-    /**
-     * Checks for a collision at the specified world coordinate.
-     * @param position The position to check for collisions at. In world coordinates.
-     * @return True if a collision was found.
-     */
-    public boolean checkCollision(Vector2 position) {
-        // First translate to cell coordinates.
-        WorldCell currentCell = getCurrentCell();
-        if(currentCell != null) {
-            int x = (int) (position.getX() - currentCell.getWorldPosition().getX());
-            int y = (int) (position.getY() - currentCell.getWorldPosition().getY());
-
-            // A little cheat to prevent checking outside currentCell...
-            // Some collisions might be missed on cell edges but they should be caught shortly after
-            // when currentCell has been updated.
-            if(x >= 0 && y >= 0 && x < WorldCell.WIDTH && y < WorldCell.HEIGHT)
-                return currentCell.checkCollision(x, y);
+        if(profiler != null && profiler.isEnabled()) {
+            frameTimes.frameStarted(drawStart);
+            profilerOverlay.draw(canvas);
         }
-
-        return false;
+        drawTrack.end(Profiler.Section.DRAW, drawStart);
     }
 
     /**
-     * Creates a world cell. If cell number is 0 the start cell is generated, otherwise a random
-     * world cell is created.
-     * @param worldPosition The world worldPosition of the cell.
-     * @param cellNumber The cell number of the cell.
-     * @return The created world cell. NOTE: The bitmap is not loaded in this method but must be
-     * loaded afterwards.
+     * @return Returns the viewport, centered over the spaceship. It represents the part of the
+     * world that should be drawn to screen. The spaceship's position is interpolated between its
+     * previous and current position.
      */
-    private WorldCell createWorldCell(Vector2 worldPosition, int cellNumber) {
-        rng.setSeed(timeAtStart + cellNumber);
-        int color = ColorGenerator.getRandomColor(rng.nextInt());
-        int bitmapId = R.drawable.start;
-
-        if(cellNumber != 0) {
-            //bitmapId = LEVEL_LAYOUT[rng.nextInt(LEVEL_LAYOUT.length - 1) + 1];    // +1 to skip the "start" cell.
-            bitmapId = BACKGROUND_DRAWABLES.getResourceId(rng.nextInt(BACKGROUND_DRAWABLES.length() - 1) + 1, 0);
-        }
-
-        return new WorldCell(worldPosition, bitmapId, cellNumber, color);
+    private Viewport updateViewport(FrameSnapshot frame) {
+        float x = frame.previousShipX + (frame.shipX - frame.previousShipX) * frame.interpolation;
+        float y = frame.previousShipY + (frame.shipY - frame.previousShipY) * frame.interpolation;
+        viewport.set(x, y, GAME_WIDTH, GAME_HEIGHT, SCALE_FACTOR_X, SCALE_FACTOR_Y);
+        return viewport;
     }
 
-    /**
-     * @return Returns the cell the spaceship is currently on.
-     */
-    private WorldCell getCurrentCell() {
-        Vector2 spaceshipPosition = spaceship.getWorldPosition();
-        for(WorldCell c : loadedCells) {
-            if(spaceshipPosition.getY() >= c.getWorldPosition().getY() && spaceshipPosition.getY() < (c.getWorldPosition().getY() + WorldCell.HEIGHT))
-                return c;
-        }
-
-        return null;
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        setScreenSize(w, h);
     }
 
     /**
-     * Notifies any registered listeners that an event has occurred.
-     * @param event The occurred event.
+     * Sets the size of the screen area the world is drawn to.
+     * @param w The width, in pixels.
+     * @param h The height, in pixels.
      */
-    private void notifyListeners(Event event) {
-        for(int i = 0; i < eventListeners.size(); i++) {
-            eventListeners.get(i).notify(event);
-        }
-    }
-
-
-    @Override
-    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
-        super.onSizeChanged(w, h, oldw, oldh);
+    public void setScreenSize(int w, int h) {
         SCREEN_WIDTH = w;
         SCREEN_HEIGHT = h;
         SCALE_FACTOR_X = (float) SCREEN_WIDTH / GAME_WIDTH;
         SCALE_FACTOR_Y = (float) SCREEN_HEIGHT / GAME_HEIGHT;
 
         // Pre-calculation of text position values so we don't have to do this each draw call.
-        scoreTextPositionX = (int)(SCREEN_WIDTH * 0.10);
-        scoreTextPositionY = (int)(SCREEN_HEIGHT * 0.10);
-        speedTextPositionX = (int)(SCREEN_WIDTH * 0.70);
-        speedTextPositionY = scoreTextPositionY;
+        scoreCounter.setPosition((int)(SCREEN_WIDTH * 0.10), (int)(SCREEN_HEIGHT * 0.10));
+        speedCounter.setPosition((int)(SCREEN_WIDTH * 0.70), (int)(SCREEN_HEIGHT * 0.10));
+        profilerOverlay.setPosition((int)(SCREEN_WIDTH * 0.10), (int)(SCREEN_HEIGHT * 0.15));
     }
 
     /**
@@ -313,187 +366,135 @@ public class World extends View {
     @Override public boolean isInEditMode() { return true; }
 
     /**
-     * Class representing a piece of the world, loaded into memory.
+     * A cell of the world that is drawn from a bitmap resource, or from its generated layout.
      */
-    private class WorldCell {
-
-        private static final int WIDTH = 512;
-        private static final int HEIGHT = 1024;
+    private class WorldCell extends Cell {
 
-        private int cellNumber;
         private int bitmapId;
-        private Bitmap bitmap;
-        private Vector2 worldPosition;
+        private CellImageCache.CellImage image;     // Tinted for this cell, from a shared drawable.
+        private final int difficulty;
+        private GeneratedLayout generatedLayout;    // Instead of a bitmap resource, for generated cells.
         private Rect bitmapBoundingRect;
-        private Paint paint = new Paint();
+        private Paint placeholderPaint = new Paint();     // Used while the bitmap is not loaded.
+        private long releaseSequence;   // Sequence number of the last frame that might contain this cell.
 
         /**
-         * Creates a new WorldCell object at the specified position.
-         * NOTE: The bitmap is NOT loaded in this constructor! The load() method must be called
-         * before trying to draw the cell.
-         * @param worldPosition The cell's position in world coordinates.
-         * @param bitmapId The id of the bitmap belonging to this cell.
+         * Creates a new WorldCell object.
+         * NOTE: The bitmap is NOT loaded in this constructor! The cell must be requested from the
+         * cell streamer before it can be drawn.
+         * @param column The column of the cell.
+         * @param cellNumber The cell number of the cell.
+         * @param layout The index of the cell's bitmap in the background drawables, or
+         * CellMap.GENERATED_LAYOUT.
+         * @param color The color of the cell's graphics.
+         * @param difficulty The difficulty to generate the cell with.
          */
-        public WorldCell(Vector2 worldPosition, int bitmapId) {
-            this.worldPosition = worldPosition;
-            this.bitmapId = bitmapId;
-
-            // Create a bounding rectangle of bitmap file. This value is constant so we only need
-            // to load it once. It is used when drawing.
-            BitmapFactory.Options factoryOptions = new BitmapFactory.Options();
-            factoryOptions.inJustDecodeBounds = true;
-            BitmapFactory.decodeResource(getResources(), bitmapId, factoryOptions);
-            bitmapBoundingRect = new Rect(0, 0, factoryOptions.outWidth, factoryOptions.outHeight);
-        }
+        public WorldCell(int column, int cellNumber, int layout, int color, int difficulty) {
+            super(column, cellNumber, layout, color);
+            this.difficulty = difficulty;
 
-        public WorldCell(Vector2 worldPosition, int bitmapId, int cellNumber, int color) {
-            this.worldPosition = worldPosition;
-            this.bitmapId = bitmapId;
-            this.cellNumber = cellNumber;
+            // The image is tinted when it's loaded, only the placeholder needs the color here.
+            placeholderPaint.setColor(color);
 
-            // Set a random color for the graphics of the cell.
-            paint.setColorFilter(new PorterDuffColorFilter(color, PorterDuff.Mode.SRC_ATOP));
+            if(isGenerated()) {
+                bitmapBoundingRect = new Rect(0, 0, Cell.WIDTH, Cell.HEIGHT);
+                return;
+            }
+            bitmapId = BACKGROUND_DRAWABLES.getResourceId(layout, 0);
 
-            // Create a bounding rectangle of bitmap file. This value is constant so we only need
-            // to load it once. It is used when drawing.
-            BitmapFactory.Options factoryOptions = new BitmapFactory.Options();
-            factoryOptions.inJustDecodeBounds = true;
-            BitmapFactory.decodeResource(getResources(), bitmapId, factoryOptions);
-            bitmapBoundingRect = new Rect(0, 0, factoryOptions.outWidth, factoryOptions.outHeight);
+            // Bounding rectangle of bitmap file. This value is constant so it is cached by the
+            // cell image cache. It is used when drawing.
+            bitmapBoundingRect = cellImageCache.getBounds(bitmapId);
         }
 
-        /**
-         * Checks if there is a collision on the specified coordinates. This is determined by
-         * checking the alpha value of the pixel on the specified coordinate on the cell's bitmap,
-         * if alpha > 0 there is a collision.
-         * @param x The x-coordinate to check at.
-         * @param y The y-coordinate to check at.
-         * @return True if a collision was found.
-         */
-        public boolean checkCollision(int x, int y) {
-            // If pixel's alpha channel value is > 0 we have a collision.
-            if(bitmap != null)
-                return Color.alpha(bitmap.getPixel(x, y)) > 0;
+        private boolean isGenerated() {
+            return getLayout() == CellMap.GENERATED_LAYOUT;
+        }
 
-            return false;
+        @Override
+        protected CollisionMask getCollisionMask() {
+            return image.getCollisionMask();
         }
 
         /**
-         * Draws a portion of the world cell to a canvas.
+         * Draws the visible portion of the world cell to a canvas. If the bitmap hasn't been
+         * loaded yet a placeholder is drawn instead. Cells out of view are skipped before any
+         * other work is done.
          * @param canvas The canvas to draw on.
-         * @param viewRect The view rectangle, in world coordinates.
+         * @param viewport The part of the world on screen.
          */
-        public void draw(Canvas canvas, Rect viewRect) {
-            if(bitmap != null) {
-                // First translate to this cell's coordinate system.
-                Rect translatedViewRect = new Rect(viewRect);     // we don't want to change the actual viewRect.
-                translatedViewRect.left -= worldPosition.getX();
-                translatedViewRect.right -= worldPosition.getX();
-                translatedViewRect.top -= worldPosition.getY();
-                translatedViewRect.bottom -= worldPosition.getY();
-
-                // Check if the bitmap should be drawn at the top or bottom of the screen.
-                // The bitmap should be drawn at the top of the screen if the top of the view rect
-                // is on the bitmap.
-                boolean drawTop = translatedViewRect.top >= bitmapBoundingRect.top;
-
-                // Same thing as above but with left side.
-                boolean drawLeft = translatedViewRect.left >= bitmapBoundingRect.left;
-
-                // Get intersection of viewRect and bitmapBoundingRect.
-                // This is what should be drawn.
-                if (translatedViewRect.intersect(bitmapBoundingRect)) {
-                    int scaledHeight = (int) (translatedViewRect.height() * SCALE_FACTOR_Y);  // used below
-                    int scaledWidth = (int) (translatedViewRect.width() * SCALE_FACTOR_X);  // used below
-
-                    // Create draw rectangle (the portion of the screen to draw to).
-                    Rect drawRect = new Rect(0, 0, scaledWidth, scaledHeight);
-
-                    if(!drawTop) {
-                        drawRect.top = SCREEN_HEIGHT - scaledHeight - 1;
-                        drawRect.bottom = SCREEN_HEIGHT;
-                    }
-                    if(!drawLeft) {
-                        drawRect.left = SCREEN_WIDTH - scaledWidth - 1;
-                        drawRect.right = SCREEN_WIDTH;
-                    }
-
-                    // Draw
-                    canvas.drawBitmap(bitmap, translatedViewRect, drawRect, paint);
-                }
+        public void draw(Canvas canvas, Viewport viewport) {
+            Vector2 worldPosition = getWorldPosition();
+            if(!viewport.clip((int) worldPosition.getX(), (int) worldPosition.getY(),
+                    bitmapBoundingRect.width(), bitmapBoundingRect.height()))
+                return;
+
+            // The draw rectangle is in floats, so the slices of neighbouring cells meet exactly.
+            RectF drawRect = cellDrawRect;
+            drawRect.set(viewport.getScreenLeft(), viewport.getScreenTop(), viewport.getScreenRight(), viewport.getScreenBottom());
+            if(isLoaded()) {
+                Rect sourceRect = cellSourceRect;
+                sourceRect.set(viewport.getSourceLeft(), viewport.getSourceTop(), viewport.getSourceRight(), viewport.getSourceBottom());
+                canvas.drawBitmap(image.getBitmap(), sourceRect, drawRect, null);
+            } else {
+                canvas.drawRect(drawRect, placeholderPaint);
             }
         }
 
         /**
-         * Loads the bitmap that was specified by the constructor.
-         */
-        public void load() {
-            BitmapFactory.Options factoryOptions = new BitmapFactory.Options();
-            factoryOptions.inPreferredConfig = Bitmap.Config.RGB_565;
-
-            // Load bitmap using optimizations defined in factoryOptions.
-            bitmap = BitmapFactory.decodeResource(getResources(), bitmapId, factoryOptions);
-        }
-
-        /**
-         * Asynchronously loads the bitmap that was specified by the constructor.
+         * Loads the bitmap that was specified by the constructor, and its collision mask, or
+         * generates the layout of a generated cell and draws it into an image. Called on the cell
+         * streamer's decode threads.
          */
-        public void loadAsync() {
-            AsyncTask t = new AsyncTask() {
-                @Override
-                protected Object doInBackground(Object[] params) {
-                    load();
-                    return null;
-                }
-            };
-            t.execute();
-        }
-
-        /**
-         * Unloads the bitmap.
-         */
-        public void unload() {
-            if(bitmap != null && !bitmap.isRecycled()) {
-                bitmap.recycle();
-                bitmap = null;
+        @Override
+        protected void onLoad() {
+            // The image comes tinted in the cell's color and flattened onto the background, so
+            // drawing it is a plain copy of opaque pixels.
+            if(isGenerated()) {
+                long seed = ChunkGrid.getColumnSeed(simulation.getCellGrid().getSeed(), getColumn());
+                generatedLayout = cellGenerator.generate(seed, getCellNumber(), difficulty);
+                image = cellImageCache.acquire(generatedLayout, getColor());
+            } else {
+                image = cellImageCache.acquire(bitmapId, getColor());
             }
         }
 
         /**
-         * @return Returns the position of the cell's top left corner, in world coordinates.
+         * Hands the cell's image back to the cell image cache, and a generated layout back to the
+         * generator. Called on the cell streamer's decode thread.
          */
-        public Vector2 getWorldPosition() { return worldPosition; }
-
-        /**
-         * @return Returns true if the WorldCell's bitmap is currently loaded.
-         */
-        public boolean isBitmapLoaded() { return bitmap != null; }
-
-        /**
-         * @return Returns the cell number of this WorldCell.
-         */
-        public int getCellNumber() { return cellNumber; }
-    }
-
-    private static class ColorGenerator {
-
-        private static Random rng = new Random();
-
-        public static int getRandomColor(long seed) {
-            rng.setSeed(seed);
-            int red, blue, green;
-            red = rng.nextInt(50) + 20;
-            blue = rng.nextInt(50) + 20;
-            green = rng.nextInt(50) + 20;
-
-            return Color.argb(255, red, blue, green);
+        @Override
+        protected void onUnload() {
+            if(image != null) {
+                cellImageCache.release(image);
+                image = null;
+            }
+            if(generatedLayout != null) {       // After the image, which uses its collision mask.
+                cellGenerator.release(generatedLayout);
+                generatedLayout = null;
+            }
         }
     }
 
     /**
-     * Enum used for indicating a specific event has occurred in the game.
+     * Everything needed to draw one frame, copied from the game state by the game thread so the
+     * drawing thread never reads state that is being updated.
      */
-    public enum Event {
-        GAME_STARTED, SPACESHIP_CRASH
+    private static class FrameSnapshot {
+        Spaceship spaceship;    // Only used for its bitmap. Null before the game has started.
+        float previousShipX;
+        float previousShipY;
+        float shipX;
+        float shipY;
+        float shipRotation;
+        float interpolation;
+        int score;
+        float speed;
+        final WorldCell[] cells;
+        int cellCount;
+
+        FrameSnapshot(int maxCells) {
+            cells = new WorldCell[maxCells];
+        }
     }
 }
@@ -0,0 +1,90 @@
+package sevon.max.androidspaceship;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+/**
+ * Draws the world on its own render thread, using a SurfaceView. The render thread waits for the
+ * game thread to publish a frame and draws it directly to the surface, so drawing never has to go
+ * through the UI thread.
+ */
+public class WorldSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private static final long FRAME_WAIT_MILLIS = 100;  // How long the render thread waits for a frame before checking if it should stop.
+
+    private World world;
+    private Thread renderThread;
+    private volatile boolean rendering;
+
+    public WorldSurfaceView(Context context) {
+        super(context);
+        getHolder().addCallback(this);
+    }
+
+    public WorldSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        getHolder().addCallback(this);
+    }
+
+    /**
+     * Sets the world to draw. Must be called before the surface is created.
+     * @param world The world.
+     */
+    public void setWorld(World world) {
+        this.world = world;
+    }
+
+    @Override
+    public void surfaceCreated(final SurfaceHolder holder) {
+        rendering = true;
+        renderThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(rendering) {
+                    try {
+                        if(!world.awaitFrame(FRAME_WAIT_MILLIS))
+                            continue;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    Canvas canvas = holder.lockCanvas();
+                    if(canvas == null)
+                        continue;   // Surface isn't ready.
+                    try {
+                        world.drawFrame(canvas);
+                    } finally {
+                        holder.unlockCanvasAndPost(canvas);
+                    }
+                }
+            }
+        }, "Render");
+        renderThread.start();
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        world.setScreenSize(width, height);
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        // The surface must not be drawn on after this returns, so wait for the render thread.
+        rendering = false;
+        boolean interrupted = false;
+        while(true) {
+            try {
+                renderThread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        renderThread = null;
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+}
@@ -0,0 +1,121 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.AlphaComposite;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.LookupOp;
+import java.awt.image.ShortLookupTable;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-frame cost of drawing a screen's worth of a cell image tinted while drawing,
+ * as with a PorterDuffColorFilter in SRC_ATOP mode, to copying an image that was tinted and
+ * flattened onto the background when it was loaded. Android's Canvas needs a device, so Java2D
+ * stands in for it: a lookup that sets the color and keeps the alpha does the tint, and the
+ * screen is an RGB surface like a window's.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellDrawBenchmark {
+
+    private static final int SCREEN_WIDTH = 360;
+    private static final int SCREEN_HEIGHT = 640;
+    private static final int SLICE_TOP = 200;       // The part of the cell on screen.
+    private static final int TINT = 0xff2a4f33;
+
+    private BufferedImage slice;            // Untinted, with alpha, as the cell images are stored.
+    private BufferedImage filtered;         // What the color filter produces during a draw.
+    private BufferedImage preTintedSlice;   // Opaque RGB_565, as the cache now stores them.
+    private LookupOp tint;
+    private BufferedImage screen;
+    private Graphics2D graphics;
+
+    @Setup
+    public void setUp() {
+        BufferedImage cell = new BufferedImage(Cell.WIDTH, Cell.HEIGHT, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D cellGraphics = cell.createGraphics();
+        Random random = new Random(42);
+        cellGraphics.setColor(Color.WHITE);
+        for(int y = 0; y < Cell.HEIGHT; y += 16) {
+            cellGraphics.fillRect(0, y, 100 + random.nextInt(60), 16);
+            cellGraphics.fillRect(340 + random.nextInt(60), y, Cell.WIDTH, 16);
+        }
+        cellGraphics.dispose();
+        slice = cell.getSubimage(0, SLICE_TOP, SCREEN_WIDTH, SCREEN_HEIGHT);
+        filtered = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_ARGB);
+
+        short[] identity = new short[256];
+        for(int i = 0; i < 256; i++)
+            identity[i] = (short) i;
+        short[][] tables = { constant(TINT >> 16), constant(TINT >> 8), constant(TINT), identity };
+        tint = new LookupOp(new ShortLookupTable(0, tables), null);
+
+        BufferedImage preTinted = new BufferedImage(Cell.WIDTH, Cell.HEIGHT, BufferedImage.TYPE_USHORT_565_RGB);
+        Graphics2D preTintedGraphics = preTinted.createGraphics();
+        preTintedGraphics.setColor(Color.BLACK);
+        preTintedGraphics.fillRect(0, 0, Cell.WIDTH, Cell.HEIGHT);
+        preTintedGraphics.drawImage(tint.filter(cell, null), 0, 0, null);
+        preTintedGraphics.dispose();
+        preTintedSlice = preTinted.getSubimage(0, SLICE_TOP, SCREEN_WIDTH, SCREEN_HEIGHT);
+
+        screen = new BufferedImage(SCREEN_WIDTH, SCREEN_HEIGHT, BufferedImage.TYPE_INT_RGB);
+        graphics = screen.createGraphics();
+    }
+
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * The old way: the screen is cleared, then the slice is tinted and blended over it.
+     */
+    @Benchmark
+    public BufferedImage tintWhileDrawing() {
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        graphics.setComposite(AlphaComposite.SrcOver);
+        tint.filter(slice, filtered);
+        graphics.drawImage(filtered, 0, 0, null);
+        return screen;
+    }
+
+    /**
+     * The new way: the opaque, tinted slice is copied. It covers the screen, but the clear is
+     * kept so both benchmarks do the same frame.
+     */
+    @Benchmark
+    public BufferedImage drawPreTinted() {
+        graphics.setComposite(AlphaComposite.Src);
+        graphics.setColor(Color.BLACK);
+        graphics.fillRect(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+        graphics.drawImage(preTintedSlice, 0, 0, null);
+        return screen;
+    }
+
+    private static short[] constant(int value) {
+        short[] table = new short[256];
+        for(int i = 0; i < 256; i++)
+            table[i] = (short) (value & 0xff);
+        return table;
+    }
+}
@@ -0,0 +1,41 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating one cell layout, mask and walls included, to compare with
+ * CellGenerator.BUDGET_NANOS and with decoding a handmade cell's collision mask.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellGeneratorBenchmark {
+
+    @Param({"0", "8"})
+    public int difficulty;
+
+    private final CellGenerator generator = new CellGenerator(1);
+    private int cellNumber;
+
+    @Benchmark
+    public int generate() {
+        GeneratedLayout layout = generator.generate(1234, ++cellNumber, difficulty);
+        int walls = layout.getWallCount();
+        generator.release(layout);
+        return walls;
+    }
+}
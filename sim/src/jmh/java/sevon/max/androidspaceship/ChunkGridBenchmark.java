@@ -0,0 +1,95 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures streaming a 2D chunk grid as the spaceship flies diagonally across it, chunks being
+ * created, loaded and evicted on the way, and looking up chunks by column and cell number in a
+ * CellWindow compared to a HashMap with boxed keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkGridBenchmark {
+
+    private static final int CHUNK_BYTES = Cell.WIDTH * Cell.HEIGHT / 8;   // A collision mask.
+    private static final int LOOKUP_POINTS = 1024;
+
+    private final CollisionMask mask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+    private ChunkGrid grid;
+    private final Vector2 position = new Vector2(0, 0);
+    private final Vector2 velocity = new Vector2(3, -4);
+    private final CellWindow<Object> window = new CellWindow<>(8, 8);
+    private final HashMap<Long, Object> boxedMap = new HashMap<>();
+    private final int[] columns = new int[LOOKUP_POINTS];
+    private final int[] cellNumbers = new int[LOOKUP_POINTS];
+    private int keyIndex;
+
+    @Setup
+    public void setUp() {
+        grid = new ChunkGrid(new ChunkGrid.Factory() {
+            @Override
+            public Cell createCell(int column, int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(column, cellNumber, layout, color, mask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), 4, 42, 2, CHUNK_BYTES, 32L * CHUNK_BYTES);
+
+        for(int column = -4; column < 4; column++) {
+            for(int cellNumber = -4; cellNumber < 4; cellNumber++) {
+                window.put(column, cellNumber, mask);
+                boxedMap.put(getKey(column, cellNumber), mask);
+            }
+        }
+        for(int i = 0; i < LOOKUP_POINTS; i++) {
+            columns[i] = i % 8 - 4;
+            cellNumbers[i] = (i * 7) % 8 - 4;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.println(grid);
+    }
+
+    /**
+     * One tick of streaming, the spaceship moving 5 units.
+     */
+    @Benchmark
+    public int update() {
+        position.addInPlace(velocity);
+        grid.update(0, position, velocity, 1);
+        return grid.size();
+    }
+
+    @Benchmark
+    public Object lookupWindow() {
+        keyIndex = (keyIndex + 1) & (LOOKUP_POINTS - 1);
+        return window.get(columns[keyIndex], cellNumbers[keyIndex]);
+    }
+
+    @Benchmark
+    public Object lookupBoxed() {
+        keyIndex = (keyIndex + 1) & (LOOKUP_POINTS - 1);
+        return boxedMap.get(getKey(columns[keyIndex], cellNumbers[keyIndex]));
+    }
+
+    private static long getKey(int column, int cellNumber) {
+        return ((long) column << 32) | (cellNumber & 0xffffffffL);
+    }
+}
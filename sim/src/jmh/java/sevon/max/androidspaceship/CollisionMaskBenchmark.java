@@ -0,0 +1,72 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares getting a cell's collision mask from its pixels, as when it is built from a decoded
+ * bitmap, with decoding it from a collision asset in a direct buffer. Decoding the bitmap itself,
+ * which the asset also saves, isn't included.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionMaskBenchmark {
+
+    private int[] pixels;
+    private ByteBuffer asset;
+    private final CollisionMask mask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+
+    @Setup
+    public void setUp() {
+        // A winding channel between two walls, like the cell images.
+        pixels = new int[Cell.WIDTH * Cell.HEIGHT];
+        for(int y = 0; y < Cell.HEIGHT; y++) {
+            int center = (int) (Cell.WIDTH / 2 + 120 * Math.sin(y / 90.0));
+            for(int x = 0; x < Cell.WIDTH; x++) {
+                if(Math.abs(x - center) > 90)
+                    pixels[y * Cell.WIDTH + x] = 0xff808080;
+            }
+        }
+
+        CollisionMask walls = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        fromPixels(walls);
+        byte[] data = CollisionMaskFile.encode(walls);
+        asset = ByteBuffer.allocateDirect(data.length);
+        asset.put(data).flip();
+    }
+
+    @Benchmark
+    public CollisionMask fromPixels() {
+        return fromPixels(mask);
+    }
+
+    @Benchmark
+    public CollisionMask fromAsset() throws IOException {
+        return CollisionMaskFile.decode(asset.duplicate(), mask);
+    }
+
+    private CollisionMask fromPixels(CollisionMask target) {
+        int[] row = new int[Cell.WIDTH];
+        for(int y = 0; y < Cell.HEIGHT; y++) {
+            System.arraycopy(pixels, y * Cell.WIDTH, row, 0, Cell.WIDTH);
+            target.setRow(y, row);
+        }
+        return target;
+    }
+}
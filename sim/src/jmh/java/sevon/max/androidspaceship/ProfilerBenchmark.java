@@ -0,0 +1,43 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a profiled span, to check that leaving the calls in the game loop costs
+ * close to nothing while the profiler is disabled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProfilerBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private Profiler.Track track;
+
+    @Setup
+    public void setUp() {
+        track = new Profiler(enabled, 4096).newTrack("Benchmark");
+    }
+
+    @Benchmark
+    public void span() {
+        track.end(Profiler.Section.UPDATE, track.begin());
+    }
+}
@@ -0,0 +1,46 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures decoding a score file, checksum included. Reading the file itself is left out, it
+ * depends on the disk and not on the format.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreFileBenchmark {
+
+    @Param({"10", "10000"})
+    public int scoreCount;
+
+    private byte[] data;
+
+    @Setup
+    public void setUp() {
+        ScoreList scores = new ScoreList(scoreCount);
+        for(int i = 0; i < scoreCount; i++)
+            scores.add(i * 100, i, i, 1, i);
+        data = ScoreFile.encode(scores);
+    }
+
+    @Benchmark
+    public ScoreList decode() throws ScoreFile.CorruptException {
+        return ScoreFile.decode(data, data.length, scoreCount);
+    }
+}
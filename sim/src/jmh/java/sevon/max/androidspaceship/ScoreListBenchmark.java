@@ -0,0 +1,77 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares adding a score to a full top-K list against the old list, which appended the score,
+ * sorted all of them and dropped the last one. Scores are random, so most of them land somewhere
+ * in the middle of the list.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScoreListBenchmark {
+
+    private static final int SCORE_RANGE = 1 << 20;
+
+    @Param({"10", "1000", "100000"})
+    public int capacity;
+
+    private ArrayList<Integer> legacyScores;
+    private ScoreList scores;
+    private int seed = 12345;
+
+    @Setup
+    public void setUp() {
+        legacyScores = new ArrayList<>(capacity + 1);
+        scores = new ScoreList(capacity);
+        for(int i = 0; i < capacity; i++) {
+            int score = nextScore();
+            legacyScores.add(score);
+            scores.add(score);
+        }
+        Collections.sort(legacyScores, Collections.<Integer>reverseOrder());
+    }
+
+    @Benchmark
+    public boolean legacyAdd() {
+        legacyScores.add(nextScore());
+        Collections.sort(legacyScores, Collections.<Integer>reverseOrder());
+        return legacyScores.remove(capacity) != null;
+    }
+
+    @Benchmark
+    public int topKAdd() {
+        return scores.add(nextScore(), seed, 0, 1, 0);
+    }
+
+    @Benchmark
+    public int rank() {
+        return scores.getRank(nextScore());
+    }
+
+    /**
+     * A cheap linear congruential generator, so the benchmark doesn't measure Random.
+     */
+    private int nextScore() {
+        seed = seed * 1103515245 + 12345;
+        return (seed >>> 8) % SCORE_RANGE;
+    }
+}
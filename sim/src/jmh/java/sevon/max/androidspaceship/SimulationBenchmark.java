@@ -0,0 +1,114 @@
+package sevon.max.androidspaceship;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the simulation on a plain JVM: game ticks, collision queries and cell transitions per
+ * second. Cells are loaded synchronously from generated collision masks, so every run does the
+ * same work. Run with gradle :sim:jmh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimulationBenchmark {
+
+    private static final int LAYOUTS = 4;
+    private static final int CORRIDOR_LEFT = 200;   // The ship flies straight up between these.
+    private static final int CORRIDOR_RIGHT = 312;
+    private static final int MAX_CELLS = 100;       // Restart before the ship gets too fast.
+    private static final int COLLISION_POINTS = 1024;
+
+    private Simulation simulation;
+    private CellMap transitionMap;
+    private int transitionCell;
+    private float[] points;
+    private int pointIndex;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        final CollisionMask[] masks = new CollisionMask[LAYOUTS + 1];     // The last one for generated cells.
+        for(int i = 0; i < masks.length; i++)
+            masks[i] = createMask(random);
+
+        CellMap.Factory factory = new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(cellNumber, layout, color, masks[layout == CellMap.GENERATED_LAYOUT ? LAYOUTS : layout]);
+            }
+        };
+        CellStreamer streamer = new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR);
+
+        simulation = new Simulation(new CellMap(factory, streamer, LAYOUTS, 42), 22, 24);
+        simulation.restart();
+        transitionMap = new CellMap(factory, streamer, LAYOUTS, 42);
+
+        // Points spread over the start cell, where the ship is when collisions are queried.
+        points = new float[COLLISION_POINTS * 2];
+        for(int i = 0; i < points.length; i += 2) {
+            points[i] = random.nextFloat() * Cell.WIDTH;
+            points[i + 1] = random.nextFloat() * Cell.HEIGHT;
+        }
+    }
+
+    /**
+     * One game tick, with the ship flying straight ahead through the corridor.
+     */
+    @Benchmark
+    public boolean tick() {
+        boolean running = simulation.update(0, -1);
+        if(!running || simulation.getCurrentCellNumber() >= MAX_CELLS)
+            simulation.restart();
+        return running;
+    }
+
+    /**
+     * One collision query against the packed mask of the current cell.
+     */
+    @Benchmark
+    public boolean collisionQuery() {
+        int i = pointIndex;
+        pointIndex = (i + 2) & (points.length - 1);
+        return simulation.checkCollision(points[i], points[i + 1]);
+    }
+
+    /**
+     * Moves the cell window one cell ahead: one cell is created and requested, one is released.
+     */
+    @Benchmark
+    public int cellTransition() {
+        transitionMap.update(transitionCell++, 1);
+        return transitionMap.size();
+    }
+
+    /**
+     * Creates a mask with walls along the sides and random rocks, leaving a free corridor in the
+     * middle.
+     */
+    private static CollisionMask createMask(Random random) {
+        CollisionMask mask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        for(int y = 0; y < Cell.HEIGHT; y++) {
+            for(int x = 0; x < Cell.WIDTH; x++) {
+                boolean wall = x < 32 || x >= Cell.WIDTH - 32;
+                boolean rock = (x < CORRIDOR_LEFT || x >= CORRIDOR_RIGHT) && random.nextInt(8) == 0;
+                mask.set(x, y, wall || rock);
+            }
+        }
+        return mask;
+    }
+}
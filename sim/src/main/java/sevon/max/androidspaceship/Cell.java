@@ -0,0 +1,92 @@
+package sevon.max.androidspaceship;
+
+/**
+ * A piece of the world. Cells are stacked on top of each other: cell 0 has its top left corner at
+ * the origin and cell 1 is right above it. In a ChunkGrid there are columns of cells side by side,
+ * column 1 is right of column 0. What a cell looks like is given by its layout (which
+ * image it uses) and color; what it collides with is given by its collision mask, which is only
+ * available once the cell has been loaded.
+ */
+public abstract class Cell extends StreamedCell {
+
+    public static final int WIDTH = 512;
+    public static final int HEIGHT = 1024;
+
+    private final int cellNumber;
+    private final int column;
+    private final int layout;
+    private final int color;
+    private final Vector2 worldPosition;
+
+    /**
+     * @param cellNumber The cell number of the cell.
+     * @param layout The index of the layout (the image) used by the cell. Layout 0 is the start cell.
+     * @param color The color of the cell's graphics, as ARGB.
+     */
+    protected Cell(int cellNumber, int layout, int color) {
+        this(0, cellNumber, layout, color);
+    }
+
+    /**
+     * @param column The column of the cell.
+     * @param cellNumber The cell number of the cell, its row counted upwards.
+     * @param layout The index of the layout (the image) used by the cell. Layout 0 is the start cell.
+     * @param color The color of the cell's graphics, as ARGB.
+     */
+    protected Cell(int column, int cellNumber, int layout, int color) {
+        this.cellNumber = cellNumber;
+        this.column = column;
+        this.layout = layout;
+        this.color = color;
+        worldPosition = new Vector2(column * WIDTH, -cellNumber * HEIGHT);
+    }
+
+    /**
+     * @return The cell's collision mask. Only called when the cell is loaded.
+     */
+    protected abstract CollisionMask getCollisionMask();
+
+    /**
+     * Checks if there is a collision on the specified coordinates. This is determined by
+     * checking the cell's collision mask, which holds one bit per pixel of the cell's image
+     * that is set if the pixel's alpha > 0.
+     * @param x The x-coordinate to check at, in cell coordinates.
+     * @param y The y-coordinate to check at, in cell coordinates.
+     * @return True if a collision was found. Always false while the cell isn't loaded.
+     */
+    public boolean checkCollision(int x, int y) {
+        return isLoaded() && getCollisionMask().isSolid(x, y);
+    }
+
+    /**
+     * Finds which cell a y-coordinate is in. Cell n covers the world y-coordinates from
+     * -n * HEIGHT up to, but not including, -n * HEIGHT + HEIGHT.
+     * @param worldY A y-coordinate, in world coordinates.
+     * @return The number of the cell that contains it.
+     */
+    public static int getCellNumberAt(float worldY) {
+        return -(int) Math.floor(worldY / HEIGHT);
+    }
+
+    /**
+     * @param worldX An x-coordinate, in world coordinates.
+     * @return The column of cells that contains it.
+     */
+    public static int getColumnAt(float worldX) {
+        return (int) Math.floor(worldX / WIDTH);
+    }
+
+    /**
+     * @return Returns the position of the cell's top left corner, in world coordinates.
+     */
+    public Vector2 getWorldPosition() { return worldPosition; }
+
+    /**
+     * @return Returns the cell number of this cell.
+     */
+    public int getCellNumber() { return cellNumber; }
+    public int getColumn() { return column; }
+
+    public int getLayout() { return layout; }
+    public int getColor() { return color; }
+}
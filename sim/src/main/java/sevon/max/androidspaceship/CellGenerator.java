@@ -0,0 +1,181 @@
+package sevon.max.androidspaceship;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Makes cell layouts from the world seed and the cell number, as an alternative to the handmade
+ * cell images. A layout is a channel that winds between two walls, with ledges sticking out into
+ * it. The cell is made of bands of BAND_HEIGHT rows; consecutive bands always share an opening of
+ * at least MIN_GAP pixels, so there is always a way through. At its top and bottom edges the
+ * channel is the same opening the handmade cells have, so generated and handmade cells fit
+ * together.
+ * The higher the difficulty, the narrower and more winding the channel and the more ledges. Only
+ * integer math and java.util.Random are used, so the same seed, cell number and difficulty give
+ * the same layout on every device.
+ * generate() is thread safe, and can run on several workers at once. Layouts are pooled and must
+ * be handed back with release(). The time each layout takes is recorded and compared to a budget.
+ */
+public class CellGenerator {
+
+    public static final int MAX_DIFFICULTY = 8;
+    public static final int OPENING_LEFT = 149;     // The opening at the top and bottom of every cell.
+    public static final int OPENING_RIGHT = 337;
+    public static final int MIN_GAP = 64;           // Narrowest opening, a bit over twice the spaceship.
+    public static final long BUDGET_NANOS = 2000000;
+    static final int BAND_HEIGHT = 16;
+
+    private static final int BANDS = Cell.HEIGHT / BAND_HEIGHT;
+    private static final int EDGE_BANDS = 2;        // Bands at the top and bottom kept at the opening.
+    private static final int MIN_WALL = 16;         // Thinnest wall at the sides of the cell.
+
+    private final RecyclingPool<GeneratedLayout> pool;
+    private final LatencyStats generationTime = new LatencyStats();
+    private final AtomicLong overBudget = new AtomicLong();
+
+    /**
+     * @param poolCapacity The number of released layouts kept for reuse.
+     */
+    public CellGenerator(int poolCapacity) {
+        pool = new RecyclingPool<GeneratedLayout>(poolCapacity) { };
+    }
+
+    /**
+     * Gives the difficulty of a cell. The spaceship speeds up on every third cell, so the
+     * difficulty goes up by one every third cell too. It only depends on the cell number, so a
+     * cell that is created again gets the same layout whatever the spaceship is doing.
+     * @param cellNumber The cell number.
+     * @return The difficulty, between 0 and MAX_DIFFICULTY.
+     */
+    public static int getDifficulty(int cellNumber) {
+        return Math.max(0, Math.min(cellNumber / 3, MAX_DIFFICULTY));
+    }
+
+    /**
+     * Generates the layout of a cell.
+     * @param seed The seed of the world.
+     * @param cellNumber The cell number.
+     * @param difficulty The difficulty, between 0 and MAX_DIFFICULTY.
+     * @return The layout. Hand it back with release() when it's no longer used.
+     */
+    public GeneratedLayout generate(long seed, int cellNumber, int difficulty) {
+        long start = System.nanoTime();
+        GeneratedLayout layout = pool.acquire();
+        if(layout == null)
+            layout = new GeneratedLayout();
+        layout.clear();
+
+        // Mixed so neighbouring cells don't get related sequences, and unrelated to the colors.
+        layout.random.setSeed(seed * 0x5deece66dL + cellNumber * 0x9e3779b97f4a7c15L);
+        planChannel(layout, difficulty);
+        placeLedges(layout, difficulty);
+        for(int band = 0; band < BANDS; band++) {
+            int top = band * BAND_HEIGHT;
+            layout.addWall(0, top, layout.freeLeft[band], top + BAND_HEIGHT);
+            layout.addWall(layout.freeRight[band], top, Cell.WIDTH, top + BAND_HEIGHT);
+        }
+
+        long nanos = System.nanoTime() - start;
+        generationTime.record(nanos);
+        if(nanos > BUDGET_NANOS)
+            overBudget.incrementAndGet();
+        return layout;
+    }
+
+    public void release(GeneratedLayout layout) {
+        pool.release(layout);
+    }
+
+    /**
+     * @return How long generating a layout takes.
+     */
+    public LatencyStats getGenerationTime() { return generationTime; }
+
+    /**
+     * @return The number of layouts that took longer than BUDGET_NANOS.
+     */
+    public long getOverBudgetCount() { return overBudget.get(); }
+
+    /**
+     * Lays out the channel: a random walk of its center and width that starts and ends at the
+     * opening. Each step is small enough that consecutive bands overlap by at least MIN_GAP.
+     */
+    private static void planChannel(GeneratedLayout layout, int difficulty) {
+        int maxWidth = (OPENING_RIGHT - OPENING_LEFT) + 32 - difficulty * 14;   // 220 down to 108.
+        int maxShift = 8 + difficulty * 3;                                      // Per band.
+        int minWidth = Math.max(MIN_GAP + maxShift, maxWidth - 60);
+        int openingCenter = (OPENING_LEFT + OPENING_RIGHT) / 2;
+        int openingWidth = OPENING_RIGHT - OPENING_LEFT;
+
+        int center = openingCenter;
+        int width = openingWidth;
+        for(int band = 0; band < BANDS; band++) {
+            int bandsLeft = BANDS - EDGE_BANDS - band;     // Bands to get back to the opening in.
+            if(band < EDGE_BANDS || bandsLeft <= 0) {
+                center = openingCenter;
+                width = openingWidth;
+            } else {
+                center += layout.random.nextInt(2 * maxShift + 1) - maxShift;
+                width += layout.random.nextInt(33) - 16;
+                width = clamp(width, minWidth, maxWidth);
+
+                // Stay where the opening can still be reached, and inside the cell.
+                int reach = bandsLeft * maxShift;
+                center = clamp(center, openingCenter - reach, openingCenter + reach);
+                center = clamp(center, MIN_WALL + width / 2, Cell.WIDTH - MIN_WALL - width / 2);
+
+                // Widths may only change as fast as they can get back to the opening's.
+                int widthReach = bandsLeft * 16;
+                width = clamp(width, openingWidth - widthReach, openingWidth + widthReach);
+            }
+            layout.channelLeft[band] = center - width / 2;
+            layout.channelRight[band] = center - width / 2 + width;
+        }
+    }
+
+    /**
+     * Narrows some bands with a ledge from one side. A ledge is only placed where the band still
+     * overlaps the bands around it by MIN_GAP.
+     */
+    private static void placeLedges(GeneratedLayout layout, int difficulty) {
+        int ledgeChance = 8 + difficulty * 6;      // Percent of bands.
+        boolean previousHadLedge = false;
+        for(int band = 0; band < BANDS; band++) {
+            int left = layout.channelLeft[band];
+            int right = layout.channelRight[band];
+            boolean edge = band < EDGE_BANDS || band >= BANDS - EDGE_BANDS;
+            if(!edge && !previousHadLedge && layout.random.nextInt(100) < ledgeChance) {
+                int room = right - left - MIN_GAP;
+                if(room >= 16) {
+                    int ledge = 16 + layout.random.nextInt(room - 16 + 1);
+                    int ledgeLeft = left;
+                    int ledgeRight = right;
+                    if(layout.random.nextBoolean())
+                        ledgeLeft += ledge;
+                    else
+                        ledgeRight -= ledge;
+
+                    int previousLeft = layout.freeLeft[band - 1];
+                    int previousRight = layout.freeRight[band - 1];
+                    if(overlap(ledgeLeft, ledgeRight, previousLeft, previousRight) >= MIN_GAP
+                            && overlap(ledgeLeft, ledgeRight, layout.channelLeft[band + 1], layout.channelRight[band + 1]) >= MIN_GAP) {
+                        layout.freeLeft[band] = ledgeLeft;
+                        layout.freeRight[band] = ledgeRight;
+                        previousHadLedge = true;
+                        continue;
+                    }
+                }
+            }
+            layout.freeLeft[band] = left;
+            layout.freeRight[band] = right;
+            previousHadLedge = false;
+        }
+    }
+
+    private static int overlap(int left1, int right1, int left2, int right2) {
+        return Math.min(right1, right2) - Math.max(left1, left2);
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
@@ -0,0 +1,44 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The cells of the world around the spaceship, streamed in and out as it moves. CellMap is a
+ * single column of cells, ChunkGrid spreads cells out in two dimensions.
+ */
+public interface CellGrid {
+
+    /**
+     * Makes sure the cells around the spaceship are loaded or being loaded, and removes cells that
+     * are no longer needed.
+     * @param currentCellNumber The number of the cell the spaceship is on.
+     * @param position The spaceship's position, in world coordinates.
+     * @param velocity How far the spaceship moved in the last tick.
+     * @param speed The spaceship's speed.
+     */
+    void update(int currentCellNumber, Vector2 position, Vector2 velocity, float speed);
+
+    /**
+     * Removes all cells.
+     */
+    void clear();
+
+    /**
+     * @param worldX An x-coordinate, in world coordinates.
+     * @param worldY A y-coordinate, in world coordinates.
+     * @return The cell that contains the point, or null if that cell isn't in the grid.
+     */
+    Cell getCellAt(float worldX, float worldY);
+
+    /**
+     * @return The number of cells in the grid.
+     */
+    int size();
+
+    /**
+     * @param index Index of the cell, between 0 and size().
+     * @return The cell at the index.
+     */
+    Cell get(int index);
+
+    long getSeed();
+    int getLayoutCount();
+}
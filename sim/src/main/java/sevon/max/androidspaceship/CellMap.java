@@ -0,0 +1,249 @@
+package sevon.max.androidspaceship;
+
+import java.util.Random;
+
+/**
+ * The cells of the world around the spaceship. Only a window of cells around the current one is
+ * kept, this is to conserve memory while also allowing the world to be infinitely large. The
+ * window is a CellWindow one column wide, and cells are all Cell.HEIGHT tall, so finding the cell
+ * at a position is arithmetic and an array read. Which layout and color a cell gets is
+ * decided by a seeded random generator, so the same seed always gives the same world. Every cell
+ * after the start cell gets one of the other layouts or a layout made by a CellGenerator, all
+ * equally likely; with only the start layout every other cell is generated. Generated cells get
+ * GENERATED_LAYOUT, and a difficulty that goes up with the cell number. Cells that fall out of the window are handed
+ * to onCellRemoved(), which releases them. Override it to delay the release, for example until the
+ * cell is no longer being drawn.
+ */
+public class CellMap implements CellGrid {
+
+    public static final int CELLS_BEHIND = 1;  // Number of cells kept loaded behind the current one.
+    public static final int MAX_LOADED_CELLS = CellStreamer.MAX_CELLS_AHEAD + CELLS_BEHIND + 1;
+    public static final int GENERATED_LAYOUT = -1;
+
+    /**
+     * Creates the cells of the world.
+     */
+    public interface Factory {
+        /**
+         * Creates a cell. The cell's data is not loaded here, it is requested from the cell
+         * streamer afterwards.
+         * @param cellNumber The cell number of the cell.
+         * @param layout The index of the layout to use, 0 for the start cell, or GENERATED_LAYOUT.
+         * @param color The color of the cell's graphics, as ARGB.
+         * @param difficulty The difficulty to generate the cell with, see CellGenerator.
+         * @return The created cell.
+         */
+        Cell createCell(int cellNumber, int layout, int color, int difficulty);
+    }
+
+    private final Factory factory;
+    private final CellStreamer cellStreamer;
+    private final int layoutCount;
+    private final long seed;
+    private final int cellsBehind;
+    private final int cellsAhead;
+    private final Random rng = new Random();
+    private final Random colorRng = new Random();
+    private final CellWindow<Cell> cells;
+    private int first;      // Number of the first cell in the window.
+    private int count;      // Number of cells in the window, they are consecutive.
+
+    /**
+     * @param factory Creates the cells.
+     * @param cellStreamer Loads and unloads the cells.
+     * @param layoutCount The number of layouts, including the start cell's. 1 generates all other
+     * cells.
+     * @param seed Seed of the world.
+     */
+    public CellMap(Factory factory, CellStreamer cellStreamer, int layoutCount, long seed) {
+        this(factory, cellStreamer, layoutCount, seed, CELLS_BEHIND, CellStreamer.MAX_CELLS_AHEAD);
+    }
+
+    /**
+     * @param factory Creates the cells.
+     * @param cellStreamer Loads and unloads the cells.
+     * @param layoutCount The number of layouts, including the start cell's. 1 generates all other
+     * cells.
+     * @param seed Seed of the world.
+     * @param cellsBehind The number of cells kept behind the current one.
+     * @param cellsAhead The maximum number of cells kept ahead of the current one. Fewer are kept
+     * at low speeds, see CellStreamer.getPrefetchDistance().
+     */
+    public CellMap(Factory factory, CellStreamer cellStreamer, int layoutCount, long seed, int cellsBehind, int cellsAhead) {
+        this.factory = factory;
+        this.cellStreamer = cellStreamer;
+        this.layoutCount = layoutCount;
+        this.seed = seed;
+        this.cellsBehind = cellsBehind;
+        this.cellsAhead = cellsAhead;
+        cells = new CellWindow<>(1, cellsBehind + cellsAhead + 1);
+    }
+
+    /**
+     * Updates the window of cells around the current cell. Cells that have fallen out of the window
+     * are removed and new cells are created and requested, nearest first. The number of cells
+     * ahead depends on the spaceship's speed.
+     * @param currentCellNumber The number of the cell the spaceship is on.
+     * @param speed The spaceship's speed.
+     */
+    public void update(int currentCellNumber, float speed) {
+        int first = currentCellNumber - cellsBehind;
+        int last = currentCellNumber + Math.min(cellStreamer.getPrefetchDistance(speed), cellsAhead);
+
+        // Drop cells outside of the window.
+        while(count > 0 && this.first < first)
+            remove(this.first++);
+        while(count > 0 && getLastNumber() > last)
+            remove(getLastNumber());
+
+        // Add missing cells. A jump past the whole window empties it, and it starts over.
+        if(count == 0) {
+            this.first = currentCellNumber;
+            add(currentCellNumber);
+        }
+        while(this.first > first)
+            add(--this.first);
+        while(getLastNumber() < last)
+            add(getLastNumber() + 1);
+
+        // Request cells, the current one first, then the ones ahead and last the ones behind.
+        // Requesting an already requested cell does nothing, so this is cheap.
+        for(int n = currentCellNumber; n <= last; n++)
+            cellStreamer.request(cells.get(0, n));
+        for(int n = currentCellNumber - 1; n >= first; n--)
+            cellStreamer.request(cells.get(0, n));
+    }
+
+    /**
+     * Updates the window of cells around the current cell, see update(int, float). The cells are
+     * a single column, so only the current cell number and speed matter.
+     */
+    @Override
+    public void update(int currentCellNumber, Vector2 position, Vector2 velocity, float speed) {
+        update(currentCellNumber, speed);
+    }
+
+    /**
+     * Removes all cells.
+     */
+    @Override
+    public void clear() {
+        while(count > 0)
+            remove(first++);
+    }
+
+    /**
+     * Called when a cell has been removed from the map. Releases the cell.
+     * @param cell The removed cell.
+     */
+    protected void onCellRemoved(Cell cell) {
+        cellStreamer.release(cell);
+    }
+
+    /**
+     * @param worldY A y-coordinate, in world coordinates.
+     * @return The cell that contains the y-coordinate, or null if that cell isn't in the map.
+     */
+    public Cell getCellAt(float worldY) {
+        return cells.get(0, Cell.getCellNumberAt(worldY));
+    }
+
+    /**
+     * @param worldX An x-coordinate, in world coordinates. Ignored, the cells are a single column.
+     * @param worldY A y-coordinate, in world coordinates.
+     * @return The cell that contains the y-coordinate, or null if that cell isn't in the map.
+     */
+    @Override
+    public Cell getCellAt(float worldX, float worldY) {
+        return getCellAt(worldY);
+    }
+
+    /**
+     * @param cellNumber A cell number.
+     * @return The cell, or null if it isn't in the map.
+     */
+    public Cell getCell(int cellNumber) {
+        return cells.get(0, cellNumber);
+    }
+
+    @Override
+    public long getSeed() { return seed; }
+    @Override
+    public int getLayoutCount() { return layoutCount; }
+
+    /**
+     * @return The number of cells in the map.
+     */
+    @Override
+    public int size() { return count; }
+
+    /**
+     * @param index Index of the cell, cells are sorted by cell number.
+     * @return The cell at the index.
+     */
+    @Override
+    public Cell get(int index) {
+        if(index < 0 || index >= count)
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + count);
+        return cells.get(0, first + index);
+    }
+
+    private int getLastNumber() { return first + count - 1; }
+
+    /**
+     * Creates a cell and puts it in the window, which always has room for it.
+     */
+    private void add(int cellNumber) {
+        cells.put(0, cellNumber, createCell(cellNumber));
+        count++;
+    }
+
+    /**
+     * Takes a cell at either end out of the window.
+     */
+    private void remove(int cellNumber) {
+        count--;
+        onCellRemoved(cells.remove(0, cellNumber));
+    }
+
+    /**
+     * Creates a world cell. If cell number is 0 the start cell is created, otherwise a random
+     * layout is used, see getRandomLayout().
+     */
+    private Cell createCell(int cellNumber) {
+        rng.setSeed(seed + cellNumber);
+        int color = getRandomColor(colorRng, rng.nextInt());
+        int layout = 0;
+
+        if(cellNumber != 0)
+            layout = getRandomLayout(rng, layoutCount);
+
+        return factory.createCell(cellNumber, layout, color, CellGenerator.getDifficulty(cellNumber));
+    }
+
+    /**
+     * Picks the layout of a cell other than the start cell: one of the layouts after the start
+     * layout, or GENERATED_LAYOUT, all equally likely.
+     * @param rng The world's generator, seeded for the cell.
+     * @param layoutCount The number of layouts, including the start cell's.
+     */
+    static int getRandomLayout(Random rng, int layoutCount) {
+        int layout = rng.nextInt(layoutCount) + 1;     // +1 to skip the "start" cell.
+        return layout == layoutCount ? GENERATED_LAYOUT : layout;
+    }
+
+    /**
+     * Picks a dark color for a cell.
+     * @param colorRng The generator to use, it is reseeded.
+     * @param seed The seed for the color.
+     */
+    static int getRandomColor(Random colorRng, long seed) {
+        colorRng.setSeed(seed);
+        int red, blue, green;
+        red = colorRng.nextInt(50) + 20;
+        blue = colorRng.nextInt(50) + 20;
+        green = colorRng.nextInt(50) + 20;
+
+        return 0xff000000 | (red << 16) | (blue << 8) | green;
+    }
+}
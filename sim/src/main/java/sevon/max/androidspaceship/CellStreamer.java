@@ -0,0 +1,146 @@
+package sevon.max.androidspaceship;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads world cells on dedicated decode threads so that the game thread never has to wait for
+ * a bitmap or a generated layout. Requests are started in the order they are made, so the nearest
+ * cells should be requested first. The queue is bounded; a request that doesn't fit is dropped and the cell is
+ * left unloaded so it can be requested again later.
+ */
+public class CellStreamer {
+
+    public static final int MAX_CELLS_AHEAD = 3;
+    private static final int PREFETCH_TICKS = 120;  // How many ticks of travel we want decoded ahead of the next cell.
+
+    /**
+     * Runs load and unload tasks right away on the calling thread.
+     */
+    public static final Executor IMMEDIATE_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    private final int cellHeight;
+    private final Executor decodeExecutor;
+
+    /**
+     * Creates a cell streamer and starts its decode thread.
+     * @param cellHeight The height of a cell, in world coordinates.
+     * @param queueCapacity The maximum number of pending loads and unloads.
+     */
+    public CellStreamer(int cellHeight, int queueCapacity) {
+        this(cellHeight, queueCapacity, 1);
+    }
+
+    /**
+     * Creates a cell streamer with a pool of decode threads. Several threads let cells that are
+     * generated rather than decoded load in parallel.
+     * @param cellHeight The height of a cell, in world coordinates.
+     * @param queueCapacity The maximum number of pending loads and unloads.
+     * @param threadCount The number of decode threads.
+     */
+    public CellStreamer(int cellHeight, int queueCapacity, int threadCount) {
+        this(cellHeight, new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(queueCapacity), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "CellDecoder");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        }));
+    }
+
+    /**
+     * Creates a cell streamer that loads cells on the given executor. An executor that runs
+     * tasks right away on the calling thread makes loading synchronous, which gives repeatable
+     * runs for tests and benchmarks.
+     * @param cellHeight The height of a cell, in world coordinates.
+     * @param decodeExecutor The executor to load and unload cells on.
+     */
+    public CellStreamer(int cellHeight, Executor decodeExecutor) {
+        this.cellHeight = cellHeight;
+        this.decodeExecutor = decodeExecutor;
+    }
+
+    /**
+     * Calculates how many cells ahead of the current one should be loaded at a given speed.
+     * The faster the spaceship goes the sooner it reaches new cells, so we need to start loading
+     * them earlier.
+     * @param speed The speed of the spaceship, in world units per tick.
+     * @return The number of cells ahead of the current cell to load, between 1 and MAX_CELLS_AHEAD.
+     */
+    public int getPrefetchDistance(float speed) {
+        int distance = 1 + (int) (speed * PREFETCH_TICKS / cellHeight);
+        return Math.min(distance, MAX_CELLS_AHEAD);
+    }
+
+    /**
+     * Queues a cell for loading. Does nothing if the cell has already been requested.
+     * @param cell The cell to load.
+     */
+    public void request(final StreamedCell cell) {
+        if(!cell.state.compareAndSet(StreamedCell.UNLOADED, StreamedCell.QUEUED))
+            return;
+
+        try {
+            decodeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // The cell might have been released while it was waiting in the queue.
+                    if(!cell.state.compareAndSet(StreamedCell.QUEUED, StreamedCell.LOADING))
+                        return;
+
+                    cell.onLoad();
+
+                    // If it was released while loading, it is our job to unload it again.
+                    if(!cell.state.compareAndSet(StreamedCell.LOADING, StreamedCell.LOADED))
+                        cell.onUnload();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue is full (or we have been shut down), the cell will be requested again later.
+            cell.state.compareAndSet(StreamedCell.QUEUED, StreamedCell.UNLOADED);
+        }
+    }
+
+    /**
+     * Removes a cell from the world. If it is loaded its data is freed on the decode thread.
+     * @param cell The cell to release.
+     */
+    public void release(final StreamedCell cell) {
+        int previousState = cell.state.getAndSet(StreamedCell.RELEASED);
+        if(previousState != StreamedCell.LOADED)
+            return;     // Nothing has been loaded, or the load task will unload it when done.
+
+        try {
+            decodeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    cell.onUnload();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Never leak a loaded cell, unloading here is cheaper than keeping it.
+            cell.onUnload();
+        }
+    }
+
+    /**
+     * Stops the decode threads. Pending loads are discarded.
+     */
+    public void shutdown() {
+        if(decodeExecutor instanceof ExecutorService)
+            ((ExecutorService) decodeExecutor).shutdownNow();
+    }
+}
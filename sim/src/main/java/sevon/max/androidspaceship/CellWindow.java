@@ -0,0 +1,96 @@
+package sevon.max.androidspaceship;
+
+/**
+ * A window of cells around the spaceship, kept in a ring buffer indexed by column and row (the
+ * cell number). Both axes wrap around, so looking up a cell is two masks and an array read, and
+ * the window slides in any direction without moving the cells in it. Cells a whole window width
+ * or height apart share a slot: putting a cell in a slot returns the cell it pushes out, which
+ * the caller then removes. A single column of cells, like a CellMap, is a window one column wide.
+ * Not thread safe.
+ * @param <T> The type of cells in the window.
+ */
+public class CellWindow<T> {
+
+    private final Object[] slots;
+    private final int[] slotColumns;    // Column and row of the cell in each slot.
+    private final int[] slotRows;
+    private final int columnMask;
+    private final int rowMask;
+    private final int rowShift;
+    private int size;
+
+    /**
+     * @param columns The number of columns in the window. Rounded up to a power of two.
+     * @param rows The number of rows in the window. Rounded up to a power of two.
+     */
+    public CellWindow(int columns, int rows) {
+        int columnCount = roundUpToPowerOfTwo(columns);
+        int rowCount = roundUpToPowerOfTwo(rows);
+        columnMask = columnCount - 1;
+        rowMask = rowCount - 1;
+        rowShift = Integer.numberOfTrailingZeros(columnCount);
+        slots = new Object[columnCount * rowCount];
+        slotColumns = new int[slots.length];
+        slotRows = new int[slots.length];
+    }
+
+    /**
+     * @param column The column of a cell.
+     * @param row The row of the cell, its cell number.
+     * @return The cell, or null if it isn't in the window.
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int column, int row) {
+        int slot = getSlot(column, row);
+        if(slots[slot] == null || slotColumns[slot] != column || slotRows[slot] != row)
+            return null;
+        return (T) slots[slot];
+    }
+
+    /**
+     * Puts a cell in the window.
+     * @param column The column of the cell.
+     * @param row The row of the cell, its cell number.
+     * @param cell The cell.
+     * @return The cell that was in the same slot, which is no longer in the window, or null.
+     */
+    @SuppressWarnings("unchecked")
+    public T put(int column, int row, T cell) {
+        int slot = getSlot(column, row);
+        T previous = (T) slots[slot];
+        if(previous == null)
+            size++;
+        slots[slot] = cell;
+        slotColumns[slot] = column;
+        slotRows[slot] = row;
+        return previous;
+    }
+
+    /**
+     * @param column The column of a cell.
+     * @param row The row of the cell, its cell number.
+     * @return The removed cell, or null if it wasn't in the window.
+     */
+    public T remove(int column, int row) {
+        T cell = get(column, row);
+        if(cell != null) {
+            slots[getSlot(column, row)] = null;
+            size--;
+        }
+        return cell;
+    }
+
+    public int size() { return size; }
+    public boolean isEmpty() { return size == 0; }
+    public int getColumns() { return columnMask + 1; }
+    public int getRows() { return rowMask + 1; }
+
+    private int getSlot(int column, int row) {
+        return ((row & rowMask) << rowShift) | (column & columnMask);
+    }
+
+    private static int roundUpToPowerOfTwo(int value) {
+        int length = Integer.highestOneBit(Math.max(1, value));
+        return length < value ? length << 1 : length;
+    }
+}
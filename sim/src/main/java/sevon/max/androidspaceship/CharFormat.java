@@ -0,0 +1,102 @@
+package sevon.max.androidspaceship;
+
+/**
+ * Writes text and numbers into char arrays without allocating anything, for text that is drawn
+ * every frame. Each method writes at an offset and returns the offset after the written chars.
+ * The caller is responsible for making the array large enough.
+ */
+public final class CharFormat {
+
+    private CharFormat() { }
+
+    /**
+     * Writes a string.
+     * @param buffer The array to write to.
+     * @param offset The index to start writing at.
+     * @param text The string to write.
+     * @return The index after the last written char.
+     */
+    public static int append(char[] buffer, int offset, String text) {
+        text.getChars(0, text.length(), buffer, offset);
+        return offset + text.length();
+    }
+
+    /**
+     * Writes an integer in decimal form.
+     * @param buffer The array to write to.
+     * @param offset The index to start writing at.
+     * @param value The value to write.
+     * @return The index after the last written char.
+     */
+    public static int appendInt(char[] buffer, int offset, long value) {
+        if(value < 0) {
+            buffer[offset++] = '-';
+            value = -value;     // Long.MIN_VALUE can't be negated, but scores never get there.
+        }
+
+        // Write the digits backwards, then reverse them.
+        int start = offset;
+        do {
+            buffer[offset++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while(value != 0);
+
+        for(int i = start, j = offset - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        return offset;
+    }
+
+    /**
+     * Writes a decimal number with a fixed number of decimals, rounded to the nearest value.
+     * @param buffer The array to write to.
+     * @param offset The index to start writing at.
+     * @param value The value to write.
+     * @param decimals The number of decimals to write.
+     * @return The index after the last written char.
+     */
+    public static int appendFixed(char[] buffer, int offset, float value, int decimals) {
+        return appendScaled(buffer, offset, Math.round((double) value * pow10(decimals)), decimals);
+    }
+
+    /**
+     * Writes a fixed-point number, stored as an integer scaled by 10^decimals. For example 15 with
+     * 1 decimal is written as 1.5.
+     * @param buffer The array to write to.
+     * @param offset The index to start writing at.
+     * @param scaled The value to write, multiplied by 10^decimals.
+     * @param decimals The number of decimals.
+     * @return The index after the last written char.
+     */
+    public static int appendScaled(char[] buffer, int offset, long scaled, int decimals) {
+        long scale = pow10(decimals);
+        if(scaled < 0) {
+            buffer[offset++] = '-';
+            scaled = -scaled;
+        }
+
+        offset = appendInt(buffer, offset, scaled / scale);
+        if(decimals > 0) {
+            buffer[offset++] = '.';
+            // Write the fraction with leading zeros.
+            long fraction = scaled % scale;
+            for(long digit = scale / 10; digit > 0; digit /= 10) {
+                buffer[offset++] = (char) ('0' + fraction / digit);
+                fraction %= digit;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * @return 10 to the power of n.
+     */
+    public static long pow10(int n) {
+        long result = 1;
+        for(int i = 0; i < n; i++)
+            result *= 10;
+        return result;
+    }
+}
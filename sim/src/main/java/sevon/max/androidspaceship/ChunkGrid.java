@@ -0,0 +1,381 @@
+package sevon.max.androidspaceship;
+
+import java.util.Random;
+
+/**
+ * A world of cells that goes on in every direction, not just upwards. Each cell (a chunk) is kept
+ * by its column and cell number in a CellWindow, the same index a CellMap uses, so finding the
+ * cell at a position is arithmetic and an array read. The window is twice as wide and tall as
+ * the load area; a chunk further away than that is evicted when a new chunk takes its slot.
+ * Chunks are loaded in a radius around the spaceship that reaches further in the direction it is
+ * moving: a chunk ahead counts as nearer than it is, one behind as further away. Chunks that
+ * leave that area stay loaded, so turning back is free, until the grid is over its memory budget.
+ * Then the chunks that left the area longest ago are evicted first, and of those the furthest.
+ * Chunks in the area are never evicted, so a budget smaller than the area is exceeded.
+ * Column 0 gets the same layouts and colors as a CellMap with the same seed. How long chunks take
+ * to load, how many load per second and how much memory they take are recorded.
+ * Not thread safe, should be used by the thread that updates the simulation.
+ */
+public class ChunkGrid implements CellGrid {
+
+    /**
+     * Creates the chunks of the world.
+     */
+    public interface Factory {
+        /**
+         * Creates a chunk. Its data is not loaded here, it is requested from the cell streamer
+         * afterwards.
+         * @param column The column of the chunk.
+         * @param cellNumber The cell number of the chunk, its row counted upwards.
+         * @param layout The index of the layout to use, 0 for the start cell, or
+         * CellMap.GENERATED_LAYOUT.
+         * @param color The color of the chunk's graphics, as ARGB.
+         * @param difficulty The difficulty to generate the chunk with, see CellGenerator.
+         * @return The created chunk.
+         */
+        Cell createCell(int column, int cellNumber, int layout, int color, int difficulty);
+    }
+
+    private static final float LOOKAHEAD_WEIGHT = 0.5f;   // Reaches twice the radius straight ahead.
+    private static final long COLUMN_SEED = 0x9e3779b97f4a7c15L;
+
+    private static class Chunk {
+        final Cell cell;
+        int index;              // Index in resident.
+        long lastWanted;        // The last update the chunk was in the load area.
+        long requestNanos;      // When the chunk was created, 0 once it has loaded.
+
+        Chunk(Cell cell) {
+            this.cell = cell;
+        }
+    }
+
+    private final Factory factory;
+    private final CellStreamer cellStreamer;
+    private final int layoutCount;
+    private final long seed;
+    private final int loadRadius;
+    private final int chunkBytes;
+    private final long memoryBudget;
+    private final Random rng = new Random();
+    private final Random colorRng = new Random();
+
+    private final CellWindow<Chunk> chunks;
+    private final Chunk[] resident;     // Every chunk in the window, in no particular order.
+    private int residentCount;
+
+    // The load area, nearest (after weighting) first. Only recomputed when the spaceship enters
+    // another chunk or turns.
+    private final int[] wantedColumns;
+    private final int[] wantedCellNumbers;
+    private final float[] wantedDistance;
+    private int wantedCount;
+    private int areaColumn;
+    private int areaCellNumber;
+    private int areaHeading = -1;       // -1: the area has to be recomputed.
+    private long updates;
+
+    private final LatencyStats loadTime = new LatencyStats();
+    private long loadedCount;
+    private long evictedCount;
+    private long firstRequestNanos;
+
+    /**
+     * @param factory Creates the chunks.
+     * @param cellStreamer Loads and unloads the chunks.
+     * @param layoutCount The number of layouts, including the start cell's. 1 generates all other
+     * chunks.
+     * @param seed Seed of the world.
+     * @param loadRadius How many chunks around the spaceship to load, when it stands still.
+     * @param chunkBytes The memory a loaded chunk takes.
+     * @param memoryBudget The memory chunks may take, in bytes.
+     */
+    public ChunkGrid(Factory factory, CellStreamer cellStreamer, int layoutCount, long seed,
+                     int loadRadius, int chunkBytes, long memoryBudget) {
+        this.factory = factory;
+        this.cellStreamer = cellStreamer;
+        this.layoutCount = layoutCount;
+        this.seed = seed;
+        this.loadRadius = loadRadius;
+        this.chunkBytes = chunkBytes;
+        this.memoryBudget = memoryBudget;
+
+        int side = 4 * loadRadius + 1;
+        wantedColumns = new int[side * side];
+        wantedCellNumbers = new int[side * side];
+        wantedDistance = new float[side * side];
+        chunks = new CellWindow<>(2 * side, 2 * side);
+        resident = new Chunk[chunks.getColumns() * chunks.getRows()];
+    }
+
+    /**
+     * Creates and requests the chunks in the load area, nearest first, and evicts chunks until
+     * the grid fits its memory budget.
+     */
+    @Override
+    public void update(int currentCellNumber, Vector2 position, Vector2 velocity, float speed) {
+        updates++;
+        int column = Cell.getColumnAt(position.getX());
+        int cellNumber = Cell.getCellNumberAt(position.getY());
+        int heading = getHeading(velocity);
+        if(column != areaColumn || cellNumber != areaCellNumber || heading != areaHeading)
+            updateArea(column, cellNumber, heading, velocity);
+
+        long now = System.nanoTime();
+        for(int i = 0; i < wantedCount; i++) {
+            Chunk chunk = chunks.get(wantedColumns[i], wantedCellNumbers[i]);
+            if(chunk == null)
+                chunk = addChunk(wantedColumns[i], wantedCellNumbers[i], now);
+            chunk.lastWanted = updates;
+            cellStreamer.request(chunk.cell);
+
+            if(chunk.requestNanos != 0 && chunk.cell.isLoaded()) {
+                loadTime.record(now - chunk.requestNanos);
+                loadedCount++;
+                chunk.requestNanos = 0;
+            }
+        }
+
+        while(residentCount * (long) chunkBytes > memoryBudget && evictOne(column, cellNumber)) { }
+    }
+
+    /**
+     * Removes all chunks.
+     */
+    @Override
+    public void clear() {
+        while(residentCount > 0)
+            remove(resident[residentCount - 1]);
+        areaHeading = -1;
+    }
+
+    /**
+     * Called when a chunk has been removed from the grid. Releases the chunk.
+     * @param cell The removed chunk.
+     */
+    protected void onCellRemoved(Cell cell) {
+        cellStreamer.release(cell);
+    }
+
+    @Override
+    public Cell getCellAt(float worldX, float worldY) {
+        Chunk chunk = chunks.get(Cell.getColumnAt(worldX), Cell.getCellNumberAt(worldY));
+        return chunk != null ? chunk.cell : null;
+    }
+
+    /**
+     * @param column A column.
+     * @param cellNumber A cell number.
+     * @return The chunk, or null if it isn't in the grid.
+     */
+    public Cell getCell(int column, int cellNumber) {
+        Chunk chunk = chunks.get(column, cellNumber);
+        return chunk != null ? chunk.cell : null;
+    }
+
+    /**
+     * @return The number of chunks in the grid, loaded or not.
+     */
+    @Override
+    public int size() { return residentCount; }
+
+    /**
+     * @param index Index of the chunk, chunks are in no particular order.
+     * @return The chunk at the index.
+     */
+    @Override
+    public Cell get(int index) { return resident[index].cell; }
+
+    @Override
+    public long getSeed() { return seed; }
+    @Override
+    public int getLayoutCount() { return layoutCount; }
+
+    /**
+     * @return The most chunks the grid holds after an update: its budget, or the load area if
+     * that is bigger.
+     */
+    public int getMaxSize() {
+        return (int) Math.max(memoryBudget / chunkBytes, wantedColumns.length);
+    }
+
+    /**
+     * @param seed Seed of the world.
+     * @param column A column.
+     * @return The seed of the column's chunks, the world's seed for column 0. Add the cell number
+     * to get the seed of a chunk.
+     */
+    public static long getColumnSeed(long seed, int column) {
+        return seed + column * COLUMN_SEED;
+    }
+
+    /**
+     * @return The memory taken by the chunks in the grid, counting chunkBytes per chunk.
+     */
+    public long getResidentBytes() { return residentCount * (long) chunkBytes; }
+    public long getMemoryBudget() { return memoryBudget; }
+
+    /**
+     * @return The number of chunks that have finished loading.
+     */
+    public long getLoadedCount() { return loadedCount; }
+    public long getEvictedCount() { return evictedCount; }
+
+    /**
+     * @return The time from a chunk being created to it being seen loaded by update().
+     */
+    public LatencyStats getLoadTime() { return loadTime; }
+
+    /**
+     * @return The number of chunks loaded per second since the first chunk was created.
+     */
+    public float getLoadThroughput() {
+        long elapsed = System.nanoTime() - firstRequestNanos;
+        if(firstRequestNanos == 0 || elapsed <= 0)
+            return 0;
+        return loadedCount * 1e9f / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "resident " + residentCount + " (" + getResidentBytes() / 1024 + " of " + memoryBudget / 1024
+                + " KB), loaded " + loadedCount + String.format(" (%.1f/s)", getLoadThroughput())
+                + ", evicted " + evictedCount + ", load time " + loadTime;
+    }
+
+    /**
+     * Quantizes the direction the spaceship moves in, so the load area is only recomputed when it
+     * turns noticeably: which way it moves on each axis, and which axis it moves along the most.
+     */
+    private static int getHeading(Vector2 velocity) {
+        float x = velocity.getX() / Cell.WIDTH;
+        float y = velocity.getY() / Cell.HEIGHT;
+        int heading = 0;
+        if(x != 0)
+            heading |= x > 0 ? 1 : 2;
+        if(y != 0)
+            heading |= y > 0 ? 4 : 8;
+        if(Math.abs(x) > Math.abs(y))
+            heading |= 16;
+        return heading;
+    }
+
+    /**
+     * Finds the chunks in the load area and sorts them by their weighted distance. Distances are
+     * in chunks, between chunk centers, and a chunk ahead counts as nearer by LOOKAHEAD_WEIGHT
+     * times how far ahead it is.
+     */
+    private void updateArea(int column, int cellNumber, int heading, Vector2 velocity) {
+        areaColumn = column;
+        areaCellNumber = cellNumber;
+        areaHeading = heading;
+
+        float directionX = velocity.getX() / Cell.WIDTH;
+        float directionY = velocity.getY() / Cell.HEIGHT;
+        float length = (float) Math.sqrt(directionX * directionX + directionY * directionY);
+        if(length > 0) {
+            directionX /= length;
+            directionY /= length;
+        }
+
+        wantedCount = 0;
+        int reach = 2 * loadRadius;
+        for(int dy = -reach; dy <= reach; dy++) {
+            for(int dx = -reach; dx <= reach; dx++) {
+                float distance = (float) Math.sqrt(dx * dx + dy * dy) - LOOKAHEAD_WEIGHT * (dx * directionX + dy * directionY);
+                if(distance > loadRadius)
+                    continue;
+
+                // Insertion sort, the area is small. Rows go up as the world y-coordinate goes down.
+                int i = wantedCount++;
+                while(i > 0 && wantedDistance[i - 1] > distance) {
+                    wantedColumns[i] = wantedColumns[i - 1];
+                    wantedCellNumbers[i] = wantedCellNumbers[i - 1];
+                    wantedDistance[i] = wantedDistance[i - 1];
+                    i--;
+                }
+                wantedColumns[i] = column + dx;
+                wantedCellNumbers[i] = cellNumber - dy;
+                wantedDistance[i] = distance;
+            }
+        }
+    }
+
+    private Chunk addChunk(int column, int cellNumber, long now) {
+        Chunk chunk = new Chunk(createCell(column, cellNumber));
+        chunk.requestNanos = now;
+        if(firstRequestNanos == 0)
+            firstRequestNanos = now;
+
+        // The chunk in the same slot is at least a window away, well out of the load area.
+        Chunk displaced = chunks.put(column, cellNumber, chunk);
+        if(displaced != null) {
+            removeResident(displaced);
+            evictedCount++;
+        }
+        chunk.index = residentCount;
+        resident[residentCount++] = chunk;
+        return chunk;
+    }
+
+    /**
+     * Evicts the chunk that left the load area longest ago, the furthest one if several left it
+     * at the same time.
+     * @return False if every chunk is in the load area.
+     */
+    private boolean evictOne(int column, int cellNumber) {
+        Chunk victim = null;
+        long victimDistance = 0;
+        for(int i = 0; i < residentCount; i++) {
+            Chunk chunk = resident[i];
+            if(chunk.lastWanted == updates)
+                continue;
+
+            long dx = chunk.cell.getColumn() - column;
+            long dy = chunk.cell.getCellNumber() - cellNumber;
+            long distance = dx * dx + dy * dy;
+            if(victim == null || chunk.lastWanted < victim.lastWanted
+                    || (chunk.lastWanted == victim.lastWanted && distance > victimDistance)) {
+                victim = chunk;
+                victimDistance = distance;
+            }
+        }
+
+        if(victim == null)
+            return false;
+        remove(victim);
+        evictedCount++;
+        return true;
+    }
+
+    private void remove(Chunk chunk) {
+        chunks.remove(chunk.cell.getColumn(), chunk.cell.getCellNumber());
+        removeResident(chunk);
+    }
+
+    /**
+     * Takes a chunk that is no longer in the window out of the resident chunks and releases it.
+     */
+    private void removeResident(Chunk chunk) {
+        Chunk last = resident[--residentCount];
+        resident[chunk.index] = last;
+        last.index = chunk.index;
+        resident[residentCount] = null;
+        onCellRemoved(chunk.cell);
+    }
+
+    /**
+     * Creates a chunk. Column 0 is seeded like a CellMap, so it is the same world.
+     */
+    private Cell createCell(int column, int cellNumber) {
+        rng.setSeed(getColumnSeed(seed, column) + cellNumber);
+        int color = CellMap.getRandomColor(colorRng, rng.nextInt());
+        int layout = 0;
+
+        boolean start = column == 0 && cellNumber == 0;
+        if(!start)
+            layout = CellMap.getRandomLayout(rng, layoutCount);
+
+        return factory.createCell(column, cellNumber, layout, color, CellGenerator.getDifficulty(cellNumber));
+    }
+}
@@ -0,0 +1,112 @@
+package sevon.max.androidspaceship;
+
+import java.util.Arrays;
+
+/**
+ * A packed 1-bit-per-pixel occupancy mask used for collision detection.
+ * Each row is stored as a number of 64-bit words, so a 512x1024 cell needs 8192 longs (64 KB).
+ * The mask is built once when a cell is loaded, after that a collision query is just a bit test.
+ */
+public class CollisionMask {
+
+    private final int width;
+    private final int height;
+    private final int wordsPerRow;
+    private final long[] bits;
+
+    /**
+     * Creates an empty mask (no solid pixels).
+     * @param width The width of the mask in pixels.
+     * @param height The height of the mask in pixels.
+     */
+    public CollisionMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        wordsPerRow = (width + 63) >>> 6;
+        bits = new long[wordsPerRow * height];
+    }
+
+    /**
+     * Sets one row of the mask from a row of ARGB pixels. A pixel is solid if its alpha value is > 0.
+     * @param y The row to set.
+     * @param pixels The ARGB pixels of the row, at least width long.
+     */
+    public void setRow(int y, int[] pixels) {
+        int rowStart = y * wordsPerRow;
+        for(int word = 0; word < wordsPerRow; word++) {
+            long packed = 0;
+            int x = word << 6;
+            int end = Math.min(x + 64, width);
+            for(; x < end; x++) {
+                // Alpha lives in the top byte, so any pixel with alpha > 0 is != 0 after the shift.
+                if((pixels[x] >>> 24) != 0)
+                    packed |= 1L << x;
+            }
+            bits[rowStart + word] = packed;
+        }
+    }
+
+    /**
+     * Marks a run of pixels in a row as solid.
+     * @param y The row.
+     * @param from The x-coordinate of the first solid pixel.
+     * @param to The x-coordinate after the last solid pixel.
+     */
+    public void fillRow(int y, int from, int to) {
+        if(from >= to)
+            return;
+        int rowStart = y * wordsPerRow;
+        int firstWord = from >>> 6;
+        int lastWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;               // Bits from 'from' up, within its word.
+        long lastMask = -1L >>> (63 - ((to - 1) & 63));  // Bits up to 'to - 1', within its word.
+        if(firstWord == lastWord) {
+            bits[rowStart + firstWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[rowStart + firstWord] |= firstMask;
+        for(int word = firstWord + 1; word < lastWord; word++)
+            bits[rowStart + word] = -1L;
+        bits[rowStart + lastWord] |= lastMask;
+    }
+
+    /**
+     * Makes every pixel free.
+     */
+    public void clear() {
+        Arrays.fill(bits, 0);
+    }
+
+    /**
+     * Marks a single pixel as solid or free.
+     * @param x The x-coordinate of the pixel.
+     * @param y The y-coordinate of the pixel.
+     * @param solid True if the pixel should be solid.
+     */
+    public void set(int x, int y, boolean solid) {
+        int index = y * wordsPerRow + (x >>> 6);
+        if(solid)
+            bits[index] |= 1L << x;
+        else
+            bits[index] &= ~(1L << x);
+    }
+
+    /**
+     * Checks if the pixel at the specified coordinate is solid. Coordinates outside of the mask are
+     * never solid.
+     * @param x The x-coordinate to check at.
+     * @param y The y-coordinate to check at.
+     * @return True if the pixel is solid.
+     */
+    public boolean isSolid(int x, int y) {
+        if((x | y) < 0 || x >= width || y >= height)
+            return false;
+
+        // Shifting a long only uses the lowest 6 bits of the shift distance, so 1L << x is the
+        // bit of x within its word.
+        return (bits[y * wordsPerRow + (x >>> 6)] & (1L << x)) != 0;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
@@ -0,0 +1,120 @@
+package sevon.max.androidspaceship;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes collision masks in a compact run-length format, so the walls of a cell can be
+ * loaded without decoding its image:
+ * int      MAGIC
+ * int      VERSION
+ * int      width
+ * int      height
+ * for every row, varint run lengths alternating between free and solid pixels, starting with
+ * free, until the row is full
+ * Walls are large solid areas, so most rows only take a few bytes. Varints are unsigned, 7 bits
+ * per byte, low bits first. Ints are big endian.
+ * The files are generated at build time by CollisionAssetTool.
+ */
+public final class CollisionMaskFile {
+
+    public static final int MAGIC = 0x434d534b;     // "CMSK"
+    public static final int VERSION = 1;
+    public static final String EXTENSION = ".cmask";
+
+    private CollisionMaskFile() { }
+
+    /**
+     * Encodes a mask.
+     * @param mask The mask.
+     * @return The encoded mask.
+     */
+    public static byte[] encode(CollisionMask mask) {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        // A row can't have more runs than pixels, plus one.
+        ByteBuffer buffer = ByteBuffer.allocate(16 + height * (width + 1) * 5);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(height);
+
+        for(int y = 0; y < height; y++) {
+            boolean solid = false;
+            int runStart = 0;
+            for(int x = 0; x < width; x++) {
+                if(mask.isSolid(x, y) != solid) {
+                    putVarint(buffer, x - runStart);
+                    runStart = x;
+                    solid = !solid;
+                }
+            }
+            putVarint(buffer, width - runStart);
+        }
+
+        byte[] data = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * Decodes a mask. The buffer can be direct or memory mapped; it is read from its position.
+     * @param buffer The encoded mask.
+     * @param reuse A mask to decode into if it has the right size, or null.
+     * @return The decoded mask, reuse if it could be used.
+     * @throws IOException If the data isn't a valid collision mask.
+     */
+    public static CollisionMask decode(ByteBuffer buffer, CollisionMask reuse) throws IOException {
+        if(buffer.remaining() < 16 || buffer.getInt() != MAGIC)
+            throw new IOException("Not a collision mask");
+        int version = buffer.getInt();
+        if(version != VERSION)
+            throw new IOException("Unknown collision mask version " + version);
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        if(width <= 0 || height <= 0)
+            throw new IOException("Bad collision mask size " + width + "x" + height);
+
+        CollisionMask mask;
+        if(reuse != null && reuse.getWidth() == width && reuse.getHeight() == height) {
+            mask = reuse;
+            mask.clear();
+        } else {
+            mask = new CollisionMask(width, height);
+        }
+
+        for(int y = 0; y < height; y++) {
+            boolean solid = false;
+            int x = 0;
+            while(x < width) {
+                int run = getVarint(buffer);
+                if(run > width - x)
+                    throw new IOException("Run past the end of row " + y);
+                if(solid)
+                    mask.fillRow(y, x, x + run);
+                x += run;
+                solid = !solid;
+            }
+        }
+        return mask;
+    }
+
+    private static void putVarint(ByteBuffer buffer, int value) {
+        while((value & ~0x7f) != 0) {
+            buffer.put((byte) ((value & 0x7f) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static int getVarint(ByteBuffer buffer) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            if(!buffer.hasRemaining())
+                throw new IOException("Collision mask ends too early");
+            byte b = buffer.get();
+            value |= (b & 0x7f) << shift;
+            if(b >= 0)
+                return value;
+        }
+        throw new IOException("Bad varint");
+    }
+}
@@ -0,0 +1,73 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The text of an on-screen counter, like "Score: 120" or "Speed: 2.5". The text is kept in a
+ * char array and only formatted again when the value changes, without allocating anything.
+ * Values are stored as fixed-point integers with a set number of decimals, so two values that
+ * look the same on screen are the same value.
+ */
+public class CounterText {
+
+    private static final int MAX_LENGTH = 24;  // Enough for the sign, 19 digits, a point and a few decimals.
+
+    private final String label;
+    private final int decimals;
+    private final long scale;
+    private final char[] chars;
+    private int length;
+    private long scaledValue;
+    private boolean formatted;
+
+    /**
+     * @param label Text written before the value.
+     * @param decimals The number of decimals to show.
+     */
+    public CounterText(String label, int decimals) {
+        this.label = label;
+        this.decimals = decimals;
+        scale = CharFormat.pow10(decimals);
+        chars = new char[label.length() + MAX_LENGTH];
+        length = CharFormat.append(chars, 0, label);
+    }
+
+    /**
+     * Sets the value of the counter.
+     * @param value The new value.
+     * @return True if the text changed.
+     */
+    public boolean setValue(long value) {
+        return setScaledValue(value * scale);
+    }
+
+    /**
+     * Sets the value of the counter, rounded to the counter's number of decimals.
+     * @param value The new value.
+     * @return True if the text changed.
+     */
+    public boolean setValue(float value) {
+        return setScaledValue(Math.round((double) value * scale));
+    }
+
+    private boolean setScaledValue(long scaled) {
+        if(formatted && scaled == scaledValue)
+            return false;
+
+        scaledValue = scaled;
+        formatted = true;
+        length = CharFormat.appendScaled(chars, label.length(), scaled, decimals);
+        return true;
+    }
+
+    /**
+     * @return The chars of the text. Only the first length() chars are valid.
+     */
+    public char[] getChars() { return chars; }
+
+    /**
+     * @return The length of the text.
+     */
+    public int length() { return length; }
+
+    @Override
+    public String toString() { return new String(chars, 0, length); }
+}
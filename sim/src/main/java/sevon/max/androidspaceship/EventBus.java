@@ -0,0 +1,174 @@
+package sevon.max.androidspaceship;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands game events from the game thread to listeners on their own executors.
+ * Every subscription has its own ring buffer of preallocated events. Publishing copies the event
+ * into each ring and schedules the subscription's executor if it isn't already draining, so
+ * publishing never locks, allocates or waits. A slow listener only fills its own ring; when the
+ * ring is full further events for that listener are dropped and counted, the game is never held
+ * up. Events should be published from one thread at a time.
+ */
+public class EventBus {
+
+    /**
+     * A listener, its executor and its ring of events. Also keeps statistics of how the listener
+     * keeps up.
+     */
+    public static class Subscription {
+        private final GameEventListener listener;
+        private final Executor executor;
+        private final GameEvent[] events;
+        private final GameEventData[] data;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();       // Next event to deliver. Written by the drain.
+        private final AtomicLong tail = new AtomicLong();       // Next free slot. Written by the publisher.
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final LatencyStats latency = new LatencyStats();
+        private volatile int maxQueueDepth;
+
+        private final Runnable drainTask = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+
+        private Subscription(GameEventListener listener, Executor executor, int capacity) {
+            this.listener = listener;
+            this.executor = executor;
+            events = new GameEvent[capacity];
+            data = new GameEventData[capacity];
+            for(int i = 0; i < capacity; i++)
+                data[i] = new GameEventData();
+            mask = capacity - 1;
+        }
+
+        private void publish(GameEvent event, int tick, long now, float x, float y, float value, int cellNumber) {
+            long t = tail.get();
+            long depth = t - head.get();
+            if(depth >= events.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+
+            int index = (int) t & mask;
+            events[index] = event;
+            data[index].set(tick, now, x, y, value, cellNumber);
+            // A full fence, not lazySet: the read of scheduled below must not move before this
+            // store, or the drain could miss the event and go to sleep.
+            tail.set(t + 1);
+
+            if(depth + 1 > maxQueueDepth)
+                maxQueueDepth = (int) depth + 1;
+            if(scheduled.compareAndSet(false, true))
+                executor.execute(drainTask);
+        }
+
+        /**
+         * Delivers events until the ring is empty. Runs on the listener's executor.
+         */
+        private void drain() {
+            while(true) {
+                long h = head.get();
+                while(h < tail.get()) {
+                    int index = (int) h & mask;
+                    GameEventData eventData = data[index];
+                    try {
+                        listener.notify(events[index], eventData);
+                    } catch (RuntimeException e) {
+                        // Keep delivering, one bad event shouldn't silence the listener.
+                        failed.incrementAndGet();
+                    }
+                    latency.record(System.nanoTime() - eventData.getNanoTime());
+                    head.lazySet(++h);
+                }
+
+                // An event published after the check above but before this either sees the flag
+                // set and is picked up by the loop, or reschedules the drain itself.
+                scheduled.set(false);
+                if(h == tail.get() || !scheduled.compareAndSet(false, true))
+                    return;
+            }
+        }
+
+        /**
+         * @return The time from events being published to the listener having handled them.
+         */
+        public LatencyStats getLatency() { return latency; }
+
+        /**
+         * @return The number of events published but not yet handled by the listener.
+         */
+        public int getQueueDepth() { return (int) (tail.get() - head.get()); }
+        public int getMaxQueueDepth() { return maxQueueDepth; }
+
+        /**
+         * @return The number of events the listener missed because its ring was full.
+         */
+        public long getDropped() { return dropped.get(); }
+
+        /**
+         * @return The number of events the listener threw an exception for.
+         */
+        public long getFailed() { return failed.get(); }
+
+        @Override
+        public String toString() {
+            return "latency " + latency + ", max queue depth " + maxQueueDepth + ", dropped " + getDropped()
+                    + ", failed " + getFailed();
+        }
+    }
+
+    private final int capacity;
+    private volatile Subscription[] subscriptions = new Subscription[0];
+
+    /**
+     * @param capacity The number of events each listener can fall behind. Rounded up to a power
+     * of two.
+     */
+    public EventBus(int capacity) {
+        int size = 1;
+        while(size < capacity)
+            size <<= 1;
+        this.capacity = size;
+    }
+
+    /**
+     * Subscribes a listener.
+     * @param listener The listener.
+     * @param executor Runs the listener. CellStreamer.IMMEDIATE_EXECUTOR calls it right away on
+     * the publishing thread.
+     * @return The subscription, for its statistics.
+     */
+    public synchronized Subscription subscribe(GameEventListener listener, Executor executor) {
+        Subscription subscription = new Subscription(listener, executor, capacity);
+        Subscription[] current = subscriptions;
+        Subscription[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = subscription;
+        subscriptions = updated;    // Copy on write, so publish() never locks.
+        return subscription;
+    }
+
+    /**
+     * Publishes an event to every listener.
+     * @param event The event.
+     * @param tick The number of ticks the spaceship has moved.
+     * @param x The x-coordinate of the event, in world coordinates.
+     * @param y The y-coordinate of the event, in world coordinates.
+     * @param value A value that depends on the event.
+     * @param cellNumber The cell the event happened in.
+     */
+    public void publish(GameEvent event, int tick, float x, float y, float value, int cellNumber) {
+        long now = System.nanoTime();
+        Subscription[] current = subscriptions;
+        for(int i = 0; i < current.length; i++)
+            current[i].publish(event, tick, now, x, y, value, cellNumber);
+    }
+}
@@ -0,0 +1,84 @@
+package sevon.max.androidspaceship;
+
+/**
+ * Hands frames from the game thread to a render thread without either of them having to wait for
+ * the other. The game thread fills in the back frame and publishes it; the render thread picks
+ * up the latest published frame and draws it. Three frames are used, so the game thread always
+ * has a back frame to write while the render thread holds on to the front one.
+ * A published frame must not be modified again until it has come back as the back frame.
+ * @param <T> The type of the frames.
+ */
+public class FrameExchange<T> {
+
+    private T back;         // Being written by the game thread.
+    private T pending;      // Latest published frame, not yet picked up.
+    private T front;        // Being drawn by the render thread.
+    private boolean fresh;  // True if pending holds a frame that hasn't been picked up.
+    private long publishedSequence;
+    private long pendingSequence;
+    private long acquiredSequence;
+
+    public FrameExchange(T back, T pending, T front) {
+        this.back = back;
+        this.pending = pending;
+        this.front = front;
+    }
+
+    /**
+     * @return The frame the game thread should write the next frame to.
+     */
+    public synchronized T getBack() { return back; }
+
+    /**
+     * Publishes the back frame. Called by the game thread when it has written the frame. If the
+     * previous published frame was never picked up it is dropped.
+     * @return The sequence number of the published frame.
+     */
+    public synchronized long publish() {
+        T published = back;
+        back = pending;
+        pending = published;
+        pendingSequence = ++publishedSequence;
+        fresh = true;
+        notifyAll();
+        return publishedSequence;
+    }
+
+    /**
+     * Picks up the latest published frame. Called by the render thread before drawing.
+     * @return The latest published frame, or the previous one if nothing new has been published.
+     */
+    public synchronized T acquire() {
+        if(fresh) {
+            T acquired = pending;
+            pending = front;
+            front = acquired;
+            acquiredSequence = pendingSequence;
+            fresh = false;
+        }
+        return front;
+    }
+
+    /**
+     * Waits until a frame that hasn't been picked up yet has been published.
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if there is a new frame.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized boolean awaitFrame(long timeoutMillis) throws InterruptedException {
+        if(!fresh && timeoutMillis > 0)
+            wait(timeoutMillis);
+        return fresh;
+    }
+
+    /**
+     * @return The sequence number of the last published frame.
+     */
+    public synchronized long getPublishedSequence() { return publishedSequence; }
+
+    /**
+     * @return The sequence number of the frame the render thread is drawing, or last drew. Frames
+     * with a lower sequence number are no longer used by the render thread.
+     */
+    public synchronized long getAcquiredSequence() { return acquiredSequence; }
+}
@@ -0,0 +1,81 @@
+package sevon.max.androidspaceship;
+
+import java.util.Arrays;
+
+/**
+ * The durations of the last frames, for frame time percentiles and jank counts. A frame that
+ * takes more than one and a half frame budgets has missed at least one display refresh and counts
+ * as jank; more than three budgets counts as severe jank. Should only be used from one thread.
+ */
+public class FrameTimes {
+
+    private static final long MAX_FRAME_NANOS = 1000000000L;   // Longer gaps are pauses, not frames.
+
+    private final long budgetNanos;
+    private final long[] frames;
+    private final long[] sorted;    // Scratch array for percentiles.
+    private int count;
+    private int next;
+    private long jankCount;
+    private long severeJankCount;
+    private long previousFrameStart;
+
+    /**
+     * @param budgetNanos The time one frame should take, for example 1/60 s.
+     * @param capacity The number of frames percentiles are computed over.
+     */
+    public FrameTimes(long budgetNanos, int capacity) {
+        this.budgetNanos = budgetNanos;
+        frames = new long[capacity];
+        sorted = new long[capacity];
+    }
+
+    /**
+     * Records the start of a frame. The duration of a frame is the time until the next one starts.
+     * A gap of more than a second is taken to be a pause and isn't recorded.
+     * @param nanoTime The time the frame started, from System.nanoTime().
+     */
+    public void frameStarted(long nanoTime) {
+        if(previousFrameStart != 0 && nanoTime - previousFrameStart <= MAX_FRAME_NANOS)
+            record(nanoTime - previousFrameStart);
+        previousFrameStart = nanoTime;
+    }
+
+    /**
+     * Records the duration of a frame.
+     * @param nanos The duration, in nanoseconds.
+     */
+    public void record(long nanos) {
+        frames[next] = nanos;
+        next = (next + 1) % frames.length;
+        if(count < frames.length)
+            count++;
+        if(nanos * 2 > budgetNanos * 3)
+            jankCount++;
+        if(nanos > budgetNanos * 3)
+            severeJankCount++;
+    }
+
+    /**
+     * Gets a frame time percentile over the recorded frames. Sorts the frames, so it shouldn't be
+     * called for every frame.
+     * @param fraction The fraction of frames, for example 0.95 for the 95th percentile.
+     * @return The duration no more than that fraction of frames exceeded, or 0 if none are recorded.
+     */
+    public long getPercentileNanos(double fraction) {
+        if(count == 0)
+            return 0;
+        System.arraycopy(frames, 0, sorted, 0, count);
+        Arrays.sort(sorted, 0, count);
+        int index = (int) Math.ceil(fraction * count) - 1;
+        return sorted[Math.max(0, Math.min(index, count - 1))];
+    }
+
+    public int getFrameCount() { return count; }
+
+    /**
+     * @return The number of frames since the start that missed at least one display refresh.
+     */
+    public long getJankCount() { return jankCount; }
+    public long getSevereJankCount() { return severeJankCount; }
+}
@@ -0,0 +1,18 @@
+package sevon.max.androidspaceship;
+
+/**
+ * Enum used for indicating a specific event has occurred in the game. The details of the event
+ * are in the GameEventData it is sent with.
+ */
+public enum GameEvent {
+    /** A new game has started. Position is the spaceship's starting position. */
+    GAME_STARTED,
+    /** The spaceship has moved on to another cell. Cell number is the new cell. */
+    CELL_ENTERED,
+    /** The spaceship got faster. Value is the new speed. */
+    SPEED_UP,
+    /** The spaceship came close to a wall without hitting it. Position is the close point. */
+    NEAR_MISS,
+    /** The spaceship hit a wall. Position is where it crashed. */
+    SPACESHIP_CRASH
+}
@@ -0,0 +1,50 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The details of a game event. Instances belong to the event bus and are reused for later events,
+ * so listeners must copy what they need before returning from notify().
+ */
+public final class GameEventData {
+
+    private int tick;
+    private long nanoTime;
+    private float x;
+    private float y;
+    private float value;
+    private int cellNumber;
+
+    void set(int tick, long nanoTime, float x, float y, float value, int cellNumber) {
+        this.tick = tick;
+        this.nanoTime = nanoTime;
+        this.x = x;
+        this.y = y;
+        this.value = value;
+        this.cellNumber = cellNumber;
+    }
+
+    /**
+     * @return The number of ticks the spaceship had moved when the event happened.
+     */
+    public int getTick() { return tick; }
+
+    /**
+     * @return When the event was published, from System.nanoTime().
+     */
+    public long getNanoTime() { return nanoTime; }
+
+    /**
+     * @return The x-coordinate of the event, in world coordinates.
+     */
+    public float getX() { return x; }
+
+    /**
+     * @return The y-coordinate of the event, in world coordinates.
+     */
+    public float getY() { return y; }
+
+    /**
+     * @return A value that depends on the event, for example the new speed.
+     */
+    public float getValue() { return value; }
+    public int getCellNumber() { return cellNumber; }
+}
@@ -0,0 +1,14 @@
+package sevon.max.androidspaceship;
+
+/**
+ * Created by Max on 2016-01-21.
+ */
+public interface GameEventListener {
+    /**
+     * Called on the executor the listener was subscribed with.
+     * @param event The event.
+     * @param data The details of the event. Only valid until this method returns.
+     */
+    void notify(GameEvent event, GameEventData data);
+
+}
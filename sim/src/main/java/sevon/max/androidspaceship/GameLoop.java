@@ -0,0 +1,135 @@
+package sevon.max.androidspaceship;
+
+/**
+ * A fixed timestep game loop. The game is updated in steps of a fixed length of time, however
+ * long each frame takes, so the game runs at the same speed on slow and fast devices. Time that
+ * isn't enough for a whole step is carried over to the next frame and used to interpolate between
+ * the last two game states when rendering.
+ * If a frame takes so long that more than a few steps would be needed to catch up, the rest of the
+ * time is dropped; the game slows down a bit rather than spending every frame catching up.
+ */
+public class GameLoop {
+
+    public static final long STEP_NANOS = 1000000000L / 60;    // 60 updates per second.
+    public static final int MAX_STEPS_PER_FRAME = 5;
+
+    /**
+     * The game driven by the loop.
+     */
+    public interface Game {
+        /**
+         * Advances the game by one fixed step.
+         * @return False if the game is over and the loop should stop.
+         */
+        boolean update();
+
+        /**
+         * Renders the game.
+         * @param interpolation How far between the previous and the current step to render, in
+         * the range [0, 1).
+         */
+        void render(float interpolation);
+    }
+
+    /**
+     * Source of time for the loop, so it can be driven by a fake clock in tests.
+     */
+    public interface Clock {
+        long nanoTime();
+        void sleep(long nanos) throws InterruptedException;
+    }
+
+    public static final Clock SYSTEM_CLOCK = new Clock() {
+        @Override
+        public long nanoTime() { return System.nanoTime(); }
+
+        @Override
+        public void sleep(long nanos) throws InterruptedException {
+            Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+        }
+    };
+
+    private final Game game;
+    private final Clock clock;
+    private final long stepNanos;
+    private final int maxStepsPerFrame;
+    private long previousTime;
+    private long accumulator;       // Time not yet simulated, in nanoseconds.
+    private Profiler.Track track = Profiler.NO_TRACK;
+
+    public GameLoop(Game game, Clock clock) {
+        this(game, clock, STEP_NANOS, MAX_STEPS_PER_FRAME);
+    }
+
+    /**
+     * @param game The game to drive.
+     * @param clock The clock to measure time with.
+     * @param stepNanos The length of one step, in nanoseconds.
+     * @param maxStepsPerFrame The maximum number of steps run in a single frame.
+     */
+    public GameLoop(Game game, Clock clock, long stepNanos, int maxStepsPerFrame) {
+        this.game = game;
+        this.clock = clock;
+        this.stepNanos = stepNanos;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+        reset();
+    }
+
+    /**
+     * Sets the profiler track the loop records its frames, updates, renders and sleeps in.
+     */
+    public void setProfilerTrack(Profiler.Track track) {
+        this.track = track;
+    }
+
+    /**
+     * Forgets all time that has passed so far. Should be called after the loop hasn't run for a
+     * while (for example when the game has been paused) so it doesn't try to catch up.
+     */
+    public void reset() {
+        previousTime = clock.nanoTime();
+        accumulator = 0;
+    }
+
+    /**
+     * Runs one frame: updates the game as many steps as the time since the last frame allows,
+     * renders it, and sleeps until the next step is due.
+     * @return False if the game is over.
+     * @throws InterruptedException If interrupted while sleeping.
+     */
+    public boolean runFrame() throws InterruptedException {
+        long frameStart = track.begin();
+        long now = clock.nanoTime();
+        accumulator += now - previousTime;
+        previousTime = now;
+
+        // Don't try to catch up more than a few steps.
+        long maxAccumulator = maxStepsPerFrame * stepNanos;
+        if(accumulator > maxAccumulator)
+            accumulator = maxAccumulator;
+
+        while(accumulator >= stepNanos) {
+            long updateStart = track.begin();
+            boolean running = game.update();
+            track.end(Profiler.Section.UPDATE, updateStart);
+            if(!running)
+                return false;
+            accumulator -= stepNanos;
+        }
+
+        long renderStart = track.begin();
+        game.render((float) accumulator / stepNanos);
+        track.end(Profiler.Section.PUBLISH, renderStart);
+
+        // Sleep for what is left until the next step.
+        long timeToNextStep = stepNanos - accumulator - (clock.nanoTime() - now);
+        if(timeToNextStep > 0) {
+            long sleepStart = track.begin();
+            clock.sleep(timeToNextStep);
+            track.end(Profiler.Section.SLEEP, sleepStart);
+        }
+
+        track.end(Profiler.Section.FRAME, frameStart);
+        return true;
+    }
+}
@@ -0,0 +1,196 @@
+package sevon.max.androidspaceship;
+
+/**
+ * Runs a game loop on its own thread and moves it between explicit states:
+ * RUNNING runs frames, PAUSED parks the thread until resumed, CRASHED_COOLDOWN waits out a short
+ * delay after the game has ended (so the crash can be seen and heard) and STOPPED ends the thread.
+ * Waiting is done on a monitor that every state change notifies, so a paused or cooling down
+ * thread uses no CPU but still reacts at once to resume() and stop().
+ * The cooldown is measured with the loop's clock, so the scheduler can be tested with a fake clock
+ * by calling tick() directly instead of start().
+ */
+public class GameScheduler {
+
+    public enum State {
+        RUNNING, PAUSED, CRASHED_COOLDOWN, STOPPED
+    }
+
+    /**
+     * Gets told when the game is over.
+     */
+    public interface Listener {
+        /**
+         * Called on the game thread when the cooldown after a crash is over. The scheduler is
+         * stopped after this.
+         */
+        void onCooldownFinished();
+    }
+
+    private final GameLoop loop;
+    private final GameLoop.Clock clock;
+    private final long cooldownNanos;
+    private final Listener listener;
+
+    private final Object lock = new Object();   // Guards all fields below.
+    private State state = State.RUNNING;
+    private State resumeState;                  // State to go back to when resumed.
+    private long cooldownEnd;
+    private long cooldownLeft;                  // Cooldown left when paused during the cooldown.
+    private boolean resetLoop;
+    private Thread thread;
+
+    /**
+     * @param loop The game loop to run.
+     * @param clock The clock the loop uses, also used to time the cooldown.
+     * @param cooldownNanos How long to wait after the game has ended, in nanoseconds.
+     * @param listener Gets told when the cooldown is over.
+     */
+    public GameScheduler(GameLoop loop, GameLoop.Clock clock, long cooldownNanos, Listener listener) {
+        this.loop = loop;
+        this.clock = clock;
+        this.cooldownNanos = cooldownNanos;
+        this.listener = listener;
+    }
+
+    /**
+     * Starts running the loop on a new thread.
+     */
+    public void start() {
+        synchronized (lock) {
+            loop.reset();
+            thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        while(tick()) { }
+                    } catch (InterruptedException e) {
+                        synchronized (lock) {
+                            state = State.STOPPED;
+                        }
+                    }
+                }
+            }, "GameLoop");
+            thread.start();
+        }
+    }
+
+    /**
+     * Pauses the game. Does nothing if the scheduler is already paused or stopped.
+     */
+    public void pause() {
+        synchronized (lock) {
+            if(state == State.RUNNING || state == State.CRASHED_COOLDOWN) {
+                resumeState = state;
+                if(state == State.CRASHED_COOLDOWN)
+                    cooldownLeft = Math.max(0, cooldownEnd - clock.nanoTime());
+                state = State.PAUSED;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Resumes a paused game. The time spent paused isn't caught up on, and doesn't count towards
+     * the cooldown.
+     */
+    public void resume() {
+        synchronized (lock) {
+            if(state != State.PAUSED)
+                return;
+            state = resumeState;
+            if(state == State.CRASHED_COOLDOWN)
+                cooldownEnd = clock.nanoTime() + cooldownLeft;
+            resetLoop = true;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Stops the game and waits for the game thread to finish its current frame and exit.
+     */
+    public void stop() {
+        Thread stopping;
+        synchronized (lock) {
+            state = State.STOPPED;
+            lock.notifyAll();
+            stopping = thread;
+            thread = null;
+        }
+
+        if(stopping == null || stopping == Thread.currentThread())
+            return;
+        boolean interrupted = false;
+        while(stopping.isAlive()) {
+            try {
+                stopping.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    public State getState() {
+        synchronized (lock) {
+            return state;
+        }
+    }
+
+    /**
+     * Does one step of work for the current state: runs a frame, or waits until the state
+     * changes or the cooldown is over.
+     * @return False once the scheduler has stopped.
+     * @throws InterruptedException If interrupted while running a frame or waiting.
+     */
+    public boolean tick() throws InterruptedException {
+        boolean cooldownFinished = false;
+        synchronized (lock) {
+            switch (state) {
+                case STOPPED:
+                    return false;
+
+                case PAUSED:
+                    lock.wait();
+                    return true;
+
+                case CRASHED_COOLDOWN:
+                    long remaining = cooldownEnd - clock.nanoTime();
+                    if(remaining > 0) {
+                        lock.wait(remaining / 1000000, (int) (remaining % 1000000));
+                        return true;
+                    }
+                    state = State.STOPPED;
+                    lock.notifyAll();
+                    cooldownFinished = true;
+                    break;
+
+                case RUNNING:
+                    if(resetLoop) {
+                        loop.reset();
+                        resetLoop = false;
+                    }
+                    break;
+            }
+        }
+
+        if(cooldownFinished) {
+            listener.onCooldownFinished();
+            return false;
+        }
+
+        // Run the frame without holding the lock so pause() and stop() don't have to wait for it.
+        if(!loop.runFrame()) {
+            synchronized (lock) {
+                if(state == State.RUNNING) {
+                    state = State.CRASHED_COOLDOWN;
+                    cooldownEnd = clock.nanoTime() + cooldownNanos;
+                } else if(state == State.PAUSED) {
+                    resumeState = State.CRASHED_COOLDOWN;
+                    cooldownLeft = cooldownNanos;
+                }
+            }
+        }
+        return true;
+    }
+}
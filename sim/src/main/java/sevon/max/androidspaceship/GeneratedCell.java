@@ -0,0 +1,38 @@
+package sevon.max.androidspaceship;
+
+/**
+ * A cell whose layout is made by a CellGenerator when it is loaded. Used to run the simulation
+ * with generated cells without Android, in tests, benchmarks and replays.
+ */
+public class GeneratedCell extends Cell {
+
+    private final CellGenerator generator;
+    private final long seed;
+    private final int difficulty;
+    private GeneratedLayout generatedLayout;
+
+    public GeneratedCell(int cellNumber, int color, int difficulty, CellGenerator generator, long seed) {
+        super(cellNumber, CellMap.GENERATED_LAYOUT, color);
+        this.generator = generator;
+        this.seed = seed;
+        this.difficulty = difficulty;
+    }
+
+    @Override
+    protected CollisionMask getCollisionMask() { return generatedLayout.getCollisionMask(); }
+
+    public GeneratedLayout getGeneratedLayout() { return generatedLayout; }
+
+    @Override
+    protected void onLoad() {
+        generatedLayout = generator.generate(seed, getCellNumber(), difficulty);
+    }
+
+    @Override
+    protected void onUnload() {
+        if(generatedLayout != null) {
+            generator.release(generatedLayout);
+            generatedLayout = null;
+        }
+    }
+}
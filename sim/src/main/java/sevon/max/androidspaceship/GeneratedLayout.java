@@ -0,0 +1,69 @@
+package sevon.max.androidspaceship;
+
+import java.util.Random;
+
+/**
+ * A cell layout made by CellGenerator: the collision mask, and the walls as rectangles for
+ * drawing. The walls cover exactly the solid pixels of the mask. Layouts are pooled by the
+ * generator, so they also hold the generator's scratch data.
+ */
+public class GeneratedLayout {
+
+    private final CollisionMask mask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+    private int[] walls = new int[64 * 4];      // left, top, right, bottom of every wall.
+    private int wallCount;
+
+    // Scratch data for the generator.
+    final Random random = new Random();
+    final int[] channelLeft = new int[Cell.HEIGHT / CellGenerator.BAND_HEIGHT];
+    final int[] channelRight = new int[Cell.HEIGHT / CellGenerator.BAND_HEIGHT];
+    final int[] freeLeft = new int[Cell.HEIGHT / CellGenerator.BAND_HEIGHT];
+    final int[] freeRight = new int[Cell.HEIGHT / CellGenerator.BAND_HEIGHT];
+
+    void clear() {
+        mask.clear();
+        wallCount = 0;
+    }
+
+    /**
+     * Adds a wall and marks it solid in the mask. A wall directly below an equally wide wall is
+     * merged with it.
+     */
+    void addWall(int left, int top, int right, int bottom) {
+        if(left >= right)
+            return;
+        for(int y = top; y < bottom; y++)
+            mask.fillRow(y, left, right);
+
+        for(int i = 0; i < wallCount; i++) {
+            int w = i * 4;
+            if(walls[w] == left && walls[w + 2] == right && walls[w + 3] == top) {
+                walls[w + 3] = bottom;
+                return;
+            }
+        }
+        if(wallCount * 4 == walls.length) {
+            int[] grown = new int[walls.length * 2];
+            System.arraycopy(walls, 0, grown, 0, walls.length);
+            walls = grown;
+        }
+        int w = wallCount * 4;
+        walls[w] = left;
+        walls[w + 1] = top;
+        walls[w + 2] = right;
+        walls[w + 3] = bottom;
+        wallCount++;
+    }
+
+    public CollisionMask getCollisionMask() { return mask; }
+    public int getWallCount() { return wallCount; }
+
+    /**
+     * @param index The index of the wall.
+     * @return The x-coordinate of the wall's left edge, in cell coordinates.
+     */
+    public int getWallLeft(int index) { return walls[index * 4]; }
+    public int getWallTop(int index) { return walls[index * 4 + 1]; }
+    public int getWallRight(int index) { return walls[index * 4 + 2]; }
+    public int getWallBottom(int index) { return walls[index * 4 + 3]; }
+}
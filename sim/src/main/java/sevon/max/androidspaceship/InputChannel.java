@@ -0,0 +1,146 @@
+package sevon.max.androidspaceship;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Hands accelerometer samples from the sensor thread to the game thread without locking.
+ * Every sample is packed into a single long: x and y as 16-bit fixed-point values in thousandths
+ * and a 32-bit millisecond timestamp. Since a long is published atomically, x and y always belong
+ * to the same sample.
+ * Filtering (low-pass and dead zone) is done by the sensor thread when publishing, so the game
+ * thread only has to read a long. The game thread can either read the latest sample or drain all
+ * samples published since its last drain.
+ * There must only be one publishing thread and one draining thread.
+ */
+public class InputChannel {
+
+    private static final float FIXED_POINT_SCALE = 1000;    // Values are stored in thousandths.
+    private static final int BUFFER_SIZE = 64;              // Must be a power of two.
+
+    private final float smoothing;
+    private final float deadZone;
+    private float filteredX;
+    private float filteredY;
+    private boolean hasFiltered;
+
+    private final AtomicLong latest = new AtomicLong();
+    private final AtomicLongArray buffer = new AtomicLongArray(BUFFER_SIZE);
+    private final AtomicLong published = new AtomicLong();  // Number of samples published so far.
+    private long drained;                                   // Number of samples drained so far.
+
+    /**
+     * Creates an input channel that doesn't filter its samples.
+     */
+    public InputChannel() {
+        this(1, 0);
+    }
+
+    /**
+     * @param smoothing Weight of a new sample in the low-pass filter, between 0 and 1. 1 turns
+     * the filter off; lower values give smoother but slower input.
+     * @param deadZone Values closer to 0 than this are set to 0, per axis, so a phone held almost
+     * straight doesn't make the spaceship drift.
+     */
+    public InputChannel(float smoothing, float deadZone) {
+        this.smoothing = smoothing;
+        this.deadZone = deadZone;
+    }
+
+    /**
+     * Filters and publishes a sample. Called by the sensor thread.
+     * @param x The x-value of the sample.
+     * @param y The y-value of the sample.
+     * @param timestampNanos The time of the sample, in nanoseconds.
+     */
+    public void publish(float x, float y, long timestampNanos) {
+        if(hasFiltered) {
+            filteredX += (x - filteredX) * smoothing;
+            filteredY += (y - filteredY) * smoothing;
+        } else {
+            filteredX = x;
+            filteredY = y;
+            hasFiltered = true;
+        }
+
+        float outX = Math.abs(filteredX) < deadZone ? 0 : filteredX;
+        float outY = Math.abs(filteredY) < deadZone ? 0 : filteredY;
+        long sample = pack(outX, outY, (int) (timestampNanos / 1000000));
+
+        long index = published.get();
+        buffer.set((int) (index & (BUFFER_SIZE - 1)), sample);
+        latest.set(sample);
+        published.set(index + 1);
+    }
+
+    /**
+     * @return The latest sample, or 0 (x and y 0) if nothing has been published.
+     */
+    public long getLatest() {
+        return latest.get();
+    }
+
+    /**
+     * Copies all samples published since the last call, oldest first. If more samples have been
+     * published than the channel can hold, or than fit in the array, only the newest are copied.
+     * Called by the game thread.
+     * @param samples Array to copy the samples to.
+     * @return The number of samples copied.
+     */
+    public int drain(long[] samples) {
+        long end = published.get();
+        long start = Math.max(drained, end - Math.min(BUFFER_SIZE, samples.length));
+        int count = 0;
+        for(long i = start; i < end; i++)
+            samples[count++] = buffer.get((int) (i & (BUFFER_SIZE - 1)));
+        drained = end;
+
+        // If the sensor thread has lapped us while copying, the oldest samples have been
+        // overwritten by newer ones. Drop them.
+        long overwritten = published.get() - BUFFER_SIZE - start;
+        if(overwritten > 0) {
+            int dropped = (int) Math.min(overwritten, count);
+            System.arraycopy(samples, dropped, samples, 0, count - dropped);
+            count -= dropped;
+        }
+        return count;
+    }
+
+    /**
+     * Packs a sample into a long.
+     * @param x The x-value, clamped to about +-32.
+     * @param y The y-value, clamped to about +-32.
+     * @param timestampMillis The time of the sample, in milliseconds.
+     * @return The packed sample.
+     */
+    public static long pack(float x, float y, int timestampMillis) {
+        return ((long) toFixed(x) << 48) | (((long) toFixed(y) & 0xffff) << 32) | (timestampMillis & 0xffffffffL);
+    }
+
+    /**
+     * @return The x-value of a packed sample.
+     */
+    public static float getX(long sample) {
+        return (short) (sample >> 48) / FIXED_POINT_SCALE;
+    }
+
+    /**
+     * @return The y-value of a packed sample.
+     */
+    public static float getY(long sample) {
+        return (short) (sample >> 32) / FIXED_POINT_SCALE;
+    }
+
+    /**
+     * @return The timestamp of a packed sample in milliseconds. Wraps around every 49 days, so
+     * only differences between timestamps are meaningful.
+     */
+    public static int getTimestampMillis(long sample) {
+        return (int) sample;
+    }
+
+    private static short toFixed(float value) {
+        int fixed = Math.round(value * FIXED_POINT_SCALE);
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, fixed));
+    }
+}
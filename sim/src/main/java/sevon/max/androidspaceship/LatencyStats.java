@@ -0,0 +1,101 @@
+package sevon.max.androidspaceship;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies with power-of-two buckets, from 1 us up to about 35 minutes. Recording
+ * doesn't allocate or lock, so it can be done from any thread; percentiles are exact to within a
+ * factor of two, which is enough to tell a fast path from a slow one.
+ */
+public class LatencyStats {
+
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param nanos The latency in nanoseconds. Negative values are counted as 0.
+     */
+    public void record(long nanos) {
+        if(nanos < 0)
+            nanos = 0;
+        counts.incrementAndGet(bucketOf(nanos));
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+
+        long max;
+        while(nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) { }
+    }
+
+    public long getCount() { return count.get(); }
+    public long getMaxNanos() { return maxNanos.get(); }
+
+    /**
+     * @return The mean latency in nanoseconds, or 0 if nothing has been recorded.
+     */
+    public long getMeanNanos() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / n;
+    }
+
+    /**
+     * Gets a latency that a fraction of the recorded latencies don't exceed.
+     * @param fraction The fraction, for example 0.99 for the 99th percentile.
+     * @return The upper bound of the bucket the percentile falls in, in nanoseconds, but never
+     * more than the highest recorded latency. 0 if nothing has been recorded.
+     */
+    public long getPercentileNanos(double fraction) {
+        long n = 0;
+        long[] snapshot = new long[BUCKETS];
+        for(int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            n += snapshot[i];
+        }
+        if(n == 0)
+            return 0;
+
+        long target = (long) Math.ceil(fraction * n);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if(seen >= target && seen > 0)
+                return Math.min(upperBound(i), maxNanos.get());
+        }
+        return maxNanos.get();
+    }
+
+    public void reset() {
+        for(int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "n=" + getCount()
+                + " mean=" + getMeanNanos() / 1000 + "us"
+                + " p50=" + getPercentileNanos(0.5) / 1000 + "us"
+                + " p99=" + getPercentileNanos(0.99) / 1000 + "us"
+                + " max=" + getMaxNanos() / 1000 + "us";
+    }
+
+    /**
+     * Bucket 0 holds everything below 1 us, bucket i holds [2^(i-1), 2^i) us.
+     */
+    private static int bucketOf(long nanos) {
+        long micros = nanos / 1000;
+        int bucket = 64 - Long.numberOfLeadingZeros(micros);
+        return Math.min(bucket, BUCKETS - 1);
+    }
+
+    private static long upperBound(int bucket) {
+        return (1L << bucket) * 1000;
+    }
+}
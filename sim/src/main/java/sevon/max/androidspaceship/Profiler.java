@@ -0,0 +1,164 @@
+package sevon.max.androidspaceship;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Records how long each part of a frame takes, for finding out where the time goes.
+ * Every thread that is measured gets its own track, a preallocated ring buffer of spans that only
+ * that thread writes to, so recording a span doesn't lock or allocate. When a track is full the
+ * oldest spans are overwritten. The spans can be written out in the Chrome trace event format and
+ * opened in chrome://tracing or Perfetto.
+ * While the profiler is disabled begin() returns 0 without reading the clock and end() returns
+ * right away, so the calls can stay in the code.
+ */
+public class Profiler {
+
+    /**
+     * The parts of a frame that are measured.
+     */
+    public enum Section {
+        FRAME, UPDATE, COLLISION, CELL_STREAMING, PUBLISH, DRAW, SLEEP
+    }
+
+    private static final Section[] SECTIONS = Section.values();
+
+    /**
+     * A track that never records anything, for code that isn't being profiled.
+     */
+    public static final Track NO_TRACK = new Profiler(false, 1).newTrack("none");
+
+    /**
+     * The spans of one thread. Must only be written to by that thread.
+     */
+    public static final class Track {
+        private final Profiler profiler;
+        private final String name;
+        private final int id;
+        private final byte[] sections;
+        private final long[] starts;
+        private final long[] durations;
+        private final int mask;
+        private volatile long count;
+
+        private Track(Profiler profiler, String name, int id, int capacity) {
+            this.profiler = profiler;
+            this.name = name;
+            this.id = id;
+            sections = new byte[capacity];
+            starts = new long[capacity];
+            durations = new long[capacity];
+            mask = capacity - 1;
+        }
+
+        /**
+         * Starts a span.
+         * @return The start time to pass to end(), or 0 if the profiler is disabled.
+         */
+        public long begin() {
+            return profiler.enabled ? System.nanoTime() : 0;
+        }
+
+        /**
+         * Ends a span and records it.
+         * @param section The part of the frame the span measured.
+         * @param start The value returned by begin().
+         */
+        public void end(Section section, long start) {
+            if(start == 0)
+                return;
+            long c = count;
+            int index = (int) c & mask;
+            sections[index] = (byte) section.ordinal();
+            starts[index] = start;
+            durations[index] = System.nanoTime() - start;
+            count = c + 1;
+        }
+
+        /**
+         * @return The number of spans recorded, including overwritten ones.
+         */
+        public long getCount() { return count; }
+        public String getName() { return name; }
+    }
+
+    private final int trackCapacity;
+    private volatile boolean enabled;
+    private volatile Track[] tracks = new Track[0];
+    private final long originNanos = System.nanoTime();
+
+    /**
+     * @param enabled True to start recording right away.
+     * @param trackCapacity The number of spans kept per track. Rounded up to a power of two.
+     */
+    public Profiler(boolean enabled, int trackCapacity) {
+        this.enabled = enabled;
+        int size = 1;
+        while(size < trackCapacity)
+            size <<= 1;
+        this.trackCapacity = size;
+    }
+
+    /**
+     * Creates a track for a thread.
+     * @param name The name of the track, shown as the thread name in traces.
+     * @return The track.
+     */
+    public synchronized Track newTrack(String name) {
+        Track track = new Track(this, name, tracks.length + 1, trackCapacity);
+        Track[] updated = Arrays.copyOf(tracks, tracks.length + 1);
+        updated[tracks.length] = track;
+        tracks = updated;
+        return track;
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    /**
+     * Writes the recorded spans as a Chrome trace event JSON document. Spans being written while
+     * this runs might be torn, so it is best done while the game is paused.
+     * @param out The writer to write to. Not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeTrace(Writer out) throws IOException {
+        out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+        for(Track track : tracks) {
+            if(!first)
+                out.write(',');
+            first = false;
+            out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + track.id
+                    + ",\"args\":{\"name\":\"" + track.name + "\"}}");
+
+            long end = track.count;
+            long begin = Math.max(0, end - trackCapacity);
+            for(long i = begin; i < end; i++) {
+                int index = (int) i & track.mask;
+                out.write(",{\"name\":\"");
+                out.write(SECTIONS[track.sections[index]].name());
+                out.write("\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+                out.write(Integer.toString(track.id));
+                out.write(",\"ts\":");
+                writeMicros(out, track.starts[index] - originNanos);
+                out.write(",\"dur\":");
+                writeMicros(out, track.durations[index]);
+                out.write('}');
+            }
+        }
+        out.write("]}");
+    }
+
+    /**
+     * Writes nanoseconds as microseconds with three decimals, the unit trace events use.
+     */
+    private static void writeMicros(Writer out, long nanos) throws IOException {
+        out.write(Long.toString(nanos / 1000));
+        long fraction = Math.abs(nanos % 1000);
+        out.write('.');
+        out.write((char) ('0' + fraction / 100));
+        out.write((char) ('0' + fraction / 10 % 10));
+        out.write((char) ('0' + fraction % 10));
+    }
+}
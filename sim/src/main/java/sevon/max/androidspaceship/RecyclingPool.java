@@ -0,0 +1,97 @@
+package sevon.max.androidspaceship;
+
+/**
+ * A fixed-size pool of reusable objects, for things that are too expensive to allocate every time
+ * they are needed (bitmaps, collision masks). Objects are handed back with release() and given out
+ * again by acquire(). Hits, misses and evictions are counted so pool sizes can be tuned.
+ * All methods are thread safe.
+ * @param <T> The type of objects in the pool.
+ */
+public abstract class RecyclingPool<T> {
+
+    private final Object[] free;
+    private int freeCount;
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    /**
+     * @param capacity The maximum number of free objects kept in the pool.
+     */
+    public RecyclingPool(int capacity) {
+        free = new Object[capacity];
+    }
+
+    /**
+     * Takes an object from the pool.
+     * @return A free object, or null if the pool is empty. In that case the caller has to allocate
+     * a new object itself.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T acquire() {
+        if(freeCount == 0) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        T object = (T) free[--freeCount];
+        free[freeCount] = null;
+        return object;
+    }
+
+    /**
+     * Hands an object back to the pool. If the pool is full, or the object can't be reused, it is
+     * evicted instead.
+     * @param object The object to release.
+     */
+    public void release(T object) {
+        synchronized (this) {
+            if(freeCount < free.length && canReuse(object)) {
+                free[freeCount++] = object;
+                return;
+            }
+            evictions++;
+        }
+        onEvict(object);
+    }
+
+    /**
+     * Evicts all free objects from the pool.
+     */
+    public void clear() {
+        Object[] evicted;
+        int count;
+        synchronized (this) {
+            evicted = free.clone();
+            count = freeCount;
+            for(int i = 0; i < freeCount; i++)
+                free[i] = null;
+            freeCount = 0;
+        }
+        for(int i = 0; i < count; i++)
+            onEvictUnchecked(evicted[i]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onEvictUnchecked(Object object) {
+        onEvict((T) object);
+    }
+
+    /**
+     * @param object The object being released.
+     * @return True if the object may be given out again by acquire().
+     */
+    protected boolean canReuse(T object) { return true; }
+
+    /**
+     * Called (outside of the pool's lock) for every object that doesn't fit in the pool.
+     * @param object The evicted object.
+     */
+    protected void onEvict(T object) { }
+
+    public synchronized int getHits() { return hits; }
+    public synchronized int getMisses() { return misses; }
+    public synchronized int getEvictions() { return evictions; }
+    public synchronized int getFreeCount() { return freeCount; }
+}
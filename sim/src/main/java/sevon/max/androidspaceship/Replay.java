@@ -0,0 +1,132 @@
+package sevon.max.androidspaceship;
+
+import java.io.IOException;
+
+/**
+ * A game recorded by ReplayRecorder. Parsing only reads the header; the input of each tick is
+ * decoded as the replay is played with nextTick().
+ */
+public class Replay {
+
+    private final byte[] data;
+    private final long seed;
+    private final int layoutCount;
+    private final int shipWidth;
+    private final int shipHeight;
+    private final int tickCount;
+    private final int inputStart;
+
+    private int position;
+    private int tick;
+    private int x;
+    private int y;
+
+    private Replay(byte[] data, long seed, int layoutCount, int shipWidth, int shipHeight, int tickCount, int inputStart) {
+        this.data = data;
+        this.seed = seed;
+        this.layoutCount = layoutCount;
+        this.shipWidth = shipWidth;
+        this.shipHeight = shipHeight;
+        this.tickCount = tickCount;
+        this.inputStart = inputStart;
+        rewind();
+    }
+
+    /**
+     * Reads the header of a recorded game.
+     * @param data The recorded game, as written by ReplayRecorder. Not copied.
+     * @return The replay.
+     * @throws IOException If the data isn't a replay or is cut short.
+     */
+    public static Replay parse(byte[] data) throws IOException {
+        if(data.length < 12)
+            throw new IOException("Replay is too short");
+        int magic = 0;
+        for(int i = 0; i < 4; i++)
+            magic = (magic << 8) | (data[i] & 0xff);
+        if(magic != ReplayRecorder.MAGIC)
+            throw new IOException("Not a replay");
+        long seed = 0;
+        for(int i = 4; i < 12; i++)
+            seed = (seed << 8) | (data[i] & 0xff);
+
+        int[] header = new int[4];
+        int position = 12;
+        for(int i = 0; i < header.length; i++) {
+            long result = readVarInt(data, position);
+            if(result < 0)
+                throw new IOException("Replay header is cut short");
+            header[i] = (int) result;
+            position = (int) (result >>> 32);
+        }
+        return new Replay(data, seed, header[0], header[1], header[2], header[3], position);
+    }
+
+    /**
+     * Goes back to the first tick.
+     */
+    public void rewind() {
+        position = inputStart;
+        tick = 0;
+        x = 0;
+        y = 0;
+    }
+
+    /**
+     * Decodes the input of the next tick, which is then returned by getX() and getY().
+     * @return False if there are no more ticks.
+     * @throws IOException If the input is cut short.
+     */
+    public boolean nextTick() throws IOException {
+        if(tick >= tickCount)
+            return false;
+
+        long dx = readVarInt(data, position);
+        long dy = dx < 0 ? -1 : readVarInt(data, (int) (dx >>> 32));
+        if(dy < 0)
+            throw new IOException("Replay input is cut short at tick " + tick);
+        x += unzigzag((int) dx);
+        y += unzigzag((int) dy);
+        position = (int) (dy >>> 32);
+        tick++;
+        return true;
+    }
+
+    /**
+     * @return The quantized x-component of the current tick's input.
+     */
+    public int getX() { return x; }
+
+    /**
+     * @return The quantized y-component of the current tick's input.
+     */
+    public int getY() { return y; }
+
+    public long getSeed() { return seed; }
+    public int getLayoutCount() { return layoutCount; }
+    public int getShipWidth() { return shipWidth; }
+    public int getShipHeight() { return shipHeight; }
+    public int getTickCount() { return tickCount; }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads an unsigned varint without allocating.
+     * @return The value in the low 32 bits and the position after the varint in the high 32 bits,
+     * or -1 if the data ends before the varint does.
+     */
+    static long readVarInt(byte[] data, int position) {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            if(position >= data.length)
+                return -1;
+            byte b = data[position++];
+            value |= (b & 0x7f) << shift;
+            if(b >= 0)
+                return ((long) position << 32) | (value & 0xffffffffL);
+        }
+        return -1;
+    }
+}
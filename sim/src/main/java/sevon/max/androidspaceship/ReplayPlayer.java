@@ -0,0 +1,89 @@
+package sevon.max.androidspaceship;
+
+import java.io.IOException;
+
+/**
+ * Plays a recorded game again in a headless simulation. Cells are loaded synchronously, so the
+ * simulation never has to hold the spaceship and a replay runs as fast as the simulation can tick.
+ * Used to check that changes to physics or collisions don't change how recorded games play out,
+ * and to check that a high score really was reached by the game it was recorded with.
+ */
+public class ReplayPlayer {
+
+    private final Replay replay;
+    private final Simulation simulation;
+    private boolean crashed;
+
+    /**
+     * @param replay The game to play.
+     * @param factory Creates the cells. Must give cells the same collision masks as the game was
+     * recorded with.
+     */
+    public ReplayPlayer(Replay replay, CellMap.Factory factory) {
+        this(replay, new CellMap(factory, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR),
+                replay.getLayoutCount(), replay.getSeed()));
+    }
+
+    /**
+     * @param replay The game to play.
+     * @param cellGrid The cells to play it in, for games that weren't played in a single column
+     * of cells. Must have the replay's seed and layout count, the same collision masks as the
+     * game was recorded with, and load its cells synchronously.
+     */
+    public ReplayPlayer(Replay replay, CellGrid cellGrid) {
+        this.replay = replay;
+        simulation = new Simulation(cellGrid, replay.getShipWidth(), replay.getShipHeight());
+        restart();
+    }
+
+    /**
+     * Goes back to the start of the game.
+     */
+    public void restart() {
+        replay.rewind();
+        simulation.restart();
+        crashed = false;
+    }
+
+    /**
+     * Plays one tick.
+     * @return False if the game is over or there is no more input.
+     * @throws IOException If the replay is corrupt.
+     */
+    public boolean step() throws IOException {
+        if(crashed || !replay.nextTick())
+            return false;
+        crashed = !simulation.update(ReplayRecorder.dequantize(replay.getX()), ReplayRecorder.dequantize(replay.getY()));
+        return true;
+    }
+
+    /**
+     * Plays a number of ticks, or until the game is over.
+     * @param ticks The number of ticks to play.
+     * @return The number of ticks played.
+     * @throws IOException If the replay is corrupt.
+     */
+    public int fastForward(int ticks) throws IOException {
+        int played = 0;
+        while(played < ticks && step())
+            played++;
+        return played;
+    }
+
+    /**
+     * Plays the whole game and checks that it ends the way a real game does: with a crash on the
+     * last recorded tick, and with the claimed score.
+     * @param claimedScore The score the game is said to have reached.
+     * @return True if the replay reaches exactly that score.
+     * @throws IOException If the replay is corrupt.
+     */
+    public boolean verifyScore(int claimedScore) throws IOException {
+        restart();
+        fastForward(Integer.MAX_VALUE);
+        return crashed && simulation.getTicks() == replay.getTickCount()
+                && simulation.getShip().getScore() == claimedScore;
+    }
+
+    public Simulation getSimulation() { return simulation; }
+    public boolean isCrashed() { return crashed; }
+}
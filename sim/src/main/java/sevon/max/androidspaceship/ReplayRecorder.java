@@ -0,0 +1,145 @@
+package sevon.max.androidspaceship;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records a game so it can be replayed. The world is generated from a seed, so the seed and the
+ * input of every tick are all that is needed to play the game again.
+ * Input is stored in thousandths (the resolution Simulation quantizes input to), as the difference
+ * from the previous tick's input, zigzag and varint encoded. Input changes little from one tick to
+ * the next, so most ticks take two bytes.
+ *
+ * The format is:
+ * int      MAGIC
+ * long     seed
+ * varint   layout count, ship width, ship height, tick count
+ * varint   zigzag delta of x and of y, for every tick
+ */
+public class ReplayRecorder {
+
+    public static final int MAGIC = 0x53525031;    // "SRP1"
+    private static final float INPUT_SCALE = 1000; // Input is stored in thousandths.
+
+    private long seed;
+    private int layoutCount;
+    private int shipWidth;
+    private int shipHeight;
+    private int ticks;
+    private int previousX;
+    private int previousY;
+    private byte[] buffer = new byte[4096];
+    private int length;
+
+    /**
+     * Starts recording a new game, forgetting the previous one.
+     * @param seed The seed of the world.
+     * @param layoutCount The number of cell layouts.
+     * @param shipWidth The width of the spaceship.
+     * @param shipHeight The height of the spaceship.
+     */
+    public void start(long seed, int layoutCount, int shipWidth, int shipHeight) {
+        this.seed = seed;
+        this.layoutCount = layoutCount;
+        this.shipWidth = shipWidth;
+        this.shipHeight = shipHeight;
+        ticks = 0;
+        previousX = 0;
+        previousY = 0;
+        length = 0;
+    }
+
+    /**
+     * Records the input of one tick.
+     * @param x The quantized x-component of the input.
+     * @param y The quantized y-component of the input.
+     */
+    public void record(int x, int y) {
+        // Two varints never take more than 10 bytes.
+        if(length + 10 > buffer.length) {
+            byte[] grown = new byte[buffer.length * 2];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+        length = writeVarInt(buffer, length, zigzag(x - previousX));
+        length = writeVarInt(buffer, length, zigzag(y - previousY));
+        previousX = x;
+        previousY = y;
+        ticks++;
+    }
+
+    /**
+     * @return The number of ticks recorded.
+     */
+    public int getTicks() { return ticks; }
+
+    /**
+     * @return The recorded game.
+     */
+    public byte[] toByteArray() {
+        byte[] header = new byte[12 + 4 * 5];
+        int headerLength = writeHeader(header);
+        byte[] data = new byte[headerLength + length];
+        System.arraycopy(header, 0, data, 0, headerLength);
+        System.arraycopy(buffer, 0, data, headerLength, length);
+        return data;
+    }
+
+    /**
+     * Writes the recorded game to a stream.
+     * @param out The stream to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] header = new byte[12 + 4 * 5];
+        out.write(header, 0, writeHeader(header));
+        out.write(buffer, 0, length);
+    }
+
+    private int writeHeader(byte[] header) {
+        int position = 0;
+        for(int shift = 24; shift >= 0; shift -= 8)
+            header[position++] = (byte) (MAGIC >>> shift);
+        for(int shift = 56; shift >= 0; shift -= 8)
+            header[position++] = (byte) (seed >>> shift);
+        position = writeVarInt(header, position, layoutCount);
+        position = writeVarInt(header, position, shipWidth);
+        position = writeVarInt(header, position, shipHeight);
+        position = writeVarInt(header, position, ticks);
+        return position;
+    }
+
+    /**
+     * Quantizes an input value to the resolution it is recorded at.
+     */
+    public static int quantize(float value) {
+        return Math.round(value * INPUT_SCALE);
+    }
+
+    /**
+     * @return The input value of a quantized value.
+     */
+    public static float dequantize(int value) {
+        return value / INPUT_SCALE;
+    }
+
+    /**
+     * Maps signed values to unsigned ones so small negative values also get short varints.
+     */
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    /**
+     * Writes an unsigned varint, 7 bits per byte, low bits first.
+     * @return The position after the varint.
+     */
+    static int writeVarInt(byte[] buffer, int position, int value) {
+        while((value & ~0x7f) != 0) {
+            buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+}
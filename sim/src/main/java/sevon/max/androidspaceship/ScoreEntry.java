@@ -0,0 +1,21 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The result of one game, as submitted to the high score list.
+ */
+public class ScoreEntry {
+
+    public final int score;
+    public final long seed;             // Seed of the world the game was played in.
+    public final long timestamp;        // When the game ended, in milliseconds since the epoch.
+    public final float maxSpeed;
+    public final int cellsTraversed;    // The furthest cell reached.
+
+    public ScoreEntry(int score, long seed, long timestamp, float maxSpeed, int cellsTraversed) {
+        this.score = score;
+        this.seed = seed;
+        this.timestamp = timestamp;
+        this.maxSpeed = maxSpeed;
+        this.cellsTraversed = cellsTraversed;
+    }
+}
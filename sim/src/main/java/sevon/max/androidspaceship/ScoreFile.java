@@ -0,0 +1,252 @@
+package sevon.max.androidspaceship;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes high scores in a small binary format:
+ * int      MAGIC
+ * int      VERSION
+ * int      number of entries
+ * entries, best first:
+ *   int    score
+ *   long   seed
+ *   long   timestamp
+ *   float  max speed
+ *   int    cells traversed
+ * int      CRC32 of everything before it
+ * Version 1 files, which only hold the int score of each entry, can still be read.
+ * All values are big endian. Files are written to a temporary file which is synced to disk and
+ * then renamed over the old one, so a crash while saving leaves either the old or the new scores,
+ * never a mix. A file that has been damaged anyway is reported with a CorruptException.
+ */
+public class ScoreFile {
+
+    public static final int MAGIC = 0x53434f52;     // "SCOR"
+    public static final int VERSION = 2;
+    static final int VERSION_SCORES_ONLY = 1;
+    private static final int HEADER_SIZE = 12;
+    private static final int ENTRY_SIZE = 28;
+    private static final int CHECKSUM_SIZE = 4;
+
+    /**
+     * Thrown when a score file exists but can't be trusted.
+     */
+    public static class CorruptException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public CorruptException(String message) {
+            super(message);
+        }
+    }
+
+    private ScoreFile() { }
+
+    /**
+     * Reads the scores from a file.
+     * @param file The file to read.
+     * @param capacity The capacity of the returned list. Entries beyond it are dropped.
+     * @return The scores, or an empty list if the file doesn't exist.
+     * @throws CorruptException If the file is damaged.
+     * @throws IOException If the file couldn't be read.
+     */
+    public static ScoreList read(File file, int capacity) throws IOException {
+        byte[] data;
+        try {
+            data = readFully(new FileInputStream(file), file.length());
+        } catch (FileNotFoundException e) {
+            return new ScoreList(capacity);
+        }
+        return decode(data, data.length, capacity);
+    }
+
+    /**
+     * Writes scores to a file, replacing it atomically.
+     * @param file The file to write.
+     * @param scores The scores to write.
+     * @throws IOException If the file couldn't be written. The old file is left as it was.
+     */
+    public static void write(File file, ScoreList scores) throws IOException {
+        byte[] data = encode(scores);
+        File temp = new File(file.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            out.write(data);
+            out.flush();
+            out.getFD().sync();     // Make sure the data is on disk before the rename is.
+        } finally {
+            out.close();
+        }
+        if(!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    /**
+     * Encodes scores in the current version of the score file format.
+     * @param scores The scores to encode.
+     * @return The encoded scores.
+     */
+    public static byte[] encode(ScoreList scores) {
+        int count = scores.size;
+        byte[] data = new byte[HEADER_SIZE + count * ENTRY_SIZE + CHECKSUM_SIZE];
+        int position = putInt(data, 0, MAGIC);
+        position = putInt(data, position, VERSION);
+        position = putInt(data, position, count);
+        for(int i = 0; i < count; i++) {
+            position = putInt(data, position, scores.scores[i]);
+            position = putLong(data, position, scores.seeds[i]);
+            position = putLong(data, position, scores.timestamps[i]);
+            position = putInt(data, position, Float.floatToIntBits(scores.maxSpeeds[i]));
+            position = putInt(data, position, scores.cellsTraversed[i]);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, position);
+        putInt(data, position, (int) crc.getValue());
+        return data;
+    }
+
+    /**
+     * Decodes scores in the score file format, any version.
+     * @param data The encoded scores.
+     * @param length The number of bytes of data.
+     * @param capacity The capacity of the returned list. Entries beyond it are dropped.
+     * @return The scores.
+     * @throws CorruptException If the data is damaged or not a score file.
+     */
+    public static ScoreList decode(byte[] data, int length, int capacity) throws CorruptException {
+        if(length < HEADER_SIZE + CHECKSUM_SIZE)
+            throw new CorruptException("Score file is too short: " + length + " bytes");
+        if(getInt(data, 0) != MAGIC)
+            throw new CorruptException("Not a score file");
+        int version = getInt(data, 4);
+        if(version != VERSION && version != VERSION_SCORES_ONLY)
+            throw new CorruptException("Unknown score file version " + version);
+        int entrySize = version == VERSION ? ENTRY_SIZE : 4;
+        int count = getInt(data, 8);
+        if(count < 0 || (long) HEADER_SIZE + (long) count * entrySize + CHECKSUM_SIZE != length)
+            throw new CorruptException("Score file has the wrong length for " + count + " scores");
+
+        int checksumPosition = length - CHECKSUM_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, checksumPosition);
+        if((int) crc.getValue() != getInt(data, checksumPosition))
+            throw new CorruptException("Score file checksum does not match");
+
+        // The entries are stored best first, so each one is appended.
+        ScoreList scores = new ScoreList(capacity);
+        int position = HEADER_SIZE;
+        for(int i = 0; i < count; i++) {
+            if(version == VERSION) {
+                scores.add(getInt(data, position), getLong(data, position + 4), getLong(data, position + 12),
+                        Float.intBitsToFloat(getInt(data, position + 20)), getInt(data, position + 24));
+            } else {
+                scores.add(getInt(data, position));
+            }
+            position += entrySize;
+        }
+        return scores;
+    }
+
+    /**
+     * Reads scores saved with Java serialization by earlier versions of the game, when ScoreList
+     * was an ArrayList of Integers.
+     * @param file The old score file.
+     * @return The scores.
+     * @throws IOException If the file couldn't be read.
+     */
+    public static int[] readLegacy(File file) throws IOException {
+        LegacyInputStream in = new LegacyInputStream(new FileInputStream(file));
+        try {
+            Object object = in.readObject();
+            if(!(object instanceof LegacyScoreList))
+                throw new CorruptException("Not a legacy score list");
+            LegacyScoreList list = (LegacyScoreList) object;
+            int[] scores = new int[list.size()];
+            for(int i = 0; i < scores.length; i++)
+                scores[i] = list.get(i);
+            return scores;
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new CorruptException("Not a legacy score list: " + e);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream in, long expectedLength) throws IOException {
+        try {
+            if(expectedLength > Integer.MAX_VALUE)
+                throw new CorruptException("Score file is too large");
+            byte[] data = new byte[(int) expectedLength];
+            int length = 0;
+            int read;
+            while(length < data.length && (read = in.read(data, length, data.length - length)) > 0)
+                length += read;
+            if(length != data.length)
+                throw new IOException("Score file changed while reading");
+            return data;
+        } finally {
+            in.close();
+        }
+    }
+
+    private static int putInt(byte[] data, int position, int value) {
+        data[position] = (byte) (value >>> 24);
+        data[position + 1] = (byte) (value >>> 16);
+        data[position + 2] = (byte) (value >>> 8);
+        data[position + 3] = (byte) value;
+        return position + 4;
+    }
+
+    private static int putLong(byte[] data, int position, long value) {
+        position = putInt(data, position, (int) (value >>> 32));
+        return putInt(data, position, (int) value);
+    }
+
+    private static long getLong(byte[] data, int position) {
+        return ((long) getInt(data, position) << 32) | (getInt(data, position + 4) & 0xffffffffL);
+    }
+
+    private static int getInt(byte[] data, int position) {
+        return (data[position] << 24) | ((data[position + 1] & 0xff) << 16)
+                | ((data[position + 2] & 0xff) << 8) | (data[position + 3] & 0xff);
+    }
+
+    /**
+     * Stands in for the old ScoreList class when reading legacy files. It added no fields to
+     * ArrayList, so its serialized form is just the list.
+     */
+    private static class LegacyScoreList extends ArrayList<Integer> {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Reads the old ScoreList as a LegacyScoreList. The old class had no serialVersionUID, so the
+     * local class description is used instead of checking the one in the file.
+     */
+    private static class LegacyInputStream extends ObjectInputStream {
+        private static final String LEGACY_CLASS_NAME = "sevon.max.androidspaceship.ScoreList";
+
+        LegacyInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            ObjectStreamClass descriptor = super.readClassDescriptor();
+            if(descriptor.getName().equals(LEGACY_CLASS_NAME))
+                return ObjectStreamClass.lookup(LegacyScoreList.class);
+            return descriptor;
+        }
+    }
+}
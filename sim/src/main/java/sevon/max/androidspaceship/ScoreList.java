@@ -0,0 +1,203 @@
+package sevon.max.androidspaceship;
+
+import java.util.Arrays;
+
+/**
+ * Created by Max on 2016-01-08.
+ * Class representing a high score list: the best K games, sorted highest score first.
+ * Each field of the entries is kept in its own primitive array. Finding where a score goes, and
+ * what rank it would get, is a binary search; inserting moves the lower entries down with one
+ * array copy per field, so adding a score is O(K) but with a small constant. A score too low for a
+ * full list is rejected by a single comparison.
+ * ScoreRepository loads and saves it.
+ */
+public class ScoreList {
+
+    public static final int DEFAULT_CAPACITY = 10;
+
+    private final int capacity;
+    final int[] scores;
+    final long[] seeds;
+    final long[] timestamps;
+    final float[] maxSpeeds;
+    final int[] cellsTraversed;
+    int size;
+
+    public ScoreList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of entries kept, K.
+     */
+    public ScoreList(int capacity) {
+        this.capacity = capacity;
+        scores = new int[capacity];
+        seeds = new long[capacity];
+        timestamps = new long[capacity];
+        maxSpeeds = new float[capacity];
+        cellsTraversed = new int[capacity];
+    }
+
+    /**
+     * Adds an entry to the list. The list only holds the best entries, so adding a score below
+     * these does nothing.
+     * @param entry The entry to add.
+     * @return The index the entry was put at, or -1 if it didn't make it onto the list.
+     */
+    public int add(ScoreEntry entry) {
+        return add(entry.score, entry.seed, entry.timestamp, entry.maxSpeed, entry.cellsTraversed);
+    }
+
+    /**
+     * Adds an entry to the list. The list only holds the best entries, so adding a score below
+     * these does nothing.
+     * @return The index the entry was put at, or -1 if it didn't make it onto the list.
+     */
+    public int add(int score, long seed, long timestamp, float maxSpeed, int cells) {
+        // Equal scores keep their order, so a new score goes after them.
+        if(size == capacity && (capacity == 0 || score <= scores[size - 1]))
+            return -1;
+        int index = indexAfter(score);
+
+        // Move lower entries down, dropping the last one if the list is full.
+        int moved = Math.min(size, capacity - 1) - index;
+        if(moved > 0) {
+            System.arraycopy(scores, index, scores, index + 1, moved);
+            System.arraycopy(seeds, index, seeds, index + 1, moved);
+            System.arraycopy(timestamps, index, timestamps, index + 1, moved);
+            System.arraycopy(maxSpeeds, index, maxSpeeds, index + 1, moved);
+            System.arraycopy(cellsTraversed, index, cellsTraversed, index + 1, moved);
+        }
+        scores[index] = score;
+        seeds[index] = seed;
+        timestamps[index] = timestamp;
+        maxSpeeds[index] = maxSpeed;
+        cellsTraversed[index] = cells;
+        if(size < capacity)
+            size++;
+        return index;
+    }
+
+    /**
+     * Adds a score without any other information about the game.
+     * @return The index the score was put at, or -1 if it didn't make it onto the list.
+     */
+    public int add(int score) {
+        return add(score, 0, 0, 0, 0);
+    }
+
+    /**
+     * Tells what place a score would get. Equal scores share the place of the first one.
+     * @param score The score.
+     * @return The place, 1 being the best, or -1 if add would reject the score.
+     */
+    public int getRank(int score) {
+        // Same check as add, a full list doesn't take a score equal to its lowest either.
+        if(size == capacity && (capacity == 0 || score <= scores[size - 1]))
+            return -1;
+        // The number of entries with a higher score.
+        int index = score == Integer.MAX_VALUE ? 0 : indexAfter(score + 1);
+        return index + 1;
+    }
+
+    /**
+     * Finds the index after the last entry with a score >= the given one.
+     */
+    private int indexAfter(int score) {
+        int low = 0;
+        int high = size;
+        while(low < high) {
+            int middle = (low + high) >>> 1;
+            if(scores[middle] >= score)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return The number of entries in the list.
+     */
+    public int size() { return size; }
+
+    public int getCapacity() { return capacity; }
+
+    /**
+     * @param index The index of the entry, 0 being the highest score.
+     * @return The score at the index.
+     */
+    public int getScore(int index) {
+        checkIndex(index);
+        return scores[index];
+    }
+
+    public long getSeed(int index) {
+        checkIndex(index);
+        return seeds[index];
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index];
+    }
+
+    public float getMaxSpeed(int index) {
+        checkIndex(index);
+        return maxSpeeds[index];
+    }
+
+    public int getCellsTraversed(int index) {
+        checkIndex(index);
+        return cellsTraversed[index];
+    }
+
+    /**
+     * @return A copy of this list.
+     */
+    public ScoreList copy() {
+        ScoreList copy = new ScoreList(capacity);
+        System.arraycopy(scores, 0, copy.scores, 0, size);
+        System.arraycopy(seeds, 0, copy.seeds, 0, size);
+        System.arraycopy(timestamps, 0, copy.timestamps, 0, size);
+        System.arraycopy(maxSpeeds, 0, copy.maxSpeeds, 0, size);
+        System.arraycopy(cellsTraversed, 0, copy.cellsTraversed, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Copies part of the list, for showing a long list a page at a time.
+     * @param from The index of the first entry to copy.
+     * @param count The maximum number of entries to copy; fewer are copied at the end of the list.
+     * @return A list with the entries, the entry at from being first.
+     */
+    public ScoreList copyRange(int from, int count) {
+        if(from < 0 || count < 0)
+            throw new IndexOutOfBoundsException("From " + from + ", count " + count);
+        int length = Math.max(0, Math.min(count, size - from));
+        ScoreList copy = new ScoreList(Math.max(length, 1));
+        if(length > 0) {
+            System.arraycopy(scores, from, copy.scores, 0, length);
+            System.arraycopy(seeds, from, copy.seeds, 0, length);
+            System.arraycopy(timestamps, from, copy.timestamps, 0, length);
+            System.arraycopy(maxSpeeds, from, copy.maxSpeeds, 0, length);
+            System.arraycopy(cellsTraversed, from, copy.cellsTraversed, 0, length);
+        }
+        copy.size = length;
+        return copy;
+    }
+
+    /**
+     * @return The scores, highest first.
+     */
+    public int[] toScoreArray() {
+        return Arrays.copyOf(scores, size);
+    }
+
+    private void checkIndex(int index) {
+        if(index < 0 || index >= size)
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+}
@@ -0,0 +1,121 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The loaded pages of a high score list that is shown a page at a time. Only a few pages are
+ * kept: when a page is added to a full set, the page furthest away from it is dropped. Also keeps
+ * track of the pages being loaded, so each page is only asked for once.
+ * Not thread safe.
+ */
+public class ScorePages {
+
+    private final int pageSize;
+    private final int[] pageNumbers;
+    private final ScoreList[] pages;
+    private int pageCount;
+    private final int[] loadingPages;
+    private int loadingCount;
+
+    /**
+     * @param pageSize The number of scores on a page.
+     * @param maxPages The maximum number of pages kept.
+     */
+    public ScorePages(int pageSize, int maxPages) {
+        this.pageSize = pageSize;
+        pageNumbers = new int[maxPages];
+        pages = new ScoreList[maxPages];
+        loadingPages = new int[maxPages];
+    }
+
+    /**
+     * @param position The position of a score in the whole list, 0 being the best.
+     * @return The number of the page the score is on.
+     */
+    public int getPageNumber(int position) {
+        return position / pageSize;
+    }
+
+    /**
+     * @param position The position of a score in the whole list.
+     * @return True if the score is on a loaded page. A page can be shorter than the page size if
+     * the list was shorter when it was loaded.
+     */
+    public boolean isLoaded(int position) {
+        ScoreList page = getPage(getPageNumber(position));
+        return page != null && position % pageSize < page.size();
+    }
+
+    /**
+     * @param position The position of a score in the whole list. Must be loaded, see isLoaded().
+     * @return The score.
+     */
+    public int getScore(int position) {
+        ScoreList page = getPage(getPageNumber(position));
+        if(page == null)
+            throw new IndexOutOfBoundsException("Page of position " + position + " isn't loaded");
+        return page.getScore(position % pageSize);
+    }
+
+    /**
+     * @param pageNumber The number of a page.
+     * @return The page, or null if it isn't loaded.
+     */
+    public ScoreList getPage(int pageNumber) {
+        int index = indexOf(pageNumbers, pageCount, pageNumber);
+        return index >= 0 ? pages[index] : null;
+    }
+
+    /**
+     * Marks a page as being loaded.
+     * @param pageNumber The number of the page.
+     * @return False if the page is already being loaded, or loading more pages at once than are
+     * kept, so it shouldn't be loaded now.
+     */
+    public boolean startLoading(int pageNumber) {
+        if(loadingCount == loadingPages.length || indexOf(loadingPages, loadingCount, pageNumber) >= 0)
+            return false;
+        loadingPages[loadingCount++] = pageNumber;
+        return true;
+    }
+
+    /**
+     * Adds a loaded page, replacing the page with the same number. If the set is full the page
+     * furthest away from it is dropped.
+     * @param pageNumber The number of the page.
+     * @param page The scores on the page.
+     */
+    public void put(int pageNumber, ScoreList page) {
+        int loading = indexOf(loadingPages, loadingCount, pageNumber);
+        if(loading >= 0)
+            loadingPages[loading] = loadingPages[--loadingCount];
+
+        int index = indexOf(pageNumbers, pageCount, pageNumber);
+        if(index < 0 && pageCount == pages.length)
+            index = getFurthestIndex(pageNumber);
+        else if(index < 0)
+            index = pageCount++;
+        pageNumbers[index] = pageNumber;
+        pages[index] = page;
+    }
+
+    /**
+     * @return The number of loaded pages.
+     */
+    public int size() { return pageCount; }
+
+    private int getFurthestIndex(int pageNumber) {
+        int furthest = 0;
+        for(int i = 1; i < pageCount; i++) {
+            if(Math.abs(pageNumbers[i] - pageNumber) > Math.abs(pageNumbers[furthest] - pageNumber))
+                furthest = i;
+        }
+        return furthest;
+    }
+
+    private static int indexOf(int[] numbers, int count, int number) {
+        for(int i = 0; i < count; i++) {
+            if(numbers[i] == number)
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,331 @@
+package sevon.max.androidspaceship;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the high score list in memory and saves it in the background.
+ * Scores are submitted to a lock-free queue, so the game thread never waits for the list or the
+ * disk. A single writer thread loads the list the first time it is needed, adds the submitted
+ * scores and saves the list; scores submitted while a save is pending are saved together with it.
+ * flush() waits until everything submitted has been saved, call it when the app is paused since
+ * the process might be killed after that. Errors don't stop the game, the last one is kept for
+ * the app to show with getLastError().
+ * There is one repository per directory, so every activity sees the same list.
+ */
+public class ScoreRepository {
+
+    private static final String FILENAME = "highscores.dat";
+    private static final String LEGACY_FILENAME = "highscores.dmp";     // Java serialized, before ScoreFile.
+    private static final String REPLAY_FILENAME = "last.replay";
+    private static final HashMap<File, ScoreRepository> REPOSITORIES = new HashMap<>();
+
+    private final File file;
+    private final File legacyFile;
+    private final File replayFile;
+    private final ExecutorService writer;
+    private final int capacity;
+    private final ConcurrentLinkedQueue<ScoreEntry> submittedScores = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
+    private volatile byte[] pendingReplay;
+    private volatile IOException lastError;
+
+    // Only used by the writer thread.
+    private ScoreList scores;
+    private boolean dirty;
+
+    private final Runnable saveTask = new Runnable() {
+        @Override
+        public void run() {
+            // Clear the flag first, so a score submitted while saving schedules another save.
+            saveScheduled.set(false);
+            save();
+        }
+    };
+
+    private final Callable<Void> saveCall = new Callable<Void>() {
+        @Override
+        public Void call() {
+            save();
+            return null;
+        }
+    };
+
+    /**
+     * Gets the repository for the scores stored in a directory.
+     * @param directory The directory the scores are stored in.
+     * @param capacity The number of scores kept. Everyone using the directory must agree on it.
+     * @return The repository, shared by everyone using the same directory.
+     */
+    public static synchronized ScoreRepository open(File directory, int capacity) {
+        ScoreRepository repository = REPOSITORIES.get(directory);
+        if(repository == null) {
+            repository = new ScoreRepository(directory, capacity);
+            REPOSITORIES.put(directory, repository);
+        } else if(repository.capacity != capacity) {
+            throw new IllegalArgumentException("Scores in " + directory + " are kept " + repository.capacity + " at a time, not " + capacity);
+        }
+        return repository;
+    }
+
+    ScoreRepository(File directory, int capacity) {
+        this.capacity = capacity;
+        file = new File(directory, FILENAME);
+        legacyFile = new File(directory, LEGACY_FILENAME);
+        replayFile = new File(directory, REPLAY_FILENAME);
+        writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ScoreWriter");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submits the score of a finished game. Never blocks; the score is added and saved on the
+     * writer thread.
+     * @param entry The score and the game it was reached in.
+     * @param replay The replay of the game, saved as the last replay. May be null.
+     */
+    public void submit(ScoreEntry entry, byte[] replay) {
+        submittedScores.add(entry);
+        if(replay != null)
+            pendingReplay = replay;
+        if(saveScheduled.compareAndSet(false, true))
+            writer.execute(saveTask);
+    }
+
+    /**
+     * Waits until all submitted scores have been saved.
+     */
+    public void flush() {
+        await(saveCall);
+    }
+
+    /**
+     * Waits until all submitted scores have been saved, but no longer than a timeout. The scores
+     * are still saved after the timeout, only the wait is cut short.
+     * @param timeoutMillis The maximum time to wait.
+     * @return True if everything submitted has been saved.
+     */
+    public boolean flush(long timeoutMillis) {
+        Future<Void> result = writer.submit(saveCall);
+        boolean interrupted = false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        try {
+            while(true) {
+                try {
+                    result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    return true;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return The last error loading or saving the scores, or null if there has been none since
+     * the scores were last saved.
+     */
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * Gets the high score list, including all submitted scores. Waits for the list to be loaded if
+     * it hasn't been yet.
+     * @return A copy of the list.
+     */
+    public ScoreList getScores() {
+        return await(new Callable<ScoreList>() {
+            @Override
+            public ScoreList call() {
+                loadIfNeeded();
+                addSubmittedScores();
+                return scores.copy();
+            }
+        });
+    }
+
+    /**
+     * Gets part of the high score list, including all submitted scores. Waits for the list to be
+     * loaded if it hasn't been yet, so call it from a background thread.
+     * @param from The index of the first score.
+     * @param count The maximum number of scores to get.
+     * @return A copy of the scores, the score at from being first.
+     */
+    public ScoreList getScores(final int from, final int count) {
+        return await(new Callable<ScoreList>() {
+            @Override
+            public ScoreList call() {
+                loadIfNeeded();
+                addSubmittedScores();
+                return scores.copyRange(from, count);
+            }
+        });
+    }
+
+    public int getCapacity() { return capacity; }
+
+    /**
+     * Gets the number of scores on the high score list, including all submitted scores. Waits for
+     * the list to be loaded if it hasn't been yet.
+     * @return The number of scores.
+     */
+    public int getScoreCount() {
+        return await(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                loadIfNeeded();
+                addSubmittedScores();
+                return scores.size();
+            }
+        });
+    }
+
+    /**
+     * Tells what place a score gets on the high score list, including all submitted scores.
+     * Waits for the list to be loaded if it hasn't been yet.
+     * @param score The score.
+     * @return The place, 1 being the best, or -1 if the score wouldn't make it onto the list.
+     */
+    public int getRank(final int score) {
+        return await(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                loadIfNeeded();
+                addSubmittedScores();
+                return scores.getRank(score);
+            }
+        });
+    }
+
+    /**
+     * Adds the submitted scores and saves the list if it has changed. Runs on the writer thread.
+     */
+    private void save() {
+        loadIfNeeded();
+        addSubmittedScores();
+        if(dirty) {
+            try {
+                ScoreFile.write(file, scores);
+                dirty = false;
+                lastError = null;
+            } catch (IOException e) {
+                // Stays dirty, so the next save tries again.
+                lastError = e;
+            }
+        }
+
+        byte[] replay = pendingReplay;
+        if(replay != null) {
+            pendingReplay = null;
+            try {
+                FileOutputStream out = new FileOutputStream(replayFile);
+                try {
+                    out.write(replay);
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                lastError = e;
+            }
+        }
+    }
+
+    private void addSubmittedScores() {
+        ScoreEntry entry;
+        while((entry = submittedScores.poll()) != null) {
+            if(scores.add(entry) >= 0)
+                dirty = true;
+        }
+    }
+
+    /**
+     * Loads the list the first time it is needed. Scores saved by older versions of the game are
+     * converted. A damaged file is kept aside, with .corrupt added to its name, instead of being
+     * overwritten by the next save.
+     */
+    private void loadIfNeeded() {
+        if(scores != null)
+            return;
+
+        try {
+            if(!file.exists() && legacyFile.exists())
+                migrate();
+            scores = ScoreFile.read(file, capacity);
+        } catch (ScoreFile.CorruptException e) {
+            lastError = e;
+            file.renameTo(new File(file.getPath() + ".corrupt"));
+            scores = new ScoreList(capacity);
+        } catch (IOException e) {
+            lastError = e;
+            scores = new ScoreList(capacity);
+        }
+    }
+
+    /**
+     * Converts the scores saved by older versions of the game.
+     */
+    private void migrate() throws IOException {
+        int[] legacyScores;
+        try {
+            legacyScores = ScoreFile.readLegacy(legacyFile);
+        } catch (IOException e) {
+            lastError = e;
+            legacyFile.renameTo(new File(legacyFile.getPath() + ".corrupt"));
+            return;
+        }
+
+        ScoreList converted = new ScoreList(capacity);
+        for(int score : legacyScores)
+            converted.add(score);
+        ScoreFile.write(file, converted);
+        legacyFile.delete();
+    }
+
+    /**
+     * Runs a task on the writer thread and waits for its result.
+     */
+    private <T> T await(Callable<T> task) {
+        Future<T> result = writer.submit(task);
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            if(interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
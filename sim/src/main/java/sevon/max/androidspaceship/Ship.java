@@ -0,0 +1,129 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The spaceship's physics: position, direction, speed and score, and the points it collides at.
+ * Drawing is left to Spaceship in the app, so this runs on any JVM.
+ * Moving and collision checking are done every tick, so they don't allocate anything; the vectors
+ * and buffers they need are kept in fields and changed in place.
+ */
+public class Ship {
+
+    // The spaceship's 4 collision points; (10,2) (11,2) (3,22) (18,22)
+    private static final float[] COLLISION_POINTS = { 10, 2, 11, 2, 3, 22, 18, 22};
+    private static final Vector2 ZERO_ROTATION = new Vector2(0, -1);    // The spaceship's standard direction.
+
+    private final int width;
+    private final int height;
+    private final Vector2 worldPosition;
+    private final Vector2 previousWorldPosition;    // Position before the last move, used for interpolation.
+    private final Vector2 direction = new Vector2(0, -1);
+    private float speed = 1;
+    private int score;
+
+    private final float[] collisionPoints = new float[COLLISION_POINTS.length];   // Collision points in world coordinates.
+
+    /**
+     * @param width The width of the spaceship's image.
+     * @param height The height of the spaceship's image.
+     * @param position The starting position, in world coordinates. Copied.
+     */
+    public Ship(int width, int height, Vector2 position) {
+        this.width = width;
+        this.height = height;
+        // Copy the position since it is changed in place when moving.
+        this.worldPosition = new Vector2(position.getX(), position.getY());
+        this.previousWorldPosition = new Vector2(position.getX(), position.getY());
+    }
+
+    public void move(Vector2 moveDirection) {
+        direction.set(moveDirection);
+        previousWorldPosition.set(worldPosition);
+        worldPosition.addInPlace(direction.getX() * speed, direction.getY() * speed);
+    }
+
+    /**
+     * @return The spaceship's position. Changes in place when the spaceship moves.
+     */
+    public Vector2 getWorldPosition() { return worldPosition; }
+
+    /**
+     * @return The spaceship's position before the last move. Changes in place when the spaceship
+     * moves.
+     */
+    public Vector2 getPreviousWorldPosition() { return previousWorldPosition; }
+
+    /**
+     * @return Returns the rotation of the spaceship, in degrees. Use with matrices.
+     */
+    public float getRotation() {
+        // calculate the angle between the zero rotation vector and the current bearing.
+        float rotation = (float) Math.toDegrees(Vector2.getAngle(direction, ZERO_ROTATION));
+
+        // if the bearing is towards the left, rotation should be negative (counter clockwise).
+        if(direction.getX() < 0)
+            rotation = -rotation;
+
+        return rotation;
+    }
+
+    /**
+     * Checks if the spaceship is currently colliding with something in the game world.
+     * @param simulation The simulation to check for collisions in.
+     * @return True if a collision was found.
+     */
+    public boolean checkCollision(Simulation simulation) {
+        float[] points = mapCollisionPoints();
+
+        // Check for collision at all points. If one is found, return true.
+        for(int i = 0; i < points.length; i += 2) {
+            if(simulation.checkCollision(points[i], points[i+1]))
+                return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Translates and rotates the spaceship's collision points into world coordinates.
+     * @return The collision points as x, y pairs. The array is reused by the next call.
+     */
+    float[] mapCollisionPoints() {
+        // The spaceship's world coordinate is in the middle of the ship.
+        int offsetX = -width / 2;
+        int offsetY = -height / 2;
+
+        // Same rotation as Matrix.postRotate, done by hand so no Matrix is needed. StrictMath gives
+        // the same result on every device, so replays of a game collide the same way.
+        double radians = Math.toRadians(getRotation());
+        float cos = (float) StrictMath.cos(radians);
+        float sin = (float) StrictMath.sin(radians);
+
+        for(int i = 0; i < COLLISION_POINTS.length; i += 2) {
+            float x = COLLISION_POINTS[i] + offsetX;
+            float y = COLLISION_POINTS[i+1] + offsetY;
+            collisionPoints[i] = x * cos - y * sin + worldPosition.getX();
+            collisionPoints[i+1] = x * sin + y * cos + worldPosition.getY();
+        }
+
+        return collisionPoints;
+    }
+
+    public float getSpeed() { return speed; }
+    public void setSpeed(float speed) { this.speed = speed; }
+
+    /**
+     * Updates the players score.
+     * The score is based on the y-distance the player has travelled from the starting position.
+     * @param startingPosition The position the spaceship started at.
+     */
+    public void updateScore(Vector2 startingPosition) {
+        score = (int) -(worldPosition.getY() - startingPosition.getY());
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
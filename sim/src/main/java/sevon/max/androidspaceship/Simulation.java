@@ -0,0 +1,276 @@
+package sevon.max.androidspaceship;
+
+import java.util.concurrent.Executor;
+
+/**
+ * The game world without any drawing: the spaceship, the cells around it and the rules that tie
+ * them together. The app draws it through World; on its own it runs on any JVM, which is how it
+ * is tested and benchmarked.
+ */
+public class Simulation {
+
+    public static final Vector2 STARTING_POSITION = new Vector2(Cell.WIDTH / 2, Cell.HEIGHT / 2);
+    private static final int EVENT_QUEUE_SIZE = 64;         // Events a listener can fall behind.
+    private static final float NEAR_MISS_DISTANCE = 24;     // How close to a wall counts as a near miss.
+
+    private final CellGrid cellGrid;
+    private final int shipWidth;
+    private final int shipHeight;
+    private Ship ship;
+    private int currentCellNumber;  // used to determine whether a new cell should be loaded.
+    private int currentColumn;      // Always 0 in a single column of cells.
+    private int ticks;              // Number of ticks the spaceship has moved.
+    private int furthestCellNumber;
+    private float maxSpeed;
+    private ReplayRecorder recorder;
+    private boolean nearWall;       // A near miss has been reported and the spaceship is still close.
+    private Profiler.Track track = Profiler.NO_TRACK;
+
+    private final EventBus events = new EventBus(EVENT_QUEUE_SIZE);
+    private final Vector2 moveDirection = new Vector2(0, 0);   // Scratch vectors, so update() doesn't allocate.
+    private final Vector2 velocity = new Vector2(0, 0);
+
+    /**
+     * @param cellGrid The cells of the world.
+     * @param shipWidth The width of the spaceship's image.
+     * @param shipHeight The height of the spaceship's image.
+     */
+    public Simulation(CellGrid cellGrid, int shipWidth, int shipHeight) {
+        this.cellGrid = cellGrid;
+        this.shipWidth = shipWidth;
+        this.shipHeight = shipHeight;
+    }
+
+    /**
+     * Registers a listener that is notified on the thread that updates the simulation.
+     */
+    public void registerListener(GameEventListener listener) {
+        events.subscribe(listener, CellStreamer.IMMEDIATE_EXECUTOR);
+    }
+
+    /**
+     * Registers a listener that is notified on its own executor, so it can never slow down the
+     * simulation.
+     * @param listener The listener.
+     * @param executor The executor to notify the listener on.
+     * @return The subscription, for statistics on how the listener keeps up.
+     */
+    public EventBus.Subscription registerListener(GameEventListener listener, Executor executor) {
+        return events.subscribe(listener, executor);
+    }
+
+    /**
+     * Sets a recorder that records every game from when it is restarted.
+     * @param recorder The recorder, or null to stop recording.
+     */
+    public void setRecorder(ReplayRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    /**
+     * Sets the profiler track collision checks and cell streaming are recorded in. Must be the
+     * track of the thread that updates the simulation.
+     */
+    public void setProfilerTrack(Profiler.Track track) {
+        this.track = track;
+    }
+
+    /**
+     * Starts a new game. The spaceship is placed at the center of the first cell.
+     */
+    public void restart() {
+        ship = new Ship(shipWidth, shipHeight, STARTING_POSITION);
+
+        // Release cells from the previous game and start loading the first ones.
+        cellGrid.clear();
+        currentCellNumber = 0;
+        currentColumn = 0;
+        furthestCellNumber = 0;
+        ticks = 0;
+        nearWall = false;
+        maxSpeed = ship.getSpeed();
+        updateCells();
+
+        if(recorder != null)
+            recorder.start(cellGrid.getSeed(), cellGrid.getLayoutCount(), shipWidth, shipHeight);
+        notifyListeners(GameEvent.GAME_STARTED, ship.getSpeed());
+    }
+
+    /**
+     * Updates the game world and moves the spaceship according to the provided values.
+     * The values are quantized to the resolution games are recorded at, so that a replay of the
+     * game moves the spaceship exactly the same way.
+     * @param accelerationX The x-component of the spaceship's move direction.
+     * @param accelerationY The y-component of the spaceship's move direction.
+     * @return Returns true if the game should continue. False if the game is over (this happens
+     * when the spaceship has crashed).
+     */
+    public boolean update(float accelerationX, float accelerationY) {
+        // Hold the spaceship while the cell it is on is still being loaded, we can't check it for
+        // collisions yet. This only happens if loading can't keep up with the spaceship.
+        Cell currentCell = getCurrentCell();
+        if(currentCell == null || !currentCell.isLoaded()) {
+            updateCells();
+            return true;
+        }
+
+        // Only ticks where the spaceship moves are recorded. Whether it is held depends on how
+        // fast cells load, which a replay can't repeat.
+        int inputX = ReplayRecorder.quantize(accelerationX);
+        int inputY = ReplayRecorder.quantize(accelerationY);
+        if(recorder != null)
+            recorder.record(inputX, inputY);
+        ticks++;
+
+        moveDirection.set(ReplayRecorder.dequantize(inputX), ReplayRecorder.dequantize(inputY)).normalizeInto(moveDirection);
+        ship.move(moveDirection);
+        ship.updateScore(STARTING_POSITION);
+
+        // Check if spaceship has moved on to another cell, above, below or to the side.
+        currentCell = getCurrentCell();
+        if(currentCell != null && (currentCellNumber != currentCell.getCellNumber() || currentColumn != currentCell.getColumn())) {
+            // It has. Update index of current cell.
+            currentCellNumber = currentCell.getCellNumber();
+            currentColumn = currentCell.getColumn();
+
+            notifyListeners(GameEvent.CELL_ENTERED, ship.getSpeed());
+
+            // If the cell is a multiple of 3 cells away from the start we increase the spaceships
+            // speed by a little bit. Away counts the columns as well as the rows, so flying
+            // sideways speeds up too; in column 0 it is just the cell number.
+            if(getRingNumber(currentColumn, currentCellNumber) % 3 == 0) {
+                ship.setSpeed(ship.getSpeed() + 0.5f);
+                notifyListeners(GameEvent.SPEED_UP, ship.getSpeed());
+            }
+
+            furthestCellNumber = Math.max(furthestCellNumber, currentCellNumber);
+            maxSpeed = Math.max(maxSpeed, ship.getSpeed());
+        }
+
+        // Make sure the cells around the spaceship are loaded, or being loaded.
+        long streamingStart = track.begin();
+        updateCells();
+        track.end(Profiler.Section.CELL_STREAMING, streamingStart);
+
+        // Check if spaceship has crashed.
+        long collisionStart = track.begin();
+        boolean crashed = ship.checkCollision(this);
+        if(!crashed)
+            checkNearMiss();
+        track.end(Profiler.Section.COLLISION, collisionStart);
+        if(crashed) {
+            // It has... Game over!
+            ship.setSpeed(0);
+            notifyListeners(GameEvent.SPACESHIP_CRASH, 0);
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * @return How many cells a cell is from the start cell, counting diagonal steps as one.
+     */
+    private static int getRingNumber(int column, int cellNumber) {
+        return Math.max(Math.abs(column), Math.abs(cellNumber));
+    }
+
+    /**
+     * Streams the cells around the spaceship, ahead of where it is heading.
+     */
+    private void updateCells() {
+        Vector2 position = ship.getWorldPosition();
+        Vector2 previous = ship.getPreviousWorldPosition();
+        velocity.set(position.getX() - previous.getX(), position.getY() - previous.getY());
+        cellGrid.update(currentCellNumber, position, velocity, ship.getSpeed());
+    }
+
+    /**
+     * Checks a little further out from the spaceship than its collision points, and tells the
+     * listeners when the spaceship gets close to a wall. Only the first tick of each close pass is
+     * reported.
+     */
+    private void checkNearMiss() {
+        float[] points = ship.mapCollisionPoints();
+        float centerX = ship.getWorldPosition().getX();
+        float centerY = ship.getWorldPosition().getY();
+
+        for(int i = 0; i < points.length; i += 2) {
+            float dx = points[i] - centerX;
+            float dy = points[i+1] - centerY;
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+            if(length == 0)
+                continue;
+
+            float scale = (length + NEAR_MISS_DISTANCE) / length;
+            float x = centerX + dx * scale;
+            float y = centerY + dy * scale;
+            if(checkCollision(x, y)) {
+                if(!nearWall)
+                    events.publish(GameEvent.NEAR_MISS, ticks, x, y, NEAR_MISS_DISTANCE, currentCellNumber);
+                nearWall = true;
+                return;
+            }
+        }
+        nearWall = false;
+    }
+
+    /**
+     * Checks for a collision at the specified world coordinate.
+     * @param worldX The x-coordinate to check at. In world coordinates.
+     * @param worldY The y-coordinate to check at. In world coordinates.
+     * @return True if a collision was found.
+     */
+    public boolean checkCollision(float worldX, float worldY) {
+        // Look up the cell the point is in, which isn't always the current one near its edges.
+        Cell cell = cellGrid.getCellAt(worldX, worldY);
+        if(cell != null) {
+            // Translate to cell coordinates. A single column of cells has nothing to its sides.
+            int x = (int) (worldX - cell.getWorldPosition().getX());
+            int y = (int) (worldY - cell.getWorldPosition().getY());
+            if(x >= 0 && y >= 0 && x < Cell.WIDTH && y < Cell.HEIGHT)
+                return cell.checkCollision(x, y);
+        }
+
+        return false;
+    }
+
+    /**
+     * @return Returns the cell the spaceship is currently on.
+     */
+    public Cell getCurrentCell() {
+        return cellGrid.getCellAt(ship.getWorldPosition().getX(), ship.getWorldPosition().getY());
+    }
+
+    public Ship getShip() { return ship; }
+    public CellGrid getCellGrid() { return cellGrid; }
+    public int getCurrentCellNumber() { return currentCellNumber; }
+    public int getCurrentColumn() { return currentColumn; }
+
+    /**
+     * @return The number of ticks the spaceship has moved since the game was restarted.
+     */
+    public int getTicks() { return ticks; }
+
+    /**
+     * @return The highest cell number the spaceship has reached, in any column. It measures how
+     * far up the spaceship got, like the score.
+     */
+    public int getFurthestCellNumber() { return furthestCellNumber; }
+
+    /**
+     * @return The highest speed the spaceship has had. Unlike its current speed, this isn't reset
+     * by a crash.
+     */
+    public float getMaxSpeed() { return maxSpeed; }
+
+    /**
+     * Notifies any registered listeners that an event has occurred at the spaceship's position.
+     * @param event The occurred event.
+     * @param value A value that depends on the event.
+     */
+    private void notifyListeners(GameEvent event, float value) {
+        Vector2 position = ship.getWorldPosition();
+        events.publish(event, ticks, position.getX(), position.getY(), value, currentCellNumber);
+    }
+}
@@ -0,0 +1,28 @@
+package sevon.max.androidspaceship;
+
+/**
+ * A cell whose collision mask is already known, so loading it is free. Used to run the
+ * simulation without Android, in tests and benchmarks.
+ */
+public class StaticCell extends Cell {
+
+    private final CollisionMask collisionMask;
+
+    public StaticCell(int cellNumber, int layout, int color, CollisionMask collisionMask) {
+        this(0, cellNumber, layout, color, collisionMask);
+    }
+
+    public StaticCell(int column, int cellNumber, int layout, int color, CollisionMask collisionMask) {
+        super(column, cellNumber, layout, color);
+        this.collisionMask = collisionMask;
+    }
+
+    @Override
+    protected CollisionMask getCollisionMask() { return collisionMask; }
+
+    @Override
+    protected void onLoad() { }
+
+    @Override
+    protected void onUnload() { }
+}
@@ -0,0 +1,39 @@
+package sevon.max.androidspaceship;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Base class for a piece of the world whose data is loaded in the background by a CellStreamer.
+ * The loading state is kept in an atomic so that everything written by onLoad() on the decode
+ * thread is visible to any thread that has seen isLoaded() return true.
+ */
+public abstract class StreamedCell {
+
+    static final int UNLOADED = 0;  // Not requested yet, or the request was rejected.
+    static final int QUEUED = 1;    // Waiting in the decode queue.
+    static final int LOADING = 2;   // Currently being loaded on the decode thread.
+    static final int LOADED = 3;    // Loaded and safe to use.
+    static final int RELEASED = 4;  // No longer part of the world, will never be loaded again.
+
+    final AtomicInteger state = new AtomicInteger(UNLOADED);
+
+    /**
+     * Loads the cell's data. Called on the decode thread.
+     */
+    protected abstract void onLoad();
+
+    /**
+     * Frees the cell's data. Called on the decode thread once the cell has been released.
+     */
+    protected abstract void onUnload();
+
+    /**
+     * @return Returns true if the cell's data has been loaded and may be used.
+     */
+    public boolean isLoaded() { return state.get() == LOADED; }
+
+    /**
+     * @return Returns true if the cell has been neither requested nor released.
+     */
+    public boolean isUnloaded() { return state.get() == UNLOADED; }
+}
@@ -0,0 +1,139 @@
+package sevon.max.androidspaceship;
+
+/**
+ * Created by Max on 2016-01-16.
+ * A 2-dimensional vector with some simple operations.
+ * The static operations return new vectors, the in-place ones change the vector they are called on
+ * and are meant for code that runs every frame, where allocating isn't wanted.
+ */
+public class Vector2 {
+
+    private float x;
+    private float y;
+
+    /**
+     * Creates a Vector.
+     * @param x The vector's x-coordinate.
+     * @param y The vector's y-coordinate.
+     */
+    public Vector2 (float x, float y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Sets the coordinates of this vector.
+     * @param x The new x-coordinate.
+     * @param y The new y-coordinate.
+     * @return This vector.
+     */
+    public Vector2 set(float x, float y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    /**
+     * Sets this vector to the same coordinates as v.
+     * @param v The vector to copy.
+     * @return This vector.
+     */
+    public Vector2 set(Vector2 v) {
+        return set(v.x, v.y);
+    }
+
+    /**
+     * Adds v to this vector.
+     * @param v The vector to add.
+     * @return This vector.
+     */
+    public Vector2 addInPlace(Vector2 v) {
+        return addInPlace(v.x, v.y);
+    }
+
+    /**
+     * Adds the specified x and y values to this vector.
+     * @param dx The value to add to the x-coordinate.
+     * @param dy The value to add to the y-coordinate.
+     * @return This vector.
+     */
+    public Vector2 addInPlace(float dx, float dy) {
+        x += dx;
+        y += dy;
+        return this;
+    }
+
+    /**
+     * Writes this vector, normalized, to another vector. The result may be written to this vector.
+     * Components that are 0 stay 0, so the zero vector normalizes to itself.
+     * @param result The vector to write the result to.
+     * @return The result vector.
+     */
+    public Vector2 normalizeInto(Vector2 result) {
+        float length = length();
+        return result.set(x != 0 ? x / length : x, y != 0 ? y / length : y);
+    }
+
+    /**
+     * Returns a vector representing v1 added to v2.
+     * @param v1 The first vector.
+     * @param v2 The second vector.
+     */
+    public static Vector2 add(Vector2 v1, Vector2 v2) {
+        return new Vector2(v1.x + v2.x, v1.y + v2.y);
+    }
+
+    /**
+     * Returns a vector representing v multiplied with a scalar.
+     * @param v The vector to multiply.
+     * @param scalar The scalar to multiply with.
+     */
+    public static Vector2 multiply(Vector2 v, float scalar) {
+        return new Vector2(v.x * scalar, v.y * scalar);
+    }
+
+    /**
+     * Returns the dot product of the two vectors.
+     * @param v1 The first vector.
+     * @param v2 The second vector.
+     */
+    public static float dot(Vector2 v1, Vector2 v2) {
+        return v1.x * v2.x + v1.y * v2.y;
+    }
+
+    /**
+     * Uses pythagoras theorem to calculate and return the length of the vector.
+     * @return The length of the vector.
+     */
+    public float length() {
+        return (float) Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Returns a vector representing v, normalized.
+     * @param v The vector to normalize.
+     */
+    public static Vector2 normalize(Vector2 v) {
+        return v.normalizeInto(new Vector2(0, 0));
+    }
+
+    public float getX() { return x; }
+    public float getY() { return y; }
+
+    /**
+     * Returns the angle between v1 and v2.
+     * @param v1 Vector 1.
+     * @param v2 Vector 2.
+     * @return The angle between v1 and v2.
+     */
+    public static float getAngle(Vector2 v1, Vector2 v2) {
+        // Same as the dot product of the normalized vectors, without creating them.
+        float length1 = v1.length();
+        float length2 = v2.length();
+        float x1 = v1.x != 0 ? v1.x / length1 : 0;
+        float y1 = v1.y != 0 ? v1.y / length1 : 0;
+        float x2 = v2.x != 0 ? v2.x / length2 : 0;
+        float y2 = v2.y != 0 ? v2.y / length2 : 0;
+        return (float) StrictMath.acos(x1 * x2 + y1 * y2);
+    }
+}
@@ -0,0 +1,95 @@
+package sevon.max.androidspaceship;
+
+/**
+ * The part of the world that is on screen, and how world coordinates map to the screen.
+ * clip() culls an image placed in the world with a few integer comparisons, and for a visible
+ * image computes the slice of it that is on screen and where that slice goes on screen. Results
+ * are kept in fields so nothing is allocated per call. Should only be used from the drawing
+ * thread.
+ */
+public class Viewport {
+
+    private float viewX;        // Left edge of the view, in world coordinates.
+    private float viewY;        // Top edge of the view, in world coordinates.
+    private float scaleX;
+    private float scaleY;
+
+    // The view rounded outwards to whole world units, for culling.
+    private int left;
+    private int top;
+    private int right;
+    private int bottom;
+
+    // The last visible slice, in image coordinates.
+    private int sourceLeft;
+    private int sourceTop;
+    private int sourceRight;
+    private int sourceBottom;
+
+    // Where the last visible slice goes, in screen coordinates.
+    private float screenLeft;
+    private float screenTop;
+    private float screenRight;
+    private float screenBottom;
+
+    /**
+     * Centers the view on a point.
+     * @param centerX The x-coordinate of the center, in world coordinates.
+     * @param centerY The y-coordinate of the center, in world coordinates.
+     * @param width The width of the view, in world units.
+     * @param height The height of the view, in world units.
+     * @param scaleX Screen pixels per world unit horizontally.
+     * @param scaleY Screen pixels per world unit vertically.
+     */
+    public void set(float centerX, float centerY, int width, int height, float scaleX, float scaleY) {
+        viewX = centerX - width / 2f;
+        viewY = centerY - height / 2f;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        left = (int) Math.floor(viewX);
+        top = (int) Math.floor(viewY);
+        right = (int) Math.ceil(viewX + width);
+        bottom = (int) Math.ceil(viewY + height);
+    }
+
+    /**
+     * Finds the visible slice of an image.
+     * @param x The x-coordinate of the image's top left corner, in world coordinates.
+     * @param y The y-coordinate of the image's top left corner, in world coordinates.
+     * @param width The width of the image, in world units.
+     * @param height The height of the image, in world units.
+     * @return False if no part of the image is in view. Otherwise the slice is available from the
+     * getters until the next call.
+     */
+    public boolean clip(int x, int y, int width, int height) {
+        // Cull first, most images are well outside the view.
+        if(y >= bottom || y + height <= top || x >= right || x + width <= left)
+            return false;
+
+        sourceLeft = Math.max(left, x) - x;
+        sourceTop = Math.max(top, y) - y;
+        sourceRight = Math.min(right, x + width) - x;
+        sourceBottom = Math.min(bottom, y + height) - y;
+
+        screenLeft = (x + sourceLeft - viewX) * scaleX;
+        screenTop = (y + sourceTop - viewY) * scaleY;
+        screenRight = (x + sourceRight - viewX) * scaleX;
+        screenBottom = (y + sourceBottom - viewY) * scaleY;
+        return true;
+    }
+
+    public int getSourceLeft() { return sourceLeft; }
+    public int getSourceTop() { return sourceTop; }
+    public int getSourceRight() { return sourceRight; }
+    public int getSourceBottom() { return sourceBottom; }
+    public float getScreenLeft() { return screenLeft; }
+    public float getScreenTop() { return screenTop; }
+    public float getScreenRight() { return screenRight; }
+    public float getScreenBottom() { return screenBottom; }
+
+    /**
+     * @return The top edge of the view, rounded down to a whole world unit.
+     */
+    public int getTop() { return top; }
+    public int getBottom() { return bottom; }
+}
@@ -0,0 +1,193 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Checks that the code that runs every frame doesn't allocate anything once it has warmed up.
+ * Uses the JVM's per-thread allocation counter, so it is skipped on JVMs that don't have one.
+ */
+public class AllocationTest {
+
+    private static final int WARMUP_ITERATIONS = 20000;
+    private static final int ITERATIONS = 10000;
+    private static final int MEASUREMENTS = 3;
+
+    private com.sun.management.ThreadMXBean threadBean;
+
+    @Before
+    public void setUp() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void simulationUpdate_allocatesNothing() throws Exception {
+        final Simulation simulation = createSimulation();
+        final int[] nearMisses = new int[1];
+        simulation.registerListener(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                if(event == GameEvent.NEAR_MISS)
+                    nearMisses[0]++;
+            }
+        });
+        simulation.setRecorder(new ReplayRecorder());
+        simulation.restart();
+
+        // The spaceship flies in circles in the start cell, passing close to a wall every lap. So
+        // each update streams cells, checks collisions, probes for near misses, publishes events
+        // and records input, without ever moving on to a new cell. The recorder's buffer
+        // only grows now and then, so at least one measurement sees it stay the same size.
+        assertEquals(0, bytesAllocatedBy(new Runnable() {
+            float angle;
+
+            @Override
+            public void run() {
+                angle += 0.05f;
+                assertTrue(simulation.update((float) Math.sin(angle), (float) -Math.cos(angle)));
+            }
+        }));
+        assertEquals(0, simulation.getCurrentCellNumber());
+        assertTrue(nearMisses[0] > 100);
+    }
+
+    @Test
+    public void drawPath_allocatesNothing() throws Exception {
+        final Simulation simulation = createSimulation();
+        simulation.restart();
+        final FrameExchange<Cell[]> frames = new FrameExchange<>(new Cell[CellMap.MAX_LOADED_CELLS],
+                new Cell[CellMap.MAX_LOADED_CELLS], new Cell[CellMap.MAX_LOADED_CELLS]);
+        final Viewport viewport = new Viewport();
+
+        assertEquals(0, bytesAllocatedBy(new Runnable() {
+            float offset;
+
+            @Override
+            public void run() {
+                // Same steps as World.publishFrame: fill the snapshot with the cells and hand it over.
+                CellGrid cellGrid = simulation.getCellGrid();
+                Cell[] cells = frames.getBack();
+                int count = Math.min(cellGrid.size(), cells.length);
+                for(int i = 0; i < count; i++)
+                    cells[i] = cellGrid.get(i);
+                for(int i = count; i < cells.length; i++)
+                    cells[i] = null;
+                frames.publish();
+
+                // Same steps as World.drawFrame: cull and clip every cell against the view.
+                Cell[] drawn = frames.acquire();
+                offset = (offset + 7) % Cell.HEIGHT;
+                viewport.set(Cell.WIDTH / 2, Cell.HEIGHT / 2 - offset, 360, 640, 2, 2);
+                for(Cell cell : drawn) {
+                    if(cell != null)
+                        viewport.clip((int) cell.getWorldPosition().getX(), (int) cell.getWorldPosition().getY(), Cell.WIDTH, Cell.HEIGHT);
+                }
+            }
+        }));
+    }
+
+    @Test
+    public void hudFormatting_allocatesNothing() throws Exception {
+        final CounterText scoreText = new CounterText("Score: ", 0);
+        final CounterText speedText = new CounterText("Speed: ", 1);
+
+        assertEquals(0, bytesAllocatedBy(new Runnable() {
+            int score;
+
+            @Override
+            public void run() {
+                // Same values as World.drawFrame sets on the HUD counters.
+                scoreText.setValue(score++);
+                speedText.setValue(score * 0.5f);
+            }
+        }));
+    }
+
+    @Test
+    public void frameHandOver_allocatesNothing() throws Exception {
+        final FrameExchange<float[]> frames = new FrameExchange<>(new float[4], new float[4], new float[4]);
+        final GameLoop loop = new GameLoop(new GameLoop.Game() {
+            @Override
+            public boolean update() { return true; }
+
+            @Override
+            public void render(float interpolation) {
+                frames.getBack()[0] = interpolation;
+                frames.publish();
+            }
+        }, new GameLoop.Clock() {
+            long time;
+
+            @Override
+            public long nanoTime() { return time += GameLoop.STEP_NANOS / 3; }
+
+            @Override
+            public void sleep(long nanos) { }
+        });
+
+        assertEquals(0, bytesAllocatedBy(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    loop.runFrame();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                frames.acquire();
+            }
+        }));
+    }
+
+    /**
+     * Creates a simulation with cells that load right away. Every cell has a wall to the right of
+     * where the spaceship starts.
+     */
+    private static Simulation createSimulation() {
+        final CollisionMask mask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        for(int y = 0; y < Cell.HEIGHT; y++)
+            mask.fillRow(y, 320, Cell.WIDTH);
+        CellMap cellMap = new CellMap(new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(cellNumber, layout, color, mask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), 3, 1234);
+        return new Simulation(cellMap, 22, 24);
+    }
+
+    /**
+     * Runs the task until it has warmed up, then measures how much it allocates. The JIT can
+     * still recompile the task after the warm-up, and recompiling may allocate now and then, so
+     * the lowest of a few measurements is used. Code that allocates every run shows up in all of
+     * them.
+     * @return The number of bytes allocated by ITERATIONS runs, minus the cost of measuring.
+     */
+    private long bytesAllocatedBy(Runnable task) {
+        long threadId = Thread.currentThread().getId();
+        for(int i = 0; i < WARMUP_ITERATIONS; i++)
+            task.run();
+
+        // Measuring allocates a little by itself, measure that first.
+        long overheadStart = threadBean.getThreadAllocatedBytes(threadId);
+        long overhead = threadBean.getThreadAllocatedBytes(threadId) - overheadStart;
+
+        long lowest = Long.MAX_VALUE;
+        for(int measurement = 0; measurement < MEASUREMENTS; measurement++) {
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            for(int i = 0; i < ITERATIONS; i++)
+                task.run();
+            lowest = Math.min(lowest, threadBean.getThreadAllocatedBytes(threadId) - start - overhead);
+        }
+        return lowest;
+    }
+}
@@ -0,0 +1,124 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CellGeneratorTest {
+
+    private CellGenerator generator = new CellGenerator(4);
+
+    @Test
+    public void generate_sameSeedGivesSameLayout() throws Exception {
+        GeneratedLayout first = generator.generate(1234, 7, 3);
+        GeneratedLayout other = new CellGenerator(4).generate(1234, 7, 3);
+        assertSameMask(first.getCollisionMask(), other.getCollisionMask());
+
+        // A reused layout must not keep anything of its previous cell.
+        generator.release(first);
+        generator.generate(99, 2, CellGenerator.MAX_DIFFICULTY);
+        generator.release(generator.generate(99, 3, 0));
+        GeneratedLayout reused = generator.generate(1234, 7, 3);
+        assertSameMask(other.getCollisionMask(), reused.getCollisionMask());
+        assertEquals(other.getWallCount(), reused.getWallCount());
+    }
+
+    @Test
+    public void generate_cellsDiffer() throws Exception {
+        CollisionMask a = generator.generate(1234, 7, 3).getCollisionMask();
+        CollisionMask b = generator.generate(1234, 8, 3).getCollisionMask();
+        CollisionMask c = generator.generate(1235, 7, 3).getCollisionMask();
+        assertTrue(differs(a, b));
+        assertTrue(differs(a, c));
+    }
+
+    @Test
+    public void generate_opensLikeHandmadeCells() throws Exception {
+        CollisionMask mask = generator.generate(42, 5, CellGenerator.MAX_DIFFICULTY).getCollisionMask();
+        for(int y : new int[] { 0, Cell.HEIGHT - 1 }) {
+            for(int x = 0; x < Cell.WIDTH; x++) {
+                boolean open = x >= CellGenerator.OPENING_LEFT && x < CellGenerator.OPENING_RIGHT;
+                assertEquals("x " + x + ", y " + y, !open, mask.isSolid(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void generate_alwaysLeavesAWayThrough() throws Exception {
+        for(int difficulty = 0; difficulty <= CellGenerator.MAX_DIFFICULTY; difficulty++) {
+            for(int cellNumber = 1; cellNumber < 50; cellNumber++) {
+                GeneratedLayout layout = generator.generate(cellNumber * 31L, cellNumber, difficulty);
+                CollisionMask mask = layout.getCollisionMask();
+                int previousLeft = -1;
+                int previousRight = -1;
+                for(int y = 0; y < Cell.HEIGHT; y++) {
+                    int left = 0;
+                    while(mask.isSolid(left, y))
+                        left++;
+                    int right = left;
+                    while(right < Cell.WIDTH && !mask.isSolid(right, y))
+                        right++;
+                    for(int x = right; x < Cell.WIDTH; x++)
+                        assertTrue("one opening per row", mask.isSolid(x, y));
+                    if(y > 0) {
+                        int overlap = Math.min(right, previousRight) - Math.max(left, previousLeft);
+                        assertTrue("overlap " + overlap + " at y " + y, overlap >= CellGenerator.MIN_GAP);
+                    }
+                    previousLeft = left;
+                    previousRight = right;
+                }
+                generator.release(layout);
+            }
+        }
+    }
+
+    @Test
+    public void generate_wallsCoverTheMask() throws Exception {
+        GeneratedLayout layout = generator.generate(77, 12, 5);
+        CollisionMask walls = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        for(int i = 0; i < layout.getWallCount(); i++)
+            for(int y = layout.getWallTop(i); y < layout.getWallBottom(i); y++)
+                walls.fillRow(y, layout.getWallLeft(i), layout.getWallRight(i));
+
+        assertSameMask(layout.getCollisionMask(), walls);
+    }
+
+    @Test
+    public void generate_harderCellsAreNarrower() throws Exception {
+        assertTrue(openArea(CellGenerator.MAX_DIFFICULTY) < openArea(0));
+        assertEquals(200, generator.getGenerationTime().getCount());
+    }
+
+    @Test
+    public void getDifficulty_goesUpEveryThirdCell() throws Exception {
+        assertEquals(0, CellGenerator.getDifficulty(-1));
+        assertEquals(0, CellGenerator.getDifficulty(2));
+        assertEquals(1, CellGenerator.getDifficulty(3));
+        assertEquals(CellGenerator.MAX_DIFFICULTY, CellGenerator.getDifficulty(100));
+    }
+
+    private long openArea(int difficulty) {
+        long open = 0;
+        for(int cellNumber = 1; cellNumber <= 100; cellNumber++) {
+            GeneratedLayout layout = generator.generate(5, cellNumber, difficulty);
+            for(int y = 0; y < Cell.HEIGHT; y++)
+                for(int x = 0; x < Cell.WIDTH; x++)
+                    if(!layout.getCollisionMask().isSolid(x, y))
+                        open++;
+            generator.release(layout);
+        }
+        return open;
+    }
+
+    private static boolean differs(CollisionMask a, CollisionMask b) {
+        for(int y = 0; y < Cell.HEIGHT; y++)
+            for(int x = 0; x < Cell.WIDTH; x++)
+                if(a.isSolid(x, y) != b.isSolid(x, y))
+                    return true;
+        return false;
+    }
+
+    private static void assertSameMask(CollisionMask expected, CollisionMask actual) {
+        assertFalse(differs(expected, actual));
+    }
+}
@@ -0,0 +1,71 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CellMapTest {
+
+    private static final long SEED = 1234;
+
+    private CellGenerator generator = new CellGenerator(CellMap.MAX_LOADED_CELLS);
+    private CellMap cellMap = new CellMap(new CellMap.Factory() {
+        @Override
+        public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+            if(layout == CellMap.GENERATED_LAYOUT)
+                return new GeneratedCell(cellNumber, color, difficulty, generator, SEED);
+            return new StaticCell(cellNumber, layout, color, new CollisionMask(Cell.WIDTH, Cell.HEIGHT));
+        }
+    }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), 1, SEED);
+
+    @Test
+    public void recreatedCell_getsSameLayoutAtAnotherSpeed() throws Exception {
+        cellMap.update(9, 3);
+        GeneratedCell first = (GeneratedCell) cellMap.getCell(9);
+        int[] walls = getWalls(first.getGeneratedLayout());
+
+        // Fly on so the cell is dropped, then come back after a crash has stopped the spaceship.
+        cellMap.update(20, 6);
+        assertNull(cellMap.getCell(9));
+        assertFalse(first.isLoaded());
+        cellMap.update(9, 0);
+
+        GeneratedCell again = (GeneratedCell) cellMap.getCell(9);
+        assertNotSame(first, again);
+        assertArrayEquals(walls, getWalls(again.getGeneratedLayout()));
+    }
+
+    @Test
+    public void getRandomLayout_mixesGeneratedCellsIntoOtherLayouts() throws Exception {
+        Random rng = new Random(SEED);
+        int[] counts = new int[4];
+        for(int i = 0; i < 3000; i++) {
+            int layout = CellMap.getRandomLayout(rng, 3);
+            counts[layout == CellMap.GENERATED_LAYOUT ? 3 : layout]++;
+        }
+
+        assertEquals(0, counts[0]);     // Only the start cell gets the start layout.
+        for(int i = 1; i < counts.length; i++)
+            assertTrue(counts[i] > 800);
+    }
+
+    @Test
+    public void getRandomLayout_generatesEveryCellWithOnlyTheStartLayout() throws Exception {
+        Random rng = new Random(SEED);
+        for(int i = 0; i < 100; i++)
+            assertEquals(CellMap.GENERATED_LAYOUT, CellMap.getRandomLayout(rng, 1));
+    }
+
+    private static int[] getWalls(GeneratedLayout layout) {
+        int[] walls = new int[layout.getWallCount() * 4];
+        for(int i = 0; i < layout.getWallCount(); i++) {
+            walls[i * 4] = layout.getWallLeft(i);
+            walls[i * 4 + 1] = layout.getWallTop(i);
+            walls[i * 4 + 2] = layout.getWallRight(i);
+            walls[i * 4 + 3] = layout.getWallBottom(i);
+        }
+        return walls;
+    }
+}
@@ -0,0 +1,101 @@
+package sevon.max.androidspaceship;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CellStreamerTest {
+
+    private CellStreamer streamer = new CellStreamer(1024, 8);
+
+    @After
+    public void tearDown() {
+        streamer.shutdown();
+    }
+
+    @Test
+    public void getPrefetchDistance_growsWithSpeed() throws Exception {
+        assertEquals(1, streamer.getPrefetchDistance(1));
+        assertEquals(2, streamer.getPrefetchDistance(10));
+        assertEquals(CellStreamer.MAX_CELLS_AHEAD, streamer.getPrefetchDistance(1000));
+    }
+
+    @Test
+    public void request_loadsOnDecodeThread() throws Exception {
+        TestCell cell = new TestCell();
+        streamer.request(cell);
+        streamer.request(cell);     // second request is ignored.
+
+        assertTrue(cell.loadedLatch.await(1, TimeUnit.SECONDS));
+        waitUntilLoaded(cell);
+        assertEquals(1, cell.loads.get());
+        assertNotSame(Thread.currentThread(), cell.loadThread);
+    }
+
+    @Test
+    public void release_unloadsLoadedCell() throws Exception {
+        TestCell cell = new TestCell();
+        streamer.request(cell);
+        waitUntilLoaded(cell);
+
+        streamer.release(cell);
+        assertTrue(cell.unloadedLatch.await(1, TimeUnit.SECONDS));
+        assertFalse(cell.isLoaded());
+    }
+
+    @Test
+    public void release_beforeLoadSkipsLoading() throws Exception {
+        // Block the decode thread so the second cell stays in the queue.
+        final CountDownLatch blocker = new CountDownLatch(1);
+        TestCell blocking = new TestCell() {
+            @Override
+            protected void onLoad() {
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        TestCell cell = new TestCell();
+        streamer.request(blocking);
+        streamer.request(cell);
+        streamer.release(cell);
+        blocker.countDown();
+
+        waitUntilLoaded(blocking);
+        assertEquals(0, cell.loads.get());
+        assertFalse(cell.isLoaded());
+    }
+
+    private static void waitUntilLoaded(StreamedCell cell) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while(!cell.isLoaded() && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        assertTrue(cell.isLoaded());
+    }
+
+    private static class TestCell extends StreamedCell {
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch loadedLatch = new CountDownLatch(1);
+        final CountDownLatch unloadedLatch = new CountDownLatch(1);
+        volatile Thread loadThread;
+
+        @Override
+        protected void onLoad() {
+            loads.incrementAndGet();
+            loadThread = Thread.currentThread();
+            loadedLatch.countDown();
+        }
+
+        @Override
+        protected void onUnload() {
+            unloadedLatch.countDown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CellWindowTest {
+
+    private CellWindow<String> window = new CellWindow<>(3, 5);
+
+    @Test
+    public void size_isRoundedUpToPowerOfTwo() throws Exception {
+        assertEquals(4, window.getColumns());
+        assertEquals(8, window.getRows());
+        assertEquals(1, new CellWindow<String>(1, 4).getColumns());
+        assertEquals(4, new CellWindow<String>(1, 4).getRows());
+    }
+
+    @Test
+    public void put_findsCellsByColumnAndRow() throws Exception {
+        window.put(0, 0, "0,0");
+        window.put(-1, 0, "-1,0");
+        window.put(0, -1, "0,-1");
+
+        assertEquals(3, window.size());
+        assertEquals("0,0", window.get(0, 0));
+        assertEquals("-1,0", window.get(-1, 0));
+        assertEquals("0,-1", window.get(0, -1));
+        assertNull(window.get(1, 0));
+        assertNull(window.get(-1, -1));
+    }
+
+    @Test
+    public void put_pushesOutCellAWindowAway() throws Exception {
+        window.put(1, 2, "near");
+
+        assertNull(window.get(5, 2));       // Same slot, another cell.
+        assertNull(window.get(1, 10));
+        assertEquals("near", window.put(5, 10, "far"));
+        assertNull(window.get(1, 2));
+        assertEquals("far", window.get(5, 10));
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    public void remove_onlyRemovesThatCell() throws Exception {
+        window.put(0, 3, "cell");
+
+        assertNull(window.remove(4, 3));
+        assertEquals(1, window.size());
+        assertEquals("cell", window.remove(0, 3));
+        assertNull(window.get(0, 3));
+        assertTrue(window.isEmpty());
+    }
+
+    @Test
+    public void slide_wrapsAroundTheBuffer() throws Exception {
+        CellWindow<String> column = new CellWindow<>(1, 4);
+        for(int i = 0; i < 4; i++)
+            column.put(0, i, Integer.toString(i));
+        for(int i = 4; i < 100; i++) {
+            assertEquals(Integer.toString(i - 4), column.remove(0, i - 4));
+            column.put(0, i, Integer.toString(i));
+        }
+
+        for(int i = 96; i < 100; i++)
+            assertEquals(Integer.toString(i), column.get(0, i));
+        assertNull(column.get(0, 95));
+        assertNull(column.get(0, 92));     // Same slot as 96.
+        assertEquals(4, column.size());
+    }
+}
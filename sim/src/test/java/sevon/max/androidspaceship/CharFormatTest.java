@@ -0,0 +1,39 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CharFormatTest {
+
+    private char[] buffer = new char[32];
+
+    @Test
+    public void appendInt_matchesToString() throws Exception {
+        long[] values = { 0, 7, 10, 12345, -1, -9876, Integer.MAX_VALUE, Integer.MIN_VALUE };
+        for(long value : values) {
+            int length = CharFormat.appendInt(buffer, 0, value);
+            assertEquals(Long.toString(value), new String(buffer, 0, length));
+        }
+    }
+
+    @Test
+    public void appendFixed_roundsToDecimals() throws Exception {
+        assertEquals("1.5", format(1.5f, 1));
+        assertEquals("2.0", format(2f, 1));
+        assertEquals("0.05", format(0.049f, 2));
+        assertEquals("-3.25", format(-3.25f, 2));
+        assertEquals("4", format(3.6f, 0));
+    }
+
+    @Test
+    public void append_writesAtOffset() throws Exception {
+        int length = CharFormat.append(buffer, 0, "Score: ");
+        length = CharFormat.appendInt(buffer, length, 42);
+        assertEquals("Score: 42", new String(buffer, 0, length));
+    }
+
+    private String format(float value, int decimals) {
+        return new String(buffer, 0, CharFormat.appendFixed(buffer, 0, value, decimals));
+    }
+}
@@ -0,0 +1,169 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChunkGridTest {
+
+    private static final int LAYOUTS = 3;
+    private static final int CHUNK_BYTES = 1024;
+
+    private CollisionMask emptyMask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+    private CollisionMask solidMask = createSolidMask();
+    private List<Cell> removedCells = new ArrayList<>();
+    private ChunkGrid.Factory factory = new ChunkGrid.Factory() {
+        @Override
+        public Cell createCell(int column, int cellNumber, int layout, int color, int difficulty) {
+            return new StaticCell(column, cellNumber, layout, color, column == 0 ? emptyMask : solidMask);
+        }
+    };
+    private ChunkGrid grid = createGrid(1, 10 * CHUNK_BYTES);
+
+    @Test
+    public void update_loadsRadiusAroundStillShip() throws Exception {
+        grid.update(0, center(0, 0), new Vector2(0, 0), 1);
+
+        assertEquals(5, grid.size());
+        assertEquals(5, grid.getLoadedCount());
+        for(int[] chunk : new int[][] { { 0, 0 }, { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } }) {
+            Cell cell = grid.getCell(chunk[0], chunk[1]);
+            assertTrue(cell.isLoaded());
+            assertEquals(chunk[0] * Cell.WIDTH, cell.getWorldPosition().getX(), 0);
+            assertEquals(-chunk[1] * Cell.HEIGHT, cell.getWorldPosition().getY(), 0);
+        }
+        assertNull(grid.getCell(1, 1));
+        assertSame(grid.getCell(-1, 1), grid.getCellAt(-1, -Cell.HEIGHT));
+        assertEquals(5 * CHUNK_BYTES, grid.getResidentBytes());
+    }
+
+    @Test
+    public void update_reachesFurtherAhead() throws Exception {
+        grid.update(0, center(0, 0), new Vector2(5, 0), 1);
+
+        assertNotNull(grid.getCell(2, 0));
+        assertNull(grid.getCell(-1, 0));
+        assertNull(grid.getCell(-2, 0));
+
+        grid.update(0, center(0, 0), new Vector2(0, -5), 1);   // Upwards.
+        assertNotNull(grid.getCell(0, 2));
+    }
+
+    @Test
+    public void update_evictsOldestFurthestChunksOverBudget() throws Exception {
+        Vector2 right = new Vector2(5, 0);      // The load area is 7 chunks to the right.
+        for(int column = 0; column < 10; column++)
+            grid.update(0, center(column, 0), right, 1);
+
+        assertTrue(grid.getResidentBytes() <= grid.getMemoryBudget());
+        assertEquals(grid.getLoadedCount() - grid.size(), grid.getEvictedCount());
+        assertNull(grid.getCell(0, 0));
+        assertNotNull(grid.getCell(9, 0));
+        assertNotNull(grid.getCell(11, 0));
+        for(Cell cell : removedCells)
+            assertFalse(cell.isLoaded());
+
+        grid.clear();
+        assertEquals(0, grid.size());
+        assertNull(grid.getCell(9, 0));
+    }
+
+    @Test
+    public void update_keepsLoadAreaOverBudget() throws Exception {
+        ChunkGrid small = createGrid(1, CHUNK_BYTES);
+        small.update(0, center(0, 0), new Vector2(0, 0), 1);
+        assertEquals(5, small.size());
+        assertEquals(0, small.getEvictedCount());
+    }
+
+    @Test
+    public void columnZero_matchesCellMap() throws Exception {
+        CellMap cellMap = new CellMap(new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(cellNumber, layout, color, emptyMask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), LAYOUTS, 1234);
+        cellMap.update(1, 1);
+        grid.update(1, center(0, 1), new Vector2(0, -1), 1);
+
+        int compared = 0;
+        for(int i = 0; i < cellMap.size(); i++) {
+            Cell expected = cellMap.get(i);
+            Cell chunk = grid.getCell(0, expected.getCellNumber());
+            if(chunk == null)
+                continue;
+            assertEquals(expected.getLayout(), chunk.getLayout());
+            assertEquals(expected.getColor(), chunk.getColor());
+            compared++;
+        }
+        assertEquals(2, compared);      // Cells 1 and 2, the grid doesn't keep cell 0 behind.
+    }
+
+    @Test
+    public void simulation_collidesInNeighbouringColumn() throws Exception {
+        Simulation simulation = new Simulation(grid, 22, 24);
+        simulation.restart();
+
+        int ticks = 0;
+        while(simulation.update(1, 0))
+            ticks++;
+        // The ship starts in the middle of column 0 and crashes into column 1's solid chunk.
+        assertTrue(ticks > 200 && ticks < Cell.WIDTH / 2);
+        assertEquals(0, simulation.getCurrentCell().getColumn());
+    }
+
+    @Test
+    public void simulation_entersCellsSidewaysAndSpeedsUp() throws Exception {
+        ChunkGrid open = new ChunkGrid(new ChunkGrid.Factory() {
+            @Override
+            public Cell createCell(int column, int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(column, cellNumber, layout, color, emptyMask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), LAYOUTS, 1234, 1, CHUNK_BYTES, 10 * CHUNK_BYTES);
+        Simulation simulation = new Simulation(open, 22, 24);
+        final List<GameEvent> events = new ArrayList<>();
+        simulation.registerListener(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                events.add(event);
+            }
+        });
+        simulation.restart();
+
+        while(simulation.getCurrentColumn() < 3)
+            assertTrue(simulation.update(1, 0));
+
+        assertEquals(3, Collections.frequency(events, GameEvent.CELL_ENTERED));
+        assertEquals(GameEvent.SPEED_UP, events.get(events.size() - 1));
+        assertEquals(1.5f, simulation.getShip().getSpeed(), 0);
+        assertEquals(0, simulation.getCurrentCellNumber());
+        assertEquals(0, simulation.getFurthestCellNumber());
+    }
+
+    private ChunkGrid createGrid(int loadRadius, long memoryBudget) {
+        return new ChunkGrid(factory, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR),
+                LAYOUTS, 1234, loadRadius, CHUNK_BYTES, memoryBudget) {
+            @Override
+            protected void onCellRemoved(Cell cell) {
+                removedCells.add(cell);
+                super.onCellRemoved(cell);
+            }
+        };
+    }
+
+    private static Vector2 center(int column, int cellNumber) {
+        return new Vector2(column * Cell.WIDTH + Cell.WIDTH / 2, -cellNumber * Cell.HEIGHT + Cell.HEIGHT / 2);
+    }
+
+    private static CollisionMask createSolidMask() {
+        CollisionMask mask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        for(int y = 0; y < Cell.HEIGHT; y++)
+            mask.fillRow(y, 0, Cell.WIDTH);
+        return mask;
+    }
+}
@@ -0,0 +1,89 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CollisionMaskFileTest {
+
+    @Test
+    public void decode_givesBackEncodedMask() throws Exception {
+        CollisionMask mask = new CollisionMask(130, 40);
+        Random random = new Random(7);
+        for(int y = 0; y < 40; y++)
+            for(int x = 0; x < 130; x++)
+                mask.set(x, y, random.nextInt(4) == 0);
+        mask.fillRow(3, 0, 130);        // Full row.
+        mask.fillRow(4, 0, 1);          // Starts solid.
+        mask.fillRow(5, 129, 130);      // Ends solid.
+
+        byte[] data = CollisionMaskFile.encode(mask);
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        assertSameMask(mask, CollisionMaskFile.decode(direct, null));
+    }
+
+    @Test
+    public void decode_reusesMaskOfSameSize() throws Exception {
+        CollisionMask walls = new CollisionMask(512, 1024);
+        for(int y = 0; y < 1024; y++) {
+            walls.fillRow(y, 0, 100 + y % 50);
+            walls.fillRow(y, 400 - y % 30, 512);
+        }
+        byte[] data = CollisionMaskFile.encode(walls);
+        assertTrue("walls compress well, " + data.length + " bytes", data.length < 8 * 1024);
+
+        CollisionMask reuse = new CollisionMask(512, 1024);
+        reuse.fillRow(10, 200, 300);    // Must be cleared by decode.
+        CollisionMask decoded = CollisionMaskFile.decode(ByteBuffer.wrap(data), reuse);
+        assertSame(reuse, decoded);
+        assertSameMask(walls, decoded);
+
+        CollisionMask other = CollisionMaskFile.decode(ByteBuffer.wrap(data), new CollisionMask(10, 10));
+        assertEquals(512, other.getWidth());
+    }
+
+    @Test
+    public void fillRow_setsExactlyTheRun() throws Exception {
+        int[][] runs = { { 0, 64 }, { 63, 65 }, { 5, 6 }, { 1, 199 }, { 128, 200 } };
+        for(int[] run : runs) {
+            CollisionMask mask = new CollisionMask(200, 1);
+            mask.fillRow(0, run[0], run[1]);
+            for(int x = 0; x < 200; x++)
+                assertEquals("run " + run[0] + "-" + run[1] + " at " + x, x >= run[0] && x < run[1], mask.isSolid(x, 0));
+        }
+    }
+
+    @Test
+    public void decode_rejectsBadData() throws Exception {
+        byte[] data = CollisionMaskFile.encode(new CollisionMask(8, 2));
+
+        assertCorrupt(new byte[] { 1, 2, 3 });
+        byte[] truncated = new byte[data.length - 1];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertCorrupt(truncated);
+        byte[] longRun = data.clone();
+        longRun[16] = 9;     // First row is one run of 8 free pixels.
+        assertCorrupt(longRun);
+    }
+
+    private static void assertCorrupt(byte[] data) {
+        try {
+            CollisionMaskFile.decode(ByteBuffer.wrap(data), null);
+            fail("Expected an IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    private static void assertSameMask(CollisionMask expected, CollisionMask actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for(int y = 0; y < expected.getHeight(); y++)
+            for(int x = 0; x < expected.getWidth(); x++)
+                assertEquals("at " + x + ", " + y, expected.isSolid(x, y), actual.isSolid(x, y));
+    }
+}
@@ -0,0 +1,51 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CollisionMaskTest {
+
+    @Test
+    public void setRow_usesAlphaChannel() throws Exception {
+        CollisionMask mask = new CollisionMask(128, 2);
+        int[] row = new int[128];
+        row[0] = 0xff000000;
+        row[63] = 0x01000000;
+        row[64] = 0x00ffffff;   // opaque colour bits but no alpha, should be free.
+        row[127] = 0x80123456;
+        mask.setRow(1, row);
+
+        assertTrue(mask.isSolid(0, 1));
+        assertTrue(mask.isSolid(63, 1));
+        assertFalse(mask.isSolid(64, 1));
+        assertTrue(mask.isSolid(127, 1));
+        assertFalse(mask.isSolid(0, 0));
+    }
+
+    @Test
+    public void isSolid_outsideMaskIsFree() throws Exception {
+        CollisionMask mask = new CollisionMask(64, 64);
+        for(int y = 0; y < 64; y++)
+            for(int x = 0; x < 64; x++)
+                mask.set(x, y, true);
+
+        assertTrue(mask.isSolid(0, 0));
+        assertTrue(mask.isSolid(63, 63));
+        assertFalse(mask.isSolid(-1, 0));
+        assertFalse(mask.isSolid(0, -1));
+        assertFalse(mask.isSolid(64, 0));
+        assertFalse(mask.isSolid(0, 64));
+    }
+
+    @Test
+    public void set_clearsSingleBit() throws Exception {
+        CollisionMask mask = new CollisionMask(512, 4);
+        mask.set(300, 2, true);
+        mask.set(301, 2, true);
+        mask.set(300, 2, false);
+
+        assertFalse(mask.isSolid(300, 2));
+        assertTrue(mask.isSolid(301, 2));
+    }
+}
@@ -0,0 +1,37 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CounterTextTest {
+
+    @Test
+    public void setValue_formatsLabelAndValue() throws Exception {
+        CounterText score = new CounterText("Score: ", 0);
+        score.setValue(1234);
+        assertEquals("Score: 1234", score.toString());
+
+        CounterText speed = new CounterText("Speed: ", 1);
+        speed.setValue(2.5f);
+        assertEquals("Speed: 2.5", speed.toString());
+    }
+
+    @Test
+    public void setValue_onlyChangesWhenVisibleValueChanges() throws Exception {
+        CounterText speed = new CounterText("Speed: ", 1);
+
+        assertTrue(speed.setValue(1.0f));
+        assertFalse(speed.setValue(1.0f));
+        assertFalse(speed.setValue(1.04f));     // Still shown as 1.0.
+        assertTrue(speed.setValue(1.5f));
+        assertEquals("Speed: 1.5", speed.toString());
+    }
+
+    @Test
+    public void setValue_firstValueIsAlwaysAChange() throws Exception {
+        CounterText counter = new CounterText("Cell: ", 0);
+        assertTrue(counter.setValue(0));
+        assertEquals("Cell: 0", counter.toString());
+    }
+}
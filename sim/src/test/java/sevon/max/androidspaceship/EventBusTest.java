@@ -0,0 +1,123 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventBusTest {
+
+    @Test
+    public void publish_deliversInOrderWithData() throws Exception {
+        EventBus bus = new EventBus(8);
+        final List<String> received = new ArrayList<>();
+        EventBus.Subscription subscription = bus.subscribe(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                received.add(event + " " + data.getTick() + " " + data.getCellNumber() + " " + data.getValue());
+            }
+        }, CellStreamer.IMMEDIATE_EXECUTOR);
+
+        bus.publish(GameEvent.CELL_ENTERED, 5, 1, 2, 1.5f, 3);
+        bus.publish(GameEvent.SPEED_UP, 6, 1, 2, 2f, 3);
+
+        assertEquals(2, received.size());
+        assertEquals("CELL_ENTERED 5 3 1.5", received.get(0));
+        assertEquals("SPEED_UP 6 3 2.0", received.get(1));
+        assertEquals(2, subscription.getLatency().getCount());
+        assertEquals(0, subscription.getQueueDepth());
+    }
+
+    @Test
+    public void failingListener_isCountedAndKeepsReceiving() throws Exception {
+        EventBus bus = new EventBus(8);
+        final List<Integer> ticks = new ArrayList<>();
+        EventBus.Subscription subscription = bus.subscribe(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                if(data.getTick() == 1)
+                    throw new IllegalStateException("Bad event");
+                ticks.add(data.getTick());
+            }
+        }, CellStreamer.IMMEDIATE_EXECUTOR);
+
+        for(int tick = 0; tick < 3; tick++)
+            bus.publish(GameEvent.NEAR_MISS, tick, 0, 0, 0, 0);
+
+        assertEquals(1, subscription.getFailed());
+        assertEquals(0, subscription.getDropped());
+        assertEquals(2, ticks.size());
+        assertEquals(2, (int) ticks.get(1));
+    }
+
+    @Test
+    public void slowListener_dropsInsteadOfBlocking() throws Exception {
+        EventBus bus = new EventBus(4);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> slowTicks = new ArrayList<>();
+        final List<Integer> fastTicks = new ArrayList<>();
+        ExecutorService slowExecutor = Executors.newSingleThreadExecutor();
+        EventBus.Subscription slow = bus.subscribe(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (slowTicks) {
+                    slowTicks.add(data.getTick());
+                }
+            }
+        }, slowExecutor);
+        EventBus.Subscription fast = bus.subscribe(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                fastTicks.add(data.getTick());
+            }
+        }, CellStreamer.IMMEDIATE_EXECUTOR);
+
+        long start = System.nanoTime();
+        for(int tick = 0; tick < 100; tick++)
+            bus.publish(GameEvent.NEAR_MISS, tick, 0, 0, 0, 0);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(100, fastTicks.size());
+        assertEquals(0, fast.getDropped());
+        assertEquals(4, slow.getMaxQueueDepth());
+        assertTrue(slow.getDropped() >= 100 - 5);
+
+        release.countDown();
+        slowExecutor.shutdown();
+        assertTrue(slowExecutor.awaitTermination(5, TimeUnit.SECONDS));
+        synchronized (slowTicks) {
+            assertEquals(100 - slow.getDropped(), slowTicks.size());
+            assertEquals(0, (int) slowTicks.get(0));
+        }
+        assertEquals(0, slow.getQueueDepth());
+    }
+
+    @Test
+    public void publish_fromListenerIsDeliveredAfterCurrentEvent() throws Exception {
+        final EventBus bus = new EventBus(8);
+        final List<GameEvent> received = new ArrayList<>();
+        bus.subscribe(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                received.add(event);
+                if(event == GameEvent.SPEED_UP)
+                    bus.publish(GameEvent.NEAR_MISS, 0, 0, 0, 0, 0);
+            }
+        }, CellStreamer.IMMEDIATE_EXECUTOR);
+
+        bus.publish(GameEvent.SPEED_UP, 0, 0, 0, 0, 0);
+        assertEquals(2, received.size());
+        assertEquals(GameEvent.NEAR_MISS, received.get(1));
+    }
+}
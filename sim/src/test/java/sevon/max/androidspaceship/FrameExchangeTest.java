@@ -0,0 +1,47 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FrameExchangeTest {
+
+    private FrameExchange<int[]> exchange = new FrameExchange<>(new int[1], new int[1], new int[1]);
+
+    @Test
+    public void acquire_returnsLatestPublishedFrame() throws Exception {
+        exchange.getBack()[0] = 1;
+        exchange.publish();
+        exchange.getBack()[0] = 2;
+        exchange.publish();
+
+        assertEquals(2, exchange.acquire()[0]);
+        assertEquals(2, exchange.getAcquiredSequence());
+    }
+
+    @Test
+    public void acquire_keepsFrontUntilNewFrameIsPublished() throws Exception {
+        exchange.getBack()[0] = 1;
+        exchange.publish();
+        int[] front = exchange.acquire();
+
+        assertSame(front, exchange.acquire());
+        assertFalse(exchange.awaitFrame(0));
+    }
+
+    @Test
+    public void getBack_neverReturnsFrameBeingDrawn() throws Exception {
+        for(int i = 0; i < 10; i++) {
+            int[] front = exchange.acquire();
+            assertNotSame(front, exchange.getBack());
+            exchange.publish();
+            assertNotSame(front, exchange.getBack());
+        }
+    }
+
+    @Test
+    public void awaitFrame_returnsImmediatelyWhenFrameIsPending() throws Exception {
+        exchange.publish();
+        assertTrue(exchange.awaitFrame(10000));
+    }
+}
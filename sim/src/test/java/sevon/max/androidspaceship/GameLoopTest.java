@@ -0,0 +1,124 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GameLoopTest {
+
+    private static final long STEP = 1000;
+
+    private FakeClock clock = new FakeClock();
+    private CountingGame game = new CountingGame();
+    private GameLoop loop = new GameLoop(game, clock, STEP, 5);
+
+    @Test
+    public void runFrame_updatesOncePerElapsedStep() throws Exception {
+        clock.time += 3 * STEP + STEP / 2;
+        assertTrue(loop.runFrame());
+
+        assertEquals(3, game.updates);
+        assertEquals(0.5f, game.interpolations.get(0), 0.0001f);
+    }
+
+    @Test
+    public void runFrame_carriesRemainderToNextFrame() throws Exception {
+        clock.time += STEP / 2;
+        loop.runFrame();
+        assertEquals(0, game.updates);
+
+        clock.time += STEP / 2;
+        loop.runFrame();
+        assertEquals(1, game.updates);
+        assertEquals(0f, game.interpolations.get(1), 0.0001f);
+    }
+
+    @Test
+    public void runFrame_sleepsUntilNextStep() throws Exception {
+        clock.time += STEP / 4;
+        loop.runFrame();
+
+        assertEquals(STEP - STEP / 4, clock.slept);
+    }
+
+    @Test
+    public void runFrame_capsCatchUpSteps() throws Exception {
+        clock.time += 100 * STEP;
+        loop.runFrame();
+
+        assertEquals(5, game.updates);
+    }
+
+    @Test
+    public void runFrame_sameUpdateRateForSlowAndFastFrames() throws Exception {
+        FakeClock slowClock = new FakeClock();
+        CountingGame slowGame = new CountingGame();
+        GameLoop slowLoop = new GameLoop(slowGame, slowClock, STEP, 5);
+
+        // One loop gets a frame every step, the other every third step. After the same amount of
+        // time both should have run the same number of updates.
+        for(int i = 0; i < 300; i++) {
+            clock.time += STEP;
+            loop.runFrame();
+        }
+        for(int i = 0; i < 100; i++) {
+            slowClock.time += 3 * STEP;
+            slowLoop.runFrame();
+        }
+
+        assertEquals(300, game.updates);
+        assertEquals(300, slowGame.updates);
+    }
+
+    @Test
+    public void runFrame_stopsWhenGameIsOver() throws Exception {
+        game.updatesLeft = 2;
+        clock.time += 4 * STEP;
+
+        assertFalse(loop.runFrame());
+        assertEquals(2, game.updates);
+        assertTrue(game.interpolations.isEmpty());
+    }
+
+    @Test
+    public void reset_forgetsElapsedTime() throws Exception {
+        clock.time += 3 * STEP;
+        loop.reset();
+        loop.runFrame();
+
+        assertEquals(0, game.updates);
+    }
+
+    private static class FakeClock implements GameLoop.Clock {
+        long time;
+        long slept;
+
+        @Override
+        public long nanoTime() { return time; }
+
+        @Override
+        public void sleep(long nanos) {
+            slept += nanos;
+        }
+    }
+
+    private static class CountingGame implements GameLoop.Game {
+        int updates;
+        int updatesLeft = Integer.MAX_VALUE;
+        List<Float> interpolations = new ArrayList<>();
+
+        @Override
+        public boolean update() {
+            updates++;
+            return --updatesLeft > 0;
+        }
+
+        @Override
+        public void render(float interpolation) {
+            interpolations.add(interpolation);
+        }
+    }
+}
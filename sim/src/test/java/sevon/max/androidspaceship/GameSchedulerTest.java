@@ -0,0 +1,145 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GameSchedulerTest {
+
+    private static final long STEP = 1000;
+    private static final long COOLDOWN = 10 * STEP;
+
+    private FakeClock clock = new FakeClock();
+    private TestGame game = new TestGame();
+    private GameLoop loop = new GameLoop(game, clock, STEP, 5);
+    private AtomicInteger cooldownsFinished = new AtomicInteger();
+    private GameScheduler scheduler = new GameScheduler(loop, clock, COOLDOWN, new GameScheduler.Listener() {
+        @Override
+        public void onCooldownFinished() {
+            cooldownsFinished.incrementAndGet();
+        }
+    });
+
+    @Test
+    public void tick_runsFramesWhileRunning() throws Exception {
+        for(int i = 0; i < 10; i++)
+            assertTrue(scheduler.tick());
+
+        assertEquals(GameScheduler.State.RUNNING, scheduler.getState());
+        assertEquals(9, game.updates.get());
+    }
+
+    @Test
+    public void gameOver_entersCooldownWithoutBlocking() throws Exception {
+        game.updatesLeft = 1;
+        scheduler.tick();
+        scheduler.tick();
+
+        assertEquals(GameScheduler.State.CRASHED_COOLDOWN, scheduler.getState());
+        assertEquals(0, cooldownsFinished.get());
+
+        clock.time += COOLDOWN;
+        assertFalse(scheduler.tick());
+        assertEquals(GameScheduler.State.STOPPED, scheduler.getState());
+        assertEquals(1, cooldownsFinished.get());
+        assertFalse(scheduler.tick());
+    }
+
+    @Test
+    public void pause_doesNotCountTowardsCooldown() throws Exception {
+        game.updatesLeft = 1;
+        scheduler.tick();
+        scheduler.tick();
+        clock.time += COOLDOWN / 2;
+
+        scheduler.pause();
+        assertEquals(GameScheduler.State.PAUSED, scheduler.getState());
+        clock.time += 100 * COOLDOWN;
+        scheduler.resume();
+
+        assertEquals(GameScheduler.State.CRASHED_COOLDOWN, scheduler.getState());
+        clock.time += COOLDOWN / 2;
+        assertFalse(scheduler.tick());
+        assertEquals(1, cooldownsFinished.get());
+    }
+
+    @Test
+    public void resume_doesNotCatchUpOnPausedTime() throws Exception {
+        scheduler.tick();
+        scheduler.pause();
+        clock.time += 100 * STEP;
+        scheduler.resume();
+        scheduler.tick();
+
+        assertEquals(0, game.updates.get());
+    }
+
+    @Test
+    public void pause_parksThreadUntilResumed() throws Exception {
+        scheduler.start();
+        waitForUpdates(1);
+
+        scheduler.pause();
+        Thread.sleep(20);   // Let the thread finish the frame it was in.
+        int updates = game.updates.get();
+        Thread.sleep(50);
+        assertEquals(updates, game.updates.get());
+
+        scheduler.resume();
+        waitForUpdates(updates + 1);
+
+        scheduler.stop();
+        assertEquals(GameScheduler.State.STOPPED, scheduler.getState());
+        updates = game.updates.get();
+        Thread.sleep(20);
+        assertEquals(updates, game.updates.get());
+    }
+
+    @Test
+    public void stop_wakesPausedThread() throws Exception {
+        scheduler.pause();
+        scheduler.start();
+        scheduler.stop();
+        assertEquals(GameScheduler.State.STOPPED, scheduler.getState());
+        assertEquals(0, cooldownsFinished.get());
+    }
+
+    private void waitForUpdates(int updates) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while(game.updates.get() < updates && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+        assertTrue(game.updates.get() >= updates);
+    }
+
+    /**
+     * Clock where time only passes when the loop sleeps (or the test moves it).
+     */
+    private static class FakeClock implements GameLoop.Clock {
+        volatile long time;
+
+        @Override
+        public long nanoTime() { return time; }
+
+        @Override
+        public void sleep(long nanos) throws InterruptedException {
+            time += nanos;
+            Thread.sleep(1);
+        }
+    }
+
+    private static class TestGame implements GameLoop.Game {
+        final AtomicInteger updates = new AtomicInteger();
+        volatile int updatesLeft = Integer.MAX_VALUE;
+
+        @Override
+        public boolean update() {
+            updates.incrementAndGet();
+            return --updatesLeft > 0;
+        }
+
+        @Override
+        public void render(float interpolation) { }
+    }
+}
@@ -0,0 +1,73 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class InputChannelTest {
+
+    @Test
+    public void pack_roundTrips() throws Exception {
+        long sample = InputChannel.pack(-9.81f, 3.5f, -123456);
+        assertEquals(-9.81f, InputChannel.getX(sample), 0.0005f);
+        assertEquals(3.5f, InputChannel.getY(sample), 0.0005f);
+        assertEquals(-123456, InputChannel.getTimestampMillis(sample));
+    }
+
+    @Test
+    public void pack_clampsLargeValues() throws Exception {
+        long sample = InputChannel.pack(1000, -1000, 0);
+        assertEquals(32.767f, InputChannel.getX(sample), 0.0005f);
+        assertEquals(-32.768f, InputChannel.getY(sample), 0.0005f);
+    }
+
+    @Test
+    public void publish_appliesFilterAndDeadZone() throws Exception {
+        InputChannel input = new InputChannel(0.5f, 1);
+        input.publish(4, 0.5f, 1000000);
+        input.publish(0, 0.5f, 2000000);
+
+        long sample = input.getLatest();
+        assertEquals(2, InputChannel.getX(sample), 0.0005f);
+        assertEquals(0, InputChannel.getY(sample), 0);
+        assertEquals(2, InputChannel.getTimestampMillis(sample));
+    }
+
+    @Test
+    public void drain_returnsSamplesSinceLastDrain() throws Exception {
+        InputChannel input = new InputChannel();
+        long[] samples = new long[8];
+        for(int i = 0; i < 3; i++)
+            input.publish(i, 0, i * 1000000L);
+
+        assertEquals(3, input.drain(samples));
+        assertEquals(0, InputChannel.getTimestampMillis(samples[0]));
+        assertEquals(2, InputChannel.getTimestampMillis(samples[2]));
+        assertEquals(0, input.drain(samples));
+
+        // More samples than fit in the array, only the newest are kept.
+        for(int i = 0; i < 20; i++)
+            input.publish(i, 0, i * 1000000L);
+        assertEquals(8, input.drain(samples));
+        assertEquals(12, InputChannel.getTimestampMillis(samples[0]));
+        assertEquals(19, InputChannel.getTimestampMillis(samples[7]));
+    }
+
+    @Test
+    public void concurrentPublish_neverTears() throws Exception {
+        final InputChannel input = new InputChannel();
+        Thread sensor = new Thread() {
+            @Override
+            public void run() {
+                for(int i = 0; i < 100000; i++)
+                    input.publish(i % 30, -(i % 30), i);
+            }
+        };
+        sensor.start();
+        while(sensor.isAlive()) {
+            long sample = input.getLatest();
+            assertEquals(-InputChannel.getX(sample), InputChannel.getY(sample), 0);
+        }
+        sensor.join();
+    }
+}
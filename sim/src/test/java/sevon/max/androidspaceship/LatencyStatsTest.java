@@ -0,0 +1,37 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyStatsTest {
+
+    @Test
+    public void percentiles_areWithinFactorOfTwo() throws Exception {
+        LatencyStats stats = new LatencyStats();
+        for(int i = 0; i < 99; i++)
+            stats.record(10000);        // 10 us
+        stats.record(5000000);          // 5 ms
+
+        assertEquals(100, stats.getCount());
+        assertEquals(5000000, stats.getMaxNanos());
+        long p50 = stats.getPercentileNanos(0.5);
+        assertTrue(p50 >= 10000 && p50 <= 20000);
+        long p99 = stats.getPercentileNanos(0.99);
+        assertTrue(p99 >= 10000 && p99 <= 20000);
+        assertEquals(5000000, stats.getPercentileNanos(1));
+    }
+
+    @Test
+    public void empty_reportsZero() throws Exception {
+        LatencyStats stats = new LatencyStats();
+        assertEquals(0, stats.getPercentileNanos(0.99));
+        assertEquals(0, stats.getMeanNanos());
+
+        stats.record(-5);
+        stats.record(Long.MAX_VALUE);
+        stats.reset();
+        assertEquals(0, stats.getCount());
+        assertEquals(0, stats.getMaxNanos());
+    }
+}
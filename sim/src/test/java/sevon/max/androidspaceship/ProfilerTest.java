@@ -0,0 +1,101 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class ProfilerTest {
+
+    @Test
+    public void disabled_recordsNothing() throws Exception {
+        Profiler profiler = new Profiler(false, 16);
+        Profiler.Track track = profiler.newTrack("Game");
+
+        long start = track.begin();
+        assertEquals(0, start);
+        track.end(Profiler.Section.UPDATE, start);
+        assertEquals(0, track.getCount());
+    }
+
+    @Test
+    public void enabled_recordsSpans() throws Exception {
+        Profiler profiler = new Profiler(true, 16);
+        Profiler.Track track = profiler.newTrack("Game");
+
+        long frame = track.begin();
+        long update = track.begin();
+        track.end(Profiler.Section.UPDATE, update);
+        track.end(Profiler.Section.FRAME, frame);
+        assertEquals(2, track.getCount());
+
+        profiler.setEnabled(false);
+        track.end(Profiler.Section.DRAW, track.begin());
+        assertEquals(2, track.getCount());
+    }
+
+    @Test
+    public void writeTrace_writesChromeTraceEvents() throws Exception {
+        Profiler profiler = new Profiler(true, 4);
+        Profiler.Track game = profiler.newTrack("GameLoop");
+        Profiler.Track draw = profiler.newTrack("Draw");
+        for(int i = 0; i < 6; i++)
+            game.end(Profiler.Section.UPDATE, game.begin());
+        draw.end(Profiler.Section.DRAW, draw.begin());
+
+        StringWriter out = new StringWriter();
+        profiler.writeTrace(out);
+        String trace = out.toString();
+
+        assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+        assertTrue(trace.endsWith("]}"));
+        assertTrue(trace.contains("\"args\":{\"name\":\"GameLoop\"}"));
+        assertTrue(trace.contains("\"args\":{\"name\":\"Draw\"}"));
+        // The track only keeps its last 4 spans.
+        assertEquals(4, count(trace, "\"name\":\"UPDATE\""));
+        assertEquals(1, count(trace, "\"name\":\"DRAW\",\"ph\":\"X\",\"pid\":1,\"tid\":2"));
+        assertTrue(trace.matches(".*\"ts\":\\d+\\.\\d{3},\"dur\":\\d+\\.\\d{3}}.*"));
+    }
+
+    @Test
+    public void frameTimes_percentilesAndJank() throws Exception {
+        FrameTimes frameTimes = new FrameTimes(16000000, 100);
+        for(int i = 0; i < 97; i++)
+            frameTimes.record(16000000);
+        frameTimes.record(30000000);        // Missed a refresh.
+        frameTimes.record(30000000);
+        frameTimes.record(100000000);       // Missed several.
+
+        assertEquals(16000000, frameTimes.getPercentileNanos(0.5));
+        assertEquals(16000000, frameTimes.getPercentileNanos(0.95));
+        assertEquals(30000000, frameTimes.getPercentileNanos(0.99));
+        assertEquals(100000000, frameTimes.getPercentileNanos(1));
+        assertEquals(3, frameTimes.getJankCount());
+        assertEquals(1, frameTimes.getSevereJankCount());
+
+        // Only the last 100 frames count towards percentiles.
+        for(int i = 0; i < 100; i++)
+            frameTimes.record(10000000);
+        assertEquals(10000000, frameTimes.getPercentileNanos(1));
+        assertEquals(3, frameTimes.getJankCount());
+    }
+
+    @Test
+    public void frameTimes_pausesAreNotFrames() throws Exception {
+        FrameTimes frameTimes = new FrameTimes(16000000, 100);
+        frameTimes.frameStarted(1000);
+        frameTimes.frameStarted(1000 + 16000000);
+        frameTimes.frameStarted(1000 + 16000000 + 5000000000L);
+
+        assertEquals(1, frameTimes.getFrameCount());
+        assertEquals(0, frameTimes.getJankCount());
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for(int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1))
+            count++;
+        return count;
+    }
+}
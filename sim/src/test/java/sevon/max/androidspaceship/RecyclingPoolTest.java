@@ -0,0 +1,103 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RecyclingPoolTest {
+
+    @Test
+    public void acquire_emptyPoolIsMiss() throws Exception {
+        RecyclingPool<long[]> pool = new RecyclingPool<long[]>(2) { };
+        assertNull(pool.acquire());
+        assertEquals(1, pool.getMisses());
+        assertEquals(0, pool.getHits());
+    }
+
+    @Test
+    public void release_fullPoolEvicts() throws Exception {
+        final int[] evicted = new int[1];
+        RecyclingPool<long[]> pool = new RecyclingPool<long[]>(1) {
+            @Override
+            protected void onEvict(long[] object) {
+                evicted[0]++;
+            }
+        };
+        long[] first = new long[1];
+        pool.release(first);
+        pool.release(new long[1]);
+
+        assertEquals(1, pool.getEvictions());
+        assertEquals(1, evicted[0]);
+        assertSame(first, pool.acquire());
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    public void release_unusableObjectIsEvicted() throws Exception {
+        RecyclingPool<long[]> pool = new RecyclingPool<long[]>(4) {
+            @Override
+            protected boolean canReuse(long[] object) {
+                return object.length == 8;
+            }
+        };
+        pool.release(new long[4]);
+        assertEquals(1, pool.getEvictions());
+        assertEquals(0, pool.getFreeCount());
+    }
+
+    /**
+     * Flies through a CellMap whose cells take their collision masks from a pool when loaded and
+     * hand them back when unloaded, the way the app's cells do. Once the window has been filled
+     * every new cell reuses the mask of a dropped one.
+     */
+    @Test
+    public void steadyStateStreaming_allocatesNothing() throws Exception {
+        final int window = CellMap.MAX_LOADED_CELLS;
+        final RecyclingPool<CollisionMask> pool = new RecyclingPool<CollisionMask>(window) { };
+        CellMap cellMap = new CellMap(new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                return new PooledCell(cellNumber, layout, color, pool);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), 3, 1234);
+
+        // Fast enough to load as many cells ahead as possible, so the window keeps its size.
+        float speed = 100;
+        for(int cell = 0; cell < 1000; cell++) {
+            cellMap.update(cell, speed);
+            assertEquals(window, cellMap.size());
+            assertTrue(cellMap.getCell(cell).isLoaded());
+        }
+
+        assertEquals(window, pool.getMisses());
+        assertEquals(1000 - 1, pool.getHits());
+        assertEquals(0, pool.getEvictions());
+    }
+
+    private static class PooledCell extends Cell {
+        private final RecyclingPool<CollisionMask> pool;
+        private CollisionMask collisionMask;
+
+        PooledCell(int cellNumber, int layout, int color, RecyclingPool<CollisionMask> pool) {
+            super(cellNumber, layout, color);
+            this.pool = pool;
+        }
+
+        @Override
+        protected CollisionMask getCollisionMask() { return collisionMask; }
+
+        @Override
+        protected void onLoad() {
+            collisionMask = pool.acquire();
+            if(collisionMask == null)
+                collisionMask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        }
+
+        @Override
+        protected void onUnload() {
+            pool.release(collisionMask);
+            collisionMask = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ReplayTest {
+
+    private static final int LAYOUTS = 3;
+    private static final long SEED = 987654321L;
+
+    private final CollisionMask[] masks = createMasks();     // The last one for generated cells.
+    private final CellMap.Factory factory = new CellMap.Factory() {
+        @Override
+        public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+            return new StaticCell(cellNumber, layout, color, masks[layout == CellMap.GENERATED_LAYOUT ? LAYOUTS : layout]);
+        }
+    };
+
+    @Test
+    public void varInt_roundTrips() throws Exception {
+        byte[] buffer = new byte[5];
+        int[] values = { 0, 1, 127, 128, 300, Integer.MAX_VALUE, -1 };
+        for(int value : values) {
+            int length = ReplayRecorder.writeVarInt(buffer, 0, ReplayRecorder.zigzag(value));
+            long result = Replay.readVarInt(buffer, 0);
+            assertEquals(length, (int) (result >>> 32));
+            assertEquals(value, Replay.unzigzag((int) result));
+        }
+    }
+
+    @Test
+    public void replay_playsGameExactlyAgain() throws Exception {
+        ReplayRecorder recorder = new ReplayRecorder();
+        Simulation simulation = createSimulation();
+        simulation.setRecorder(recorder);
+        simulation.restart();
+
+        // Steer with slowly changing, noisy input until the spaceship crashes.
+        Random random = new Random(5);
+        float angle = 0;
+        while(simulation.update((float) Math.sin(angle) * 3, -9.81f + random.nextFloat()) && simulation.getTicks() < 100000)
+            angle += random.nextFloat() * 0.02f;
+        Ship ship = simulation.getShip();
+
+        Replay replay = Replay.parse(recorder.toByteArray());
+        assertEquals(SEED, replay.getSeed());
+        assertEquals(simulation.getTicks(), replay.getTickCount());
+
+        ReplayPlayer player = new ReplayPlayer(replay, factory);
+        player.fastForward(Integer.MAX_VALUE);
+        Ship replayedShip = player.getSimulation().getShip();
+        assertEquals(ship.getWorldPosition().getX(), replayedShip.getWorldPosition().getX(), 0);
+        assertEquals(ship.getWorldPosition().getY(), replayedShip.getWorldPosition().getY(), 0);
+        assertEquals(ship.getScore(), replayedShip.getScore());
+        assertTrue(player.isCrashed());
+
+        assertTrue(player.verifyScore(ship.getScore()));
+        assertFalse(player.verifyScore(ship.getScore() + 1));
+    }
+
+    @Test
+    public void record_smoothInputIsCompact() throws Exception {
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(SEED, LAYOUTS, 22, 24);
+        for(int i = 0; i < 10000; i++)
+            recorder.record(ReplayRecorder.quantize((float) Math.sin(i * 0.01) * 3), ReplayRecorder.quantize(-9.81f));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recorder.writeTo(out);
+        assertArrayEquals(recorder.toByteArray(), out.toByteArray());
+        assertTrue(out.size() < 10000 * 3);
+    }
+
+    @Test(expected = IOException.class)
+    public void parse_rejectsOtherData() throws Exception {
+        Replay.parse(new byte[64]);
+    }
+
+    @Test(expected = IOException.class)
+    public void nextTick_truncatedReplayFails() throws Exception {
+        ReplayRecorder recorder = new ReplayRecorder();
+        recorder.start(SEED, LAYOUTS, 22, 24);
+        for(int i = 0; i < 100; i++)
+            recorder.record(i * 1000, -i * 1000);
+        byte[] data = recorder.toByteArray();
+
+        Replay replay = Replay.parse(Arrays.copyOf(data, data.length - 20));
+        while(replay.nextTick()) { }
+    }
+
+    private Simulation createSimulation() {
+        CellStreamer streamer = new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR);
+        return new Simulation(new CellMap(factory, streamer, LAYOUTS, SEED), 22, 24);
+    }
+
+    /**
+     * Cells with walls along the sides and rocks in all but the start cell.
+     */
+    private static CollisionMask[] createMasks() {
+        Random random = new Random(1);
+        CollisionMask[] masks = new CollisionMask[LAYOUTS + 1];
+        for(int i = 0; i < masks.length; i++) {
+            masks[i] = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+            for(int y = 0; y < Cell.HEIGHT; y++) {
+                for(int x = 0; x < Cell.WIDTH; x++) {
+                    boolean wall = x < 64 || x >= Cell.WIDTH - 64;
+                    boolean rock = i > 0 && random.nextInt(20000) == 0;
+                    masks[i].set(x, y, wall || rock);
+                }
+            }
+        }
+        return masks;
+    }
+}
@@ -0,0 +1,178 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class ScoreFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeRead_roundTrips() throws Exception {
+        File file = new File(folder.getRoot(), "scores.dat");
+        ScoreList scores = new ScoreList(10);
+        scores.add(5000, 42, 1450000000000L, 3.5f, 17);
+        scores.add(120, -7, 1460000000000L, 1.5f, 2);
+        scores.add(4000, Long.MAX_VALUE, 1, 3, 12);
+        ScoreFile.write(file, scores);
+
+        ScoreList read = ScoreFile.read(file, 10);
+        assertArrayEquals(new int[] { 5000, 4000, 120 }, read.toScoreArray());
+        assertEquals(42, read.getSeed(0));
+        assertEquals(Long.MAX_VALUE, read.getSeed(1));
+        assertEquals(1460000000000L, read.getTimestamp(2));
+        assertEquals(3.5f, read.getMaxSpeed(0), 0);
+        assertEquals(12, read.getCellsTraversed(1));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void read_missingFileIsEmpty() throws Exception {
+        assertEquals(0, ScoreFile.read(new File(folder.getRoot(), "none.dat"), 10).size());
+    }
+
+    @Test
+    public void write_replacesOldScores() throws Exception {
+        File file = new File(folder.getRoot(), "scores.dat");
+        ScoreFile.write(file, list(1, 2, 3));
+        ScoreFile.write(file, list(9));
+
+        assertArrayEquals(new int[] { 9 }, ScoreFile.read(file, 10).toScoreArray());
+    }
+
+    @Test
+    public void read_flippedBitIsDetected() throws Exception {
+        File file = new File(folder.getRoot(), "scores.dat");
+        ScoreFile.write(file, list(100, 50));
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.seek(13);
+        int b = raf.read();
+        raf.seek(13);
+        raf.write(b ^ 0x10);
+        raf.close();
+
+        try {
+            ScoreFile.read(file, 10);
+            fail("Corruption not detected");
+        } catch (ScoreFile.CorruptException e) {
+            assertTrue(e.getMessage().contains("checksum"));
+        }
+    }
+
+    @Test(expected = ScoreFile.CorruptException.class)
+    public void decode_truncatedDataIsDetected() throws Exception {
+        byte[] data = ScoreFile.encode(list(1, 2, 3));
+        ScoreFile.decode(data, data.length - 4, 10);
+    }
+
+    @Test(expected = ScoreFile.CorruptException.class)
+    public void decode_hugeCountIsDetected() throws Exception {
+        byte[] data = ScoreFile.encode(list());
+        data[8] = 0x7f;
+        ScoreFile.decode(data, data.length, 10);
+    }
+
+    @Test
+    public void decode_tenThousandScores() throws Exception {
+        ScoreList scores = new ScoreList(10000);
+        for(int i = 0; i < 10000; i++)
+            scores.add(i);
+        byte[] data = ScoreFile.encode(scores);
+
+        assertEquals(12 + 28 * 10000 + 4, data.length);
+        assertArrayEquals(scores.toScoreArray(), ScoreFile.decode(data, data.length, 10000).toScoreArray());
+
+        // A smaller list keeps the best ones.
+        assertEquals(9999 - 9, ScoreFile.decode(data, data.length, 10).getScore(9));
+    }
+
+    @Test
+    public void decode_readsVersionOne() throws Exception {
+        // Version 1 only stored the scores.
+        byte[] data = { 0x53, 0x43, 0x4f, 0x52, 0, 0, 0, 1, 0, 0, 0, 2, 0, 0, 1, 0, 0, 0, 0, 5, 0, 0, 0, 0 };
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, 20);
+        int checksum = (int) crc.getValue();
+        for(int i = 0; i < 4; i++)
+            data[20 + i] = (byte) (checksum >>> (24 - 8 * i));
+
+        ScoreList scores = ScoreFile.decode(data, data.length, 10);
+        assertArrayEquals(new int[] { 256, 5 }, scores.toScoreArray());
+        assertEquals(0, scores.getSeed(0));
+    }
+
+    @Test
+    public void readLegacy_readsSerializedScoreList() throws Exception {
+        OldScoreList old = new OldScoreList();
+        old.add(300);
+        old.add(200);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(old);
+        out.close();
+
+        // Make the stream name the class the way the old game did.
+        byte[] data = replaceClassName(bytes.toByteArray(), OldScoreList.class.getName(), "sevon.max.androidspaceship.ScoreList");
+        File file = new File(folder.getRoot(), "highscores.dmp");
+        FileOutputStream fileOut = new FileOutputStream(file);
+        fileOut.write(data);
+        fileOut.close();
+
+        assertArrayEquals(new int[] { 300, 200 }, ScoreFile.readLegacy(file));
+    }
+
+    /**
+     * Replaces a class name, stored as a length prefixed string, in a serialized stream.
+     */
+    private static byte[] replaceClassName(byte[] data, String from, String to) throws Exception {
+        byte[] fromBytes = lengthPrefixed(from);
+        byte[] toBytes = lengthPrefixed(to);
+        for(int i = 0; i + fromBytes.length <= data.length; i++) {
+            if(Arrays.equals(Arrays.copyOfRange(data, i, i + fromBytes.length), fromBytes)) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                out.write(data, 0, i);
+                out.write(toBytes);
+                out.write(data, i + fromBytes.length, data.length - i - fromBytes.length);
+                return out.toByteArray();
+            }
+        }
+        throw new AssertionError("Class name not found");
+    }
+
+    private static byte[] lengthPrefixed(String s) throws Exception {
+        byte[] bytes = s.getBytes("UTF-8");
+        byte[] result = new byte[bytes.length + 2];
+        result[0] = (byte) (bytes.length >>> 8);
+        result[1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, result, 2, bytes.length);
+        return result;
+    }
+
+    private static ScoreList list(int... scores) {
+        ScoreList list = new ScoreList(10);
+        for(int score : scores)
+            list.add(score);
+        return list;
+    }
+
+    /**
+     * Same shape as the old ScoreList.
+     */
+    private static class OldScoreList extends ArrayList<Integer> {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,115 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ScoreListTest {
+
+    @Test
+    public void add_keepsTopKSorted() throws Exception {
+        ScoreList list = new ScoreList(10);
+        int[] scores = { 5, 1, 9, 3, 7, 11, 2, 8, 4, 6, 10, 0 };
+        for(int score : scores)
+            list.add(score);
+
+        assertEquals(10, list.size());
+        for(int i = 0; i < list.size(); i++)
+            assertEquals(11 - i, list.getScore(i));
+        assertEquals(-1, list.add(1));
+        assertEquals(0, list.add(12));
+        assertEquals(12, list.getScore(0));
+    }
+
+    @Test
+    public void add_keepsEntryFieldsTogether() throws Exception {
+        ScoreList list = new ScoreList(3);
+        list.add(100, 1, 10, 1.5f, 4);
+        list.add(300, 3, 30, 3.5f, 12);
+        list.add(200, 2, 20, 2.5f, 8);
+
+        for(int i = 0; i < 3; i++) {
+            long expected = 3 - i;
+            assertEquals(expected * 100, list.getScore(i));
+            assertEquals(expected, list.getSeed(i));
+            assertEquals(expected * 10, list.getTimestamp(i));
+            assertEquals(expected + 0.5f, list.getMaxSpeed(i), 0);
+            assertEquals(expected * 4, list.getCellsTraversed(i));
+        }
+    }
+
+    @Test
+    public void add_equalScoresKeepTheirOrder() throws Exception {
+        ScoreList list = new ScoreList(5);
+        list.add(50, 1, 0, 0, 0);
+        list.add(50, 2, 0, 0, 0);
+
+        assertEquals(1, list.getSeed(0));
+        assertEquals(2, list.getSeed(1));
+    }
+
+    @Test
+    public void getRank_findsPlaceWithoutAdding() throws Exception {
+        ScoreList list = new ScoreList(4);
+        list.add(400);
+        list.add(300);
+        list.add(300);
+
+        assertEquals(1, list.getRank(500));
+        assertEquals(2, list.getRank(300));
+        assertEquals(4, list.getRank(299));
+        assertEquals(3, list.size());
+
+        list.add(100);
+        assertEquals(4, list.getRank(101));
+        assertEquals(-1, list.getRank(100));
+        assertEquals(-1, list.add(100));
+        assertEquals(-1, list.getRank(99));
+        assertEquals(1, list.getRank(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void add_matchesSortingEverything() throws Exception {
+        Random random = new Random(3);
+        ScoreList list = new ScoreList(1000);
+        ArrayList<Integer> all = new ArrayList<>();
+        for(int i = 0; i < 20000; i++) {
+            int score = random.nextInt(100000);
+            list.add(score);
+            all.add(score);
+        }
+
+        Collections.sort(all, Collections.reverseOrder());
+        for(int i = 0; i < list.size(); i++)
+            assertEquals((int) all.get(i), list.getScore(i));
+    }
+
+    @Test
+    public void copyRange_copiesPage() throws Exception {
+        ScoreList list = new ScoreList(10);
+        for(int i = 1; i <= 7; i++)
+            list.add(i * 10, i, 0, 0, 0);
+
+        ScoreList page = list.copyRange(3, 3);
+        assertArrayEquals(new int[] { 40, 30, 20 }, page.toScoreArray());
+        assertEquals(4, page.getSeed(0));
+
+        assertArrayEquals(new int[] { 10 }, list.copyRange(6, 3).toScoreArray());
+        assertEquals(0, list.copyRange(9, 3).size());
+    }
+
+    @Test
+    public void copy_isIndependent() throws Exception {
+        ScoreList list = new ScoreList(5);
+        list.add(10);
+        ScoreList copy = list.copy();
+        list.add(20);
+
+        assertEquals(1, copy.size());
+        assertEquals(10, copy.getScore(0));
+    }
+}
@@ -0,0 +1,80 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScorePagesTest {
+
+    private ScorePages pages = new ScorePages(10, 3);
+
+    @Test
+    public void getScore_readsFromItsPage() throws Exception {
+        pages.put(2, page(300, 7));
+
+        assertEquals(2, pages.getPageNumber(25));
+        assertTrue(pages.isLoaded(20));
+        assertEquals(300, pages.getScore(20));
+        assertEquals(294, pages.getScore(26));
+        assertFalse(pages.isLoaded(19));
+    }
+
+    @Test
+    public void isLoaded_falseBeyondShortPage() throws Exception {
+        pages.put(0, page(100, 4));
+
+        assertTrue(pages.isLoaded(3));
+        assertFalse(pages.isLoaded(4));
+        assertFalse(pages.isLoaded(9));
+    }
+
+    @Test
+    public void put_fullSetDropsFurthestPage() throws Exception {
+        pages.put(4, page(0, 10));
+        pages.put(5, page(0, 10));
+        pages.put(9, page(0, 10));
+        pages.put(3, page(0, 10));
+
+        assertEquals(3, pages.size());
+        assertNull(pages.getPage(9));
+        assertNotNull(pages.getPage(3));
+        assertNotNull(pages.getPage(4));
+        assertNotNull(pages.getPage(5));
+    }
+
+    @Test
+    public void put_samePageReplacesIt() throws Exception {
+        pages.put(1, page(100, 10));
+        pages.put(1, page(200, 10));
+
+        assertEquals(1, pages.size());
+        assertEquals(200, pages.getScore(10));
+    }
+
+    @Test
+    public void startLoading_onlyOncePerPage() throws Exception {
+        assertTrue(pages.startLoading(1));
+        assertFalse(pages.startLoading(1));
+
+        pages.put(1, page(100, 10));
+        assertTrue(pages.startLoading(1));
+    }
+
+    @Test
+    public void startLoading_limitedToPagesKept() throws Exception {
+        assertTrue(pages.startLoading(0));
+        assertTrue(pages.startLoading(1));
+        assertTrue(pages.startLoading(2));
+        assertFalse(pages.startLoading(3));
+    }
+
+    /**
+     * @return A page of count scores, counting down from first.
+     */
+    private static ScoreList page(int first, int count) {
+        ScoreList page = new ScoreList(count);
+        for(int i = 0; i < count; i++)
+            page.add(first - i);
+        return page;
+    }
+}
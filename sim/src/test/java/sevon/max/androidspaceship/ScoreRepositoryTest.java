@@ -0,0 +1,100 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+import static org.junit.Assert.*;
+
+public class ScoreRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void submit_isSavedByFlush() throws Exception {
+        ScoreRepository repository = new ScoreRepository(folder.getRoot(), 10);
+        repository.submit(entry(100), null);
+        repository.submit(new ScoreEntry(300, 77, 1460000000000L, 2.5f, 9), new byte[] { 1, 2, 3 });
+        repository.flush();
+
+        ScoreList saved = ScoreFile.read(new File(folder.getRoot(), "highscores.dat"), 10);
+        assertArrayEquals(new int[] { 300, 100 }, saved.toScoreArray());
+        assertEquals(77, saved.getSeed(0));
+        assertEquals(9, saved.getCellsTraversed(0));
+        assertEquals(3, new File(folder.getRoot(), "last.replay").length());
+    }
+
+    @Test
+    public void getScores_includesSubmittedScores() throws Exception {
+        ScoreList existing = new ScoreList(10);
+        existing.add(50);
+        ScoreFile.write(new File(folder.getRoot(), "highscores.dat"), existing);
+        ScoreRepository repository = new ScoreRepository(folder.getRoot(), 10);
+        repository.submit(entry(70), null);
+
+        ScoreList scores = repository.getScores();
+        assertArrayEquals(new int[] { 70, 50 }, scores.toScoreArray());
+        assertEquals(2, repository.getRank(60));
+    }
+
+    @Test
+    public void submit_manyScoresAreCoalesced() throws Exception {
+        ScoreRepository repository = new ScoreRepository(folder.getRoot(), 10);
+        long start = System.nanoTime();
+        for(int i = 0; i < 1000; i++)
+            repository.submit(entry(i), null);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        repository.flush();
+
+        // A thousand submissions are coalesced into a few writes of the top ten.
+        assertTrue("Submitting took " + elapsedMillis + " ms", elapsedMillis < 500);
+        ScoreList scores = repository.getScores();
+        assertEquals(10, scores.size());
+        assertEquals(999, scores.getScore(0));
+    }
+
+    @Test
+    public void load_corruptFileIsKeptAside() throws Exception {
+        File file = new File(folder.getRoot(), "highscores.dat");
+        FileOutputStream out = new FileOutputStream(file);
+        out.write(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16 });
+        out.close();
+
+        ScoreRepository repository = new ScoreRepository(folder.getRoot(), 10);
+        assertEquals(0, repository.getScores().size());
+        assertTrue(new File(folder.getRoot(), "highscores.dat.corrupt").exists());
+    }
+
+    @Test
+    public void save_failureIsReported() throws Exception {
+        // A directory in the way of the file can't be replaced.
+        assertTrue(new File(folder.getRoot(), "highscores.dat").mkdir());
+        ScoreRepository repository = new ScoreRepository(folder.getRoot(), 10);
+        repository.submit(entry(100), null);
+
+        assertTrue(repository.flush(10000));
+        assertNotNull(repository.getLastError());
+        assertEquals(1, repository.getScores().size());
+    }
+
+    @Test
+    public void open_sameDirectoryGivesSameRepository() throws Exception {
+        ScoreRepository repository = ScoreRepository.open(folder.getRoot(), 1000);
+        assertSame(repository, ScoreRepository.open(folder.getRoot(), 1000));
+        assertEquals(1000, repository.getCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void open_otherCapacityIsRejected() throws Exception {
+        ScoreRepository.open(folder.getRoot(), 1000);
+        ScoreRepository.open(folder.getRoot(), 10);
+    }
+
+    private static ScoreEntry entry(int score) {
+        return new ScoreEntry(score, 0, 0, 1, 0);
+    }
+}
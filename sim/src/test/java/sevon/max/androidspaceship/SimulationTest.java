@@ -0,0 +1,151 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SimulationTest {
+
+    private static final int LAYOUTS = 3;
+
+    private CollisionMask emptyMask = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+    private CollisionMask[] masks = { emptyMask, emptyMask, emptyMask, emptyMask };     // The last one for generated cells.
+    private List<Cell> removedCells = new ArrayList<>();
+    private CellMap cellMap = new CellMap(new CellMap.Factory() {
+        @Override
+        public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+            return new StaticCell(cellNumber, layout, color, masks[layout == CellMap.GENERATED_LAYOUT ? LAYOUTS : layout]);
+        }
+    }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), LAYOUTS, 1234) {
+        @Override
+        protected void onCellRemoved(Cell cell) {
+            removedCells.add(cell);
+            super.onCellRemoved(cell);
+        }
+    };
+    private Simulation simulation = new Simulation(cellMap, 22, 24);
+
+    @Test
+    public void restart_loadsWindowAroundStartCell() throws Exception {
+        simulation.restart();
+
+        assertEquals(0, simulation.getCurrentCell().getCellNumber());
+        assertEquals(0, simulation.getCurrentCell().getLayout());
+        assertEquals(-CellMap.CELLS_BEHIND, cellMap.get(0).getCellNumber());
+        for(int i = 0; i < cellMap.size(); i++)
+            assertTrue(cellMap.get(i).isLoaded());
+    }
+
+    @Test
+    public void update_movesShipAndCountsScore() throws Exception {
+        simulation.restart();
+        for(int i = 0; i < 10; i++)
+            assertTrue(simulation.update(0, -5));
+
+        Ship ship = simulation.getShip();
+        assertEquals(Simulation.STARTING_POSITION.getY() - 10, ship.getWorldPosition().getY(), 0.001f);
+        assertEquals(10, ship.getScore());
+    }
+
+    @Test
+    public void update_speedsUpEveryThirdCell() throws Exception {
+        simulation.restart();
+        while(simulation.getCurrentCellNumber() < 3)
+            assertTrue(simulation.update(0, -1));
+
+        assertEquals(1.5f, simulation.getShip().getSpeed(), 0);
+        assertEquals(3 - CellMap.CELLS_BEHIND, cellMap.get(0).getCellNumber());
+        assertFalse(removedCells.isEmpty());
+        assertFalse(removedCells.get(0).isLoaded());
+    }
+
+    @Test
+    public void update_crashIsReported() throws Exception {
+        CollisionMask solid = new CollisionMask(Cell.WIDTH, Cell.HEIGHT);
+        for(int y = 0; y < Cell.HEIGHT; y++)
+            for(int x = 0; x < Cell.WIDTH; x++)
+                solid.set(x, y, true);
+        masks[0] = solid;
+        final List<GameEvent> events = new ArrayList<>();
+        simulation.registerListener(new GameEventListener() {
+            @Override
+            public void notify(GameEvent event, GameEventData data) {
+                events.add(event);
+            }
+        });
+        simulation.restart();
+        assertEquals(Arrays.asList(GameEvent.GAME_STARTED), events);
+
+        assertFalse(simulation.update(0, -1));
+        assertEquals(0, simulation.getShip().getSpeed(), 0);
+        assertEquals(Arrays.asList(GameEvent.GAME_STARTED, GameEvent.SPACESHIP_CRASH), events);
+    }
+
+    @Test
+    public void cellMap_generatesCellsWithOnlyTheStartLayout() throws Exception {
+        final CellGenerator generator = new CellGenerator(CellMap.MAX_LOADED_CELLS);
+        CellMap generated = new CellMap(new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                if(layout == CellMap.GENERATED_LAYOUT)
+                    return new GeneratedCell(cellNumber, color, difficulty, generator, 1234);
+                return new StaticCell(cellNumber, layout, color, emptyMask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), 1, 1234);
+        generated.update(1, 3);
+
+        for(int i = 0; i < generated.size(); i++) {
+            Cell cell = generated.get(i);
+            assertEquals(cell.getCellNumber() == 0 ? 0 : CellMap.GENERATED_LAYOUT, cell.getLayout());
+            assertTrue(cell.isLoaded());
+        }
+        GeneratedCell ahead = (GeneratedCell) generated.get(generated.size() - 1);
+        assertTrue(ahead.checkCollision(0, 0));
+        assertFalse(ahead.checkCollision(Cell.WIDTH / 2, 0));
+        generated.clear();
+        assertFalse(ahead.isLoaded());
+    }
+
+    @Test
+    public void cellMap_findsCellsByPosition() throws Exception {
+        CellMap map = new CellMap(new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(cellNumber, layout, color, emptyMask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), LAYOUTS, 1234, 2, 1);
+        map.update(5, 100);
+
+        assertEquals(4, map.size());
+        assertEquals(3, map.get(0).getCellNumber());
+        assertEquals(6, map.get(3).getCellNumber());
+        assertEquals(5, map.getCellAt(-5 * Cell.HEIGHT).getCellNumber());
+        assertEquals(5, map.getCellAt(-4 * Cell.HEIGHT - 0.5f).getCellNumber());
+        assertEquals(4, map.getCellAt(-4 * Cell.HEIGHT).getCellNumber());
+        assertSame(map.getCell(6), map.getCellAt(-6 * Cell.HEIGHT + 1));
+        assertNull(map.getCellAt(-7 * Cell.HEIGHT + 1));
+        assertNull(map.getCellAt(-2 * Cell.HEIGHT + 1));
+    }
+
+    @Test
+    public void cellMap_sameSeedGivesSameWorld() throws Exception {
+        simulation.restart();
+        CellMap other = new CellMap(new CellMap.Factory() {
+            @Override
+            public Cell createCell(int cellNumber, int layout, int color, int difficulty) {
+                return new StaticCell(cellNumber, layout, color, emptyMask);
+            }
+        }, new CellStreamer(Cell.HEIGHT, CellStreamer.IMMEDIATE_EXECUTOR), LAYOUTS, 1234);
+        other.update(0, 1);
+
+        assertEquals(cellMap.size(), other.size());
+        for(int i = 0; i < other.size(); i++) {
+            assertEquals(cellMap.get(i).getLayout(), other.get(i).getLayout());
+            assertEquals(cellMap.get(i).getColor(), other.get(i).getColor());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package sevon.max.androidspaceship;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ViewportTest {
+
+    @Test
+    public void clip_cullsImagesOutOfView() throws Exception {
+        Viewport viewport = new Viewport();
+        viewport.set(180, 320, 360, 640, 2, 2);     // View is (0, 0) - (360, 640).
+
+        assertFalse(viewport.clip(0, 640, 512, 1024));      // Just below.
+        assertFalse(viewport.clip(0, -1024, 512, 1024));    // Just above.
+        assertFalse(viewport.clip(360, 0, 10, 10));         // Just right.
+        assertTrue(viewport.clip(0, 639, 512, 1024));
+    }
+
+    @Test
+    public void clip_placesPartialImagesExactly() throws Exception {
+        Viewport viewport = new Viewport();
+        viewport.set(256, 1000, 360, 640, 2, 3);     // View is (76, 680) - (436, 1320).
+
+        // An image at the bottom of the view, and one at the top.
+        assertTrue(viewport.clip(0, 1024, 512, 1024));
+        assertEquals(76, viewport.getSourceLeft());
+        assertEquals(0, viewport.getSourceTop());
+        assertEquals(436, viewport.getSourceRight());
+        assertEquals(296, viewport.getSourceBottom());
+        assertEquals(0, viewport.getScreenLeft(), 0);
+        assertEquals((1024 - 680) * 3, viewport.getScreenTop(), 0);
+        assertEquals(720, viewport.getScreenRight(), 0);
+        assertEquals(640 * 3, viewport.getScreenBottom(), 0);
+
+        assertTrue(viewport.clip(0, 0, 512, 1024));
+        assertEquals(680, viewport.getSourceTop());
+        assertEquals(1024, viewport.getSourceBottom());
+        assertEquals(0, viewport.getScreenTop(), 0);
+        assertEquals((1024 - 680) * 3, viewport.getScreenBottom(), 0);
+    }
+
+    @Test
+    public void clip_keepsFractionalCameraPosition() throws Exception {
+        Viewport viewport = new Viewport();
+        viewport.set(180.25f, 320.5f, 360, 640, 1, 1);     // View is (0.25, 0.5) - (360.25, 640.5).
+
+        assertTrue(viewport.clip(0, 0, 512, 1024));
+        assertEquals(0, viewport.getSourceLeft());
+        assertEquals(0, viewport.getSourceTop());
+        assertEquals(361, viewport.getSourceRight());
+        assertEquals(641, viewport.getSourceBottom());
+        assertEquals(-0.25f, viewport.getScreenLeft(), 1e-4);
+        assertEquals(-0.5f, viewport.getScreenTop(), 1e-4);
+    }
+}
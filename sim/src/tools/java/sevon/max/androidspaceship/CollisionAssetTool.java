@@ -0,0 +1,97 @@
+package sevon.max.androidspaceship;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.imageio.ImageIO;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+/**
+ * Extracts the collision masks of the cell images at build time. Reads the cell images listed in
+ * the background_drawables array of values/background_images.xml, and writes one .cmask file per
+ * image, named after the drawable. A pixel is solid if its alpha is > 0, same as when a mask is
+ * built from a decoded bitmap.
+ * Usage: CollisionAssetTool resDir outputDir
+ */
+public class CollisionAssetTool {
+
+    private static final String DRAWABLE_DIR = "drawable-nodpi";
+    private static final String ARRAY_FILE = "values/background_images.xml";
+    private static final String ARRAY_NAME = "background_drawables";
+    private static final String DRAWABLE_PREFIX = "@drawable/";
+
+    public static void main(String[] args) throws Exception {
+        if(args.length != 2) {
+            System.err.println("Usage: CollisionAssetTool resDir outputDir");
+            System.exit(1);
+        }
+        File resDir = new File(args[0]);
+        File outputDir = new File(args[1]);
+        if(!outputDir.isDirectory() && !outputDir.mkdirs())
+            throw new IOException("Could not create " + outputDir);
+
+        for(String name : readCellDrawables(new File(resDir, ARRAY_FILE))) {
+            File image = new File(new File(resDir, DRAWABLE_DIR), name + ".png");
+            File output = new File(outputDir, name + CollisionMaskFile.EXTENSION);
+            byte[] data = CollisionMaskFile.encode(buildMask(image));
+            OutputStream out = new FileOutputStream(output);
+            try {
+                out.write(data);
+            } finally {
+                out.close();
+            }
+            System.out.println(image.getName() + " -> " + output.getName() + ", " + data.length + " bytes");
+        }
+    }
+
+    /**
+     * @return The names of the drawables in the background_drawables array.
+     */
+    static String[] readCellDrawables(File arrayFile) throws Exception {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(arrayFile);
+        NodeList arrays = document.getElementsByTagName("array");
+        for(int i = 0; i < arrays.getLength(); i++) {
+            Element array = (Element) arrays.item(i);
+            if(!ARRAY_NAME.equals(array.getAttribute("name")))
+                continue;
+
+            NodeList items = array.getElementsByTagName("item");
+            String[] names = new String[items.getLength()];
+            for(int j = 0; j < names.length; j++) {
+                String item = items.item(j).getTextContent().trim();
+                if(!item.startsWith(DRAWABLE_PREFIX))
+                    throw new IOException("Not a drawable: " + item);
+                names[j] = item.substring(DRAWABLE_PREFIX.length());
+            }
+            return names;
+        }
+        throw new IOException("No " + ARRAY_NAME + " array in " + arrayFile);
+    }
+
+    /**
+     * Builds the collision mask of an image from its alpha channel.
+     */
+    static CollisionMask buildMask(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        if(image == null)
+            throw new IOException("Could not read " + file);
+
+        int width = image.getWidth();
+        int height = image.getHeight();
+        CollisionMask mask = new CollisionMask(width, height);
+        int[] row = new int[width];
+        for(int y = 0; y < height; y++) {
+            // getRGB gives ARGB, with alpha 255 for images without an alpha channel.
+            image.getRGB(0, y, width, 1, row, 0, width);
+            mask.setRow(y, row);
+        }
+        return mask;
+    }
+}